@@ -1,12 +1,16 @@
 package ca.carleton.s4806.perkmanager;
 
+import ca.carleton.s4806.perkmanager.config.ReplicaRoutingContext;
 import ca.carleton.s4806.perkmanager.model.Membership;
 import ca.carleton.s4806.perkmanager.model.Perk;
 import ca.carleton.s4806.perkmanager.model.User;
 import ca.carleton.s4806.perkmanager.repository.MembershipRepository;
 import ca.carleton.s4806.perkmanager.repository.PerkRepository;
 import ca.carleton.s4806.perkmanager.repository.UserRepository;
+import ca.carleton.s4806.perkmanager.service.CatalogChangeLog;
+import ca.carleton.s4806.perkmanager.service.CatalogSnapshotService;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
@@ -15,23 +19,32 @@ import java.util.List;
 
 /**
  * Data loader that pre-loads sample Memberships and Perks into the database
- * on application startup if the database is empty.
+ * on application startup if the database is empty. Instances started against
+ * a database that already has a catalog skip loading after one count query.
  * This ensures we always have demo data available, even after restarts.
+ * If a catalog snapshot file exists it is restored instead of the sample data.
+ * Not used under the "synthetic" profile, where {@link SyntheticDataLoader} takes over.
  *
  * @author Moesa
  * @version 2.0
  */
 @Component
+@Profile("!synthetic")
 public class DataLoader implements CommandLineRunner {
 
     private final UserRepository userRepository;
     private final MembershipRepository membershipRepository;
     private final PerkRepository perkRepository;
+    private final CatalogSnapshotService snapshotService;
+    private final CatalogChangeLog changeLog;
 
-    public DataLoader(UserRepository userRepository, MembershipRepository membershipRepository, PerkRepository perkRepository) {
+    public DataLoader(UserRepository userRepository, MembershipRepository membershipRepository, PerkRepository perkRepository,
+                      CatalogSnapshotService snapshotService, CatalogChangeLog changeLog) {
         this.userRepository = userRepository;
         this.membershipRepository = membershipRepository;
         this.perkRepository = perkRepository;
+        this.snapshotService = snapshotService;
+        this.changeLog = changeLog;
     }
 
     /**
@@ -41,6 +54,16 @@ public class DataLoader implements CommandLineRunner {
      */
     @Override
     public void run(String... args) throws Exception {
+        // An instance joining a database that is already populated has nothing to load
+        if (isPopulated()) {
+            return;
+        }
+
+        // Restore the last snapshot with bulk inserts when there is one
+        if (snapshotService.loadIfPresent()) {
+            return;
+        }
+
         // Create Memberships
         Membership visa = new Membership("Visa");
         Membership mastercard = new Membership("Mastercard");
@@ -59,6 +82,21 @@ public class DataLoader implements CommandLineRunner {
 
         // Create Perks
         createPerks(visa, mastercard, caa, studentId, costco);
+
+        // Lists fetched while seeding must not be treated as current
+        changeLog.markReset();
+    }
+
+    /**
+     * Checks the primary for existing memberships; a replica may not have caught up yet.
+     */
+    private boolean isPopulated() {
+        ReplicaRoutingContext.pinToPrimary();
+        try {
+            return membershipRepository.count() > 0;
+        } finally {
+            ReplicaRoutingContext.clear();
+        }
     }
 
     private void createPerks(Membership visa, Membership mastercard, Membership caa, Membership studentId, Membership costco) {
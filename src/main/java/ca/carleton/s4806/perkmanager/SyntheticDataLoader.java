@@ -0,0 +1,55 @@
+package ca.carleton.s4806.perkmanager;
+
+import ca.carleton.s4806.perkmanager.config.SyntheticDataProperties;
+import ca.carleton.s4806.perkmanager.service.CatalogSnapshotService;
+import ca.carleton.s4806.perkmanager.service.SyntheticCatalogGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+/**
+ * Replaces {@link DataLoader} under the "synthetic" profile and fills the
+ * database with a large generated catalog for load tests and benchmarks.
+ * The catalog is written as a snapshot and bulk inserted from it.
+ */
+@Component
+@Profile("synthetic")
+@EnableConfigurationProperties(SyntheticDataProperties.class)
+public class SyntheticDataLoader implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SyntheticDataLoader.class);
+
+    private final SyntheticDataProperties settings;
+    private final CatalogSnapshotService snapshotService;
+
+    public SyntheticDataLoader(SyntheticDataProperties settings, CatalogSnapshotService snapshotService) {
+        this.settings = settings;
+        this.snapshotService = snapshotService;
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        Path output = settings.getOutput();
+        Path file = output != null ? output : Files.createTempFile("synthetic-catalog", ".snapshot");
+        try {
+            if (output == null || !Files.isRegularFile(output)) {
+                long start = System.nanoTime();
+                long rows = new SyntheticCatalogGenerator(settings, LocalDate.now()).generate(file);
+                log.info("Generated {} synthetic rows (seed {}) in {} ms", rows, settings.getSeed(),
+                        (System.nanoTime() - start) / 1_000_000);
+            }
+            snapshotService.load(file);
+        } finally {
+            if (output == null) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
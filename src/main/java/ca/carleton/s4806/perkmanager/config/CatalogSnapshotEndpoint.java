@@ -0,0 +1,52 @@
+package ca.carleton.s4806.perkmanager.config;
+
+import ca.carleton.s4806.perkmanager.service.CatalogSnapshotService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint for catalog snapshots.
+ * The read operation describes the snapshot file, the write operation writes a new one.
+ * <p>
+ * Actuator endpoints are not authenticated, so this one is excluded from web
+ * exposure in application.properties and only reachable over JMX.
+ */
+@Component
+@Endpoint(id = "snapshot")
+public class CatalogSnapshotEndpoint {
+
+    private final CatalogSnapshotService snapshotService;
+
+    public CatalogSnapshotEndpoint(CatalogSnapshotService snapshotService) {
+        this.snapshotService = snapshotService;
+    }
+
+    @ReadOperation
+    public Map<String, Object> describe() throws IOException {
+        Path path = snapshotService.getPath().toAbsolutePath();
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("path", path.toString());
+        details.put("exists", Files.isRegularFile(path));
+        if (Files.isRegularFile(path)) {
+            details.put("bytes", Files.size(path));
+            details.put("lastModified", Files.getLastModifiedTime(path).toString());
+        }
+        return details;
+    }
+
+    @WriteOperation
+    public Map<String, Object> write() throws IOException {
+        long rows = snapshotService.write();
+        Map<String, Object> details = describe();
+        details.put("rows", rows);
+        return details;
+    }
+}
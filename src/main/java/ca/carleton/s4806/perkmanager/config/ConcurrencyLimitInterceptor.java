@@ -0,0 +1,116 @@
+package ca.carleton.s4806.perkmanager.config;
+
+import ca.carleton.s4806.perkmanager.service.AdaptiveConcurrencyLimit;
+import ca.carleton.s4806.perkmanager.service.QueryTracker;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Sheds load for one group of endpoints before the controller runs.
+ * <p>
+ * Each group has its own {@link AdaptiveConcurrencyLimit}, so when searches
+ * slow down and their limit drops, votes, logins and the unlimited cheap reads
+ * (memberships, 304s) keep their share of Tomcat's threads. Requests over the
+ * limit get an immediate 503 with Retry-After instead of queueing.
+ * <p>
+ * Streamed responses return their permit once the controller hands them to
+ * the task executor, without a latency sample, so a long export neither holds
+ * a search permit nor reads as congestion.
+ * <p>
+ * Requests that queried the database ({@link QueryTracker}) are compared
+ * with other queries, not with cache hits.
+ * <p>
+ * Metrics, tagged by group: {@code perk_concurrency_limit},
+ * {@code perk_concurrency_in_flight} and {@code perk_concurrency_rejected_total}.
+ */
+public class ConcurrencyLimitInterceptor implements AsyncHandlerInterceptor {
+
+    /**
+     * Endpoint group with its own limit.
+     */
+    public enum Group {
+        VOTES("POST"),
+        SEARCH("GET"),
+        RECOMMENDATIONS("GET"),
+        AUTH("POST");
+
+        private final Set<String> methods;
+
+        Group(String... methods) {
+            this.methods = Set.of(methods);
+        }
+    }
+
+    private final Group group;
+    private final AdaptiveConcurrencyLimit limit;
+    private final String retryAfterSeconds;
+    private final String startAttribute;
+
+    public ConcurrencyLimitInterceptor(Group group, AdaptiveConcurrencyLimit limit, Duration retryAfter,
+                                       MeterRegistry registry) {
+        this.group = group;
+        this.limit = limit;
+        this.retryAfterSeconds = String.valueOf(Math.max(1, (retryAfter.toMillis() + 999) / 1000));
+        this.startAttribute = ConcurrencyLimitInterceptor.class.getName() + "." + group.name();
+
+        String tag = group.name().toLowerCase();
+        Gauge.builder("perk_concurrency_limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                .description("Requests allowed to run at once")
+                .tag("group", tag)
+                .strongReference(true)
+                .register(registry);
+        Gauge.builder("perk_concurrency_in_flight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                .description("Requests running now")
+                .tag("group", tag)
+                .strongReference(true)
+                .register(registry);
+        FunctionCounter.builder("perk_concurrency_rejected_total", limit, AdaptiveConcurrencyLimit::getRejected)
+                .description("Requests rejected with 503 because the limit was reached")
+                .tag("group", tag)
+                .register(registry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Async and error dispatches belong to a request that already went through here
+        if (request.getDispatcherType() != DispatcherType.REQUEST || !group.methods.contains(request.getMethod())) {
+            return true;
+        }
+        if (!limit.tryAcquire()) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+            return false;
+        }
+        QueryTracker.reset();
+        request.setAttribute(startAttribute, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        if (request.getAttribute(startAttribute) != null) {
+            request.removeAttribute(startAttribute);
+            limit.releaseWithoutSample();
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Object start = request.getAttribute(startAttribute);
+        if (start != null) {
+            request.removeAttribute(startAttribute);
+            limit.release((Long) start, System.nanoTime(), QueryTracker.hasQueried());
+        }
+    }
+}
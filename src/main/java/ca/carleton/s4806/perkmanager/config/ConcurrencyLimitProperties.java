@@ -0,0 +1,90 @@
+package ca.carleton.s4806.perkmanager.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the adaptive concurrency limits in front of the vote, search,
+ * recommendation and auth endpoints. Each group gets its own limit with
+ * these settings; see {@link ConcurrencyLimitInterceptor}.
+ */
+@ConfigurationProperties(prefix = "perkmanager.concurrency-limit")
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = true;
+    private int initialLimit = 20;
+    private int minLimit = 2;
+    private int maxLimit = 200;
+
+    /**
+     * How many times the no-load latency a request may take before the limit is cut.
+     */
+    private double tolerance = 2.0;
+
+    /**
+     * Latencies below this never cut the limit.
+     */
+    private Duration latencyFloor = Duration.ofMillis(10);
+
+    /**
+     * Sent as Retry-After with rejected requests.
+     */
+    private Duration retryAfter = Duration.ofSeconds(1);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    public void setInitialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    public Duration getLatencyFloor() {
+        return latencyFloor;
+    }
+
+    public void setLatencyFloor(Duration latencyFloor) {
+        this.latencyFloor = latencyFloor;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    public void setRetryAfter(Duration retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+}
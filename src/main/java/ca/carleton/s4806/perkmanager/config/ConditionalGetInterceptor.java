@@ -0,0 +1,75 @@
+package ca.carleton.s4806.perkmanager.config;
+
+import ca.carleton.s4806.perkmanager.service.CatalogChangeLog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+/**
+ * Answers conditional GETs of a listing with 304 Not Modified before the
+ * controller runs, so repeated polling never reaches the database or Jackson.
+ * <p>
+ * The strong ETag is built from a version kept by {@link CatalogChangeLog}
+ * instead of a hash of the body. The perk list also depends on the date,
+ * because perks drop out of it once they expire.
+ * <p>
+ * With read replicas a listing may be read from a replica that has not seen
+ * the latest change yet. No ETag is sent until the last change is older than
+ * the replica lag tolerance, so a stale body is never tagged as current.
+ */
+public class ConditionalGetInterceptor implements HandlerInterceptor {
+
+    /**
+     * Listing guarded by the interceptor.
+     */
+    public enum Listing {
+        PERKS, MEMBERSHIPS
+    }
+
+    private final Listing listing;
+    private final CatalogChangeLog changeLog;
+    private final Duration settleTime;
+    private final Counter notModified;
+
+    public ConditionalGetInterceptor(Listing listing, CatalogChangeLog changeLog, Duration settleTime,
+                                     MeterRegistry registry) {
+        this.listing = listing;
+        this.changeLog = changeLog;
+        this.settleTime = settleTime;
+        this.notModified = Counter.builder("perk_http_not_modified_total")
+                .description("Listing requests answered with 304 Not Modified")
+                .tag("listing", listing.name().toLowerCase())
+                .register(registry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"GET".equals(request.getMethod())) {
+            return true;
+        }
+        if (!settleTime.isZero() && System.currentTimeMillis() - changeLog.getLastChangeMillis() < settleTime.toMillis()) {
+            return true;
+        }
+        // Make browsers revalidate instead of guessing a freshness lifetime
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        if (new ServletWebRequest(request, response).checkNotModified(etag())) {
+            notModified.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private String etag() {
+        return switch (listing) {
+            case PERKS -> "\"perks-" + changeLog.getVersion() + "-" + LocalDate.now() + "\"";
+            case MEMBERSHIPS -> "\"memberships-" + changeLog.getMembershipVersion() + "\"";
+        };
+    }
+}
@@ -0,0 +1,20 @@
+package ca.carleton.s4806.perkmanager.config;
+
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registers Blackbird with the application's ObjectMapper, which Spring Boot
+ * picks up as a module bean. Blackbird generates lambdas for entity getters
+ * and setters instead of calling them through reflection, which shows up on
+ * large perk lists.
+ */
+@Configuration
+public class JacksonConfig {
+
+    @Bean
+    public BlackbirdModule blackbirdModule() {
+        return new BlackbirdModule();
+    }
+}
@@ -0,0 +1,192 @@
+package ca.carleton.s4806.perkmanager.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stand-in for database replication when running locally against in-memory H2.
+ * <p>
+ * Copies the schema of the primary into each replica once, then periodically
+ * replaces the replica's rows with the primary's. Each refresh runs in a single
+ * replica transaction, so readers see either the old copy or the new one.
+ * The time between refreshes behaves like replica lag.
+ * Not meant for production, where the database's own replication is used.
+ */
+public class LocalReplicationStandIn {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalReplicationStandIn.class);
+
+    private final DataSource primary;
+    private final List<? extends DataSource> replicas;
+    private final Duration interval;
+    private ScheduledExecutorService scheduler;
+    private volatile boolean schemaCopied;
+
+    /**
+     * Constructs the stand-in.
+     *
+     * @param primary the primary data source
+     * @param replicas the replica data sources to keep in sync
+     * @param interval time between refreshes, or null to only replicate on demand
+     */
+    public LocalReplicationStandIn(DataSource primary, List<? extends DataSource> replicas, Duration interval) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.interval = interval;
+    }
+
+    /**
+     * Copies the schema and seed data once the application is ready, then
+     * keeps the replicas refreshed if an interval was configured.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        replicate();
+        if (interval != null && scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "local-replication");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::replicate, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops the periodic refresh.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Copies the current contents of the primary into every replica.
+     */
+    public synchronized void replicate() {
+        try (Connection source = primary.getConnection()) {
+            List<String> tables = listTables(source);
+            for (DataSource replica : replicas) {
+                try (Connection target = replica.getConnection()) {
+                    if (!schemaCopied) {
+                        copySchema(source, target);
+                    }
+                    copyRows(source, target, tables);
+                }
+            }
+            schemaCopied = true;
+        } catch (SQLException e) {
+            log.warn("Local replication failed", e);
+        }
+    }
+
+    private void copySchema(Connection source, Connection target) throws SQLException {
+        List<String> ddl = new ArrayList<>();
+        try (Statement statement = source.createStatement();
+             ResultSet script = statement.executeQuery("SCRIPT NODATA NOPASSWORDS NOSETTINGS")) {
+            while (script.next()) {
+                ddl.add(script.getString(1));
+            }
+        }
+        try (Statement statement = target.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+            for (String sql : ddl) {
+                if (!sql.startsWith("CREATE USER")) {
+                    statement.execute(sql);
+                }
+            }
+            // Integrity is enforced on the primary; the replica only mirrors rows
+            statement.execute("SET REFERENTIAL_INTEGRITY FALSE");
+        }
+    }
+
+    private void copyRows(Connection source, Connection target, List<String> tables) throws SQLException {
+        boolean autoCommit = target.getAutoCommit();
+        target.setAutoCommit(false);
+        try {
+            for (String table : tables) {
+                try (Statement statement = target.createStatement()) {
+                    statement.executeUpdate("DELETE FROM " + table);
+                }
+                copyTable(source, target, table);
+            }
+            target.commit();
+        } catch (SQLException e) {
+            target.rollback();
+            throw e;
+        } finally {
+            target.setAutoCommit(autoCommit);
+        }
+    }
+
+    private void copyTable(Connection source, Connection target, String table) throws SQLException {
+        // Generated columns are computed by the replica itself and cannot be inserted
+        List<String> columns = insertableColumns(source, table);
+        String columnList = String.join(", ", columns);
+        try (Statement select = source.createStatement();
+             ResultSet rows = select.executeQuery("SELECT " + columnList + " FROM " + table)) {
+            String placeholders = String.join(", ", Collections.nCopies(columns.size(), "?"));
+            try (PreparedStatement insert = target.prepareStatement(
+                    "INSERT INTO " + table + " (" + columnList + ") VALUES (" + placeholders + ")")) {
+                int pending = 0;
+                while (rows.next()) {
+                    for (int i = 1; i <= columns.size(); i++) {
+                        insert.setObject(i, rows.getObject(i));
+                    }
+                    insert.addBatch();
+                    if (++pending % 500 == 0) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+        }
+    }
+
+    private List<String> insertableColumns(Connection source, String table) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        try (PreparedStatement statement = source.prepareStatement(
+                "SELECT COLUMN_NAME FROM INFORMATION_SCHEMA.COLUMNS "
+                        + "WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_NAME = ? AND IS_GENERATED = 'NEVER' "
+                        + "ORDER BY ORDINAL_POSITION")) {
+            statement.setString(1, table.substring(1, table.length() - 1));
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    columns.add("\"" + rs.getString(1) + "\"");
+                }
+            }
+        }
+        return columns;
+    }
+
+    private List<String> listTables(Connection source) throws SQLException {
+        List<String> tables = new ArrayList<>();
+        try (Statement statement = source.createStatement();
+             ResultSet rs = statement.executeQuery(
+                     "SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES "
+                             + "WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_TYPE = 'BASE TABLE'")) {
+            while (rs.next()) {
+                tables.add("\"" + rs.getString(1) + "\"");
+            }
+        }
+        return tables;
+    }
+}
@@ -0,0 +1,91 @@
+package ca.carleton.s4806.perkmanager.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Routes read-only transactions to replica databases and everything else to the primary.
+ * <p>
+ * The application data source is a {@link LazyConnectionDataSourceProxy}: it only picks
+ * a physical connection when the first statement runs, by which point the transaction
+ * manager has marked the connection read-only for {@code @Transactional(readOnly = true)}
+ * work. Read-only connections come from {@link ReplicaRoutingDataSource}.
+ * <p>
+ * Active with the "replica" profile (see application-replica.properties).
+ */
+@Configuration
+@Profile("replica")
+@EnableConfigurationProperties(ReadReplicaProperties.class)
+public class ReadReplicaConfig {
+
+    @Bean(destroyMethod = "close")
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaDataSource(HikariDataSource primaryDataSource,
+                                                      DataSourceProperties primaryProperties,
+                                                      ReadReplicaProperties properties,
+                                                      ObjectProvider<MeterRegistry> meterRegistry) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < properties.getReplicas().size(); i++) {
+            ReadReplicaProperties.Replica replica = properties.getReplicas().get(i);
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("replica-" + i);
+            dataSource.setJdbcUrl(replica.getUrl());
+            dataSource.setUsername(replica.getUsername());
+            dataSource.setPassword(replica.getPassword());
+            dataSource.setDriverClassName(primaryProperties.determineDriverClassName());
+            dataSource.setReadOnly(true);
+            // Replicas serve the reads, so size them like the primary pool
+            dataSource.setMaximumPoolSize(primaryDataSource.getMaximumPoolSize());
+            dataSource.setConnectionTimeout(primaryDataSource.getConnectionTimeout());
+            // Replica pools are not beans, so the actuator does not instrument them on its own
+            meterRegistry.ifAvailable(registry -> dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+            replicas.add(dataSource);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primaryDataSource);
+        proxy.setReadOnlyDataSource(replicaDataSource);
+        return proxy;
+    }
+
+    @Bean
+    public ReadYourWritesInterceptor readYourWritesInterceptor(ReadReplicaProperties properties) {
+        return new ReadYourWritesInterceptor(properties.getReplicaLagTolerance());
+    }
+
+    @Bean(destroyMethod = "stop")
+    public LocalReplicationStandIn localReplicationStandIn(HikariDataSource primaryDataSource,
+                                                           ReplicaRoutingDataSource replicaDataSource,
+                                                           ReadReplicaProperties properties) {
+        ReadReplicaProperties.Replication replication = properties.getReplication();
+        return new LocalReplicationStandIn(primaryDataSource, replicaDataSource.getReplicas(),
+                replication.isEnabled() ? replication.getInterval() : null);
+    }
+}
@@ -0,0 +1,104 @@
+package ca.carleton.s4806.perkmanager.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Settings for routing read-only transactions to replica databases.
+ * Only used when the "replica" profile is active; the primary database is
+ * still configured through the standard {@code spring.datasource.*} properties.
+ */
+@ConfigurationProperties(prefix = "perkmanager.datasource")
+public class ReadReplicaProperties {
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    /**
+     * How long a session keeps reading from the primary after it wrote something,
+     * so users see their own votes even if the replicas are behind.
+     */
+    private Duration replicaLagTolerance = Duration.ofSeconds(5);
+
+    private final Replication replication = new Replication();
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    public void setReplicas(List<Replica> replicas) {
+        this.replicas = replicas;
+    }
+
+    public Duration getReplicaLagTolerance() {
+        return replicaLagTolerance;
+    }
+
+    public void setReplicaLagTolerance(Duration replicaLagTolerance) {
+        this.replicaLagTolerance = replicaLagTolerance;
+    }
+
+    public Replication getReplication() {
+        return replication;
+    }
+
+    /**
+     * Connection settings for one read-only replica.
+     */
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+    }
+
+    /**
+     * Settings for the local replication stand-in that copies the primary
+     * into the replicas when running against in-memory H2 databases.
+     */
+    public static class Replication {
+        private boolean enabled = false;
+        private Duration interval = Duration.ofSeconds(2);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package ca.carleton.s4806.perkmanager.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Keeps a session on the primary database for a short while after it writes.
+ * Requests that modify data always run against the primary; afterwards the
+ * session stays pinned for the configured replica lag tolerance, so a user who
+ * just voted sees the new count even if the replicas have not caught up yet.
+ */
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor {
+
+    static final String PINNED_UNTIL_ATTRIBUTE = "primaryPinnedUntil";
+
+    private static final Set<String> MODIFICATION_METHODS = Set.of("POST", "PUT", "DELETE");
+
+    private final Duration replicaLagTolerance;
+
+    public ReadYourWritesInterceptor(Duration replicaLagTolerance) {
+        this.replicaLagTolerance = replicaLagTolerance;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (MODIFICATION_METHODS.contains(request.getMethod()) || wroteRecently(request.getSession(false))) {
+            ReplicaRoutingContext.pinToPrimary();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        try {
+            if (MODIFICATION_METHODS.contains(request.getMethod()) && ex == null && response.getStatus() < 400) {
+                HttpSession session = request.getSession(false);
+                if (session != null) {
+                    session.setAttribute(PINNED_UNTIL_ATTRIBUTE, System.currentTimeMillis() + replicaLagTolerance.toMillis());
+                }
+            }
+        } finally {
+            ReplicaRoutingContext.clear();
+        }
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // The request continues on another thread; do not leak the pin to the next request on this one
+        ReplicaRoutingContext.clear();
+    }
+
+    private boolean wroteRecently(HttpSession session) {
+        if (session == null) {
+            return false;
+        }
+        Object pinnedUntil = session.getAttribute(PINNED_UNTIL_ATTRIBUTE);
+        return pinnedUntil instanceof Long until && until > System.currentTimeMillis();
+    }
+}
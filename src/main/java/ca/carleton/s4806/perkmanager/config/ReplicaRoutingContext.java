@@ -0,0 +1,37 @@
+package ca.carleton.s4806.perkmanager.config;
+
+/**
+ * Per-thread flag that forces read-only transactions onto the primary database.
+ * Set for requests that write, and for requests from sessions that wrote
+ * recently, so a user never reads a replica that has not caught up with them yet.
+ */
+public final class ReplicaRoutingContext {
+
+    private static final ThreadLocal<Boolean> PINNED_TO_PRIMARY = new ThreadLocal<>();
+
+    private ReplicaRoutingContext() {
+    }
+
+    /**
+     * Routes every connection obtained on this thread to the primary until {@link #clear()}.
+     */
+    public static void pinToPrimary() {
+        PINNED_TO_PRIMARY.set(Boolean.TRUE);
+    }
+
+    /**
+     * Checks whether this thread must read from the primary.
+     *
+     * @return true if reads are pinned to the primary
+     */
+    public static boolean isPinnedToPrimary() {
+        return Boolean.TRUE.equals(PINNED_TO_PRIMARY.get());
+    }
+
+    /**
+     * Removes the pin for this thread.
+     */
+    public static void clear() {
+        PINNED_TO_PRIMARY.remove();
+    }
+}
@@ -0,0 +1,68 @@
+package ca.carleton.s4806.perkmanager.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Data source used for read-only transactions.
+ * Spreads connections round-robin over the replica pools, unless the current
+ * thread is pinned to the primary by {@link ReplicaRoutingContext}.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    static final String PRIMARY_KEY = "primary";
+
+    private final List<HikariDataSource> replicas;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /**
+     * Constructs the routing data source.
+     *
+     * @param primary the primary (read-write) data source
+     * @param replicas the replica pools, at least one
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicas) {
+        if (replicas.isEmpty()) {
+            throw new IllegalArgumentException("At least one replica is required");
+        }
+        this.replicas = List.copyOf(replicas);
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY_KEY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Gets the replica pools behind this data source.
+     *
+     * @return the replica pools
+     */
+    public List<HikariDataSource> getReplicas() {
+        return replicas;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (ReplicaRoutingContext.isPinnedToPrimary()) {
+            return PRIMARY_KEY;
+        }
+        return Math.floorMod(next.getAndIncrement(), replicas.size());
+    }
+
+    @Override
+    public void destroy() {
+        replicas.forEach(HikariDataSource::close);
+    }
+}
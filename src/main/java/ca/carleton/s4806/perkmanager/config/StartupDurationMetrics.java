@@ -0,0 +1,72 @@
+package ca.carleton.s4806.perkmanager.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes how long the process took to start, measured from JVM start so
+ * that class loading (what a CDS archive saves) is included:
+ * <ul>
+ *   <li>{@code perk_startup_ready_seconds}: until the application was ready</li>
+ *   <li>{@code perk_startup_first_request_seconds}: until the first request was answered</li>
+ * </ul>
+ * Spring Boot's own {@code application_ready_time_seconds} covers only the
+ * time since {@code SpringApplication.run}. The gauges read NaN until the
+ * moment they measure has happened.
+ */
+@Component
+public class StartupDurationMetrics extends OncePerRequestFilter {
+
+    private final AtomicLong readyMillis = new AtomicLong(-1);
+    private final AtomicLong firstRequestMillis = new AtomicLong(-1);
+
+    public StartupDurationMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        // Not present in @WebMvcTest slices, which pick up filters
+        meterRegistry.ifAvailable(this::register);
+    }
+
+    private void register(MeterRegistry registry) {
+        Gauge.builder("perk_startup_ready_seconds", readyMillis, StartupDurationMetrics::seconds)
+                .description("Time from JVM start until the application was ready")
+                .register(registry);
+        Gauge.builder("perk_startup_first_request_seconds", firstRequestMillis, StartupDurationMetrics::seconds)
+                .description("Time from JVM start until the first request was answered")
+                .register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        readyMillis.compareAndSet(-1, ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            // A plain read once the first request has been recorded
+            if (firstRequestMillis.get() < 0) {
+                firstRequestMillis.compareAndSet(-1, ManagementFactory.getRuntimeMXBean().getUptime());
+            }
+        }
+    }
+
+    private static double seconds(AtomicLong millis) {
+        long value = millis.get();
+        return value < 0 ? Double.NaN : value / 1000.0;
+    }
+}
@@ -0,0 +1,129 @@
+package ca.carleton.s4806.perkmanager.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+/**
+ * Settings for the synthetic catalog generated under the "synthetic" profile.
+ * The same seed and sizes always produce the same catalog.
+ */
+@ConfigurationProperties(prefix = "perkmanager.synthetic")
+public class SyntheticDataProperties {
+
+    private long seed = 42;
+    private int memberships = 300;
+    private int users = 10_000;
+    private int perks = 1_000_000;
+
+    /**
+     * Largest number of memberships a single user can hold.
+     */
+    private int maxMembershipsPerUser = 12;
+
+    /**
+     * Largest upvote count a perk can get. Votes follow a Zipf distribution up to this value.
+     */
+    private int maxVotes = 10_000;
+
+    /**
+     * Zipf exponent for votes and membership popularity; higher means more skew.
+     */
+    private double zipfExponent = 1.1;
+
+    /**
+     * Share of perks whose expiry date is already in the past.
+     */
+    private double expiredFraction = 0.1;
+
+    /**
+     * Expiry dates of active perks are spread over this many days from today.
+     */
+    private int expirySpreadDays = 730;
+
+    /**
+     * Where to keep the generated snapshot so later runs can load it directly.
+     * When unset a temporary file is used and deleted after loading.
+     */
+    private Path output;
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int getMemberships() {
+        return memberships;
+    }
+
+    public void setMemberships(int memberships) {
+        this.memberships = memberships;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public void setUsers(int users) {
+        this.users = users;
+    }
+
+    public int getPerks() {
+        return perks;
+    }
+
+    public void setPerks(int perks) {
+        this.perks = perks;
+    }
+
+    public int getMaxMembershipsPerUser() {
+        return maxMembershipsPerUser;
+    }
+
+    public void setMaxMembershipsPerUser(int maxMembershipsPerUser) {
+        this.maxMembershipsPerUser = maxMembershipsPerUser;
+    }
+
+    public int getMaxVotes() {
+        return maxVotes;
+    }
+
+    public void setMaxVotes(int maxVotes) {
+        this.maxVotes = maxVotes;
+    }
+
+    public double getZipfExponent() {
+        return zipfExponent;
+    }
+
+    public void setZipfExponent(double zipfExponent) {
+        this.zipfExponent = zipfExponent;
+    }
+
+    public double getExpiredFraction() {
+        return expiredFraction;
+    }
+
+    public void setExpiredFraction(double expiredFraction) {
+        this.expiredFraction = expiredFraction;
+    }
+
+    public int getExpirySpreadDays() {
+        return expirySpreadDays;
+    }
+
+    public void setExpirySpreadDays(int expirySpreadDays) {
+        this.expirySpreadDays = expirySpreadDays;
+    }
+
+    public Path getOutput() {
+        return output;
+    }
+
+    public void setOutput(Path output) {
+        this.output = output;
+    }
+}
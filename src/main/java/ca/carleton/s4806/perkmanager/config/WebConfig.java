@@ -1,16 +1,89 @@
 package ca.carleton.s4806.perkmanager.config;
 
+import ca.carleton.s4806.perkmanager.service.AdaptiveConcurrencyLimit;
+import ca.carleton.s4806.perkmanager.service.CatalogChangeLog;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.time.Duration;
+
 @Configuration
+@EnableConfigurationProperties(ConcurrencyLimitProperties.class)
 public class WebConfig implements WebMvcConfigurer {
 
+    private final ObjectProvider<ReadYourWritesInterceptor> readYourWritesInterceptor;
+    private final ObjectProvider<ReadReplicaProperties> readReplicaProperties;
+    private final ObjectProvider<CatalogChangeLog> changeLog;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final ConcurrencyLimitProperties concurrencyLimit;
+
+    public WebConfig(ObjectProvider<ReadYourWritesInterceptor> readYourWritesInterceptor,
+                     ObjectProvider<ReadReplicaProperties> readReplicaProperties,
+                     ObjectProvider<CatalogChangeLog> changeLog,
+                     ObjectProvider<MeterRegistry> meterRegistry,
+                     ConcurrencyLimitProperties concurrencyLimit) {
+        this.readYourWritesInterceptor = readYourWritesInterceptor;
+        this.readReplicaProperties = readReplicaProperties;
+        this.changeLog = changeLog;
+        this.meterRegistry = meterRegistry;
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
         registry.addInterceptor(new AuthInterceptor())
                 .addPathPatterns("/**")
                 .excludePathPatterns("/api/login", "/api/register");
+        // Only present when read replicas are configured
+        readYourWritesInterceptor.ifAvailable(interceptor -> registry.addInterceptor(interceptor).addPathPatterns("/api/**"));
+
+        // Not present in @WebMvcTest slices
+        changeLog.ifAvailable(log -> addConditionalGetInterceptors(registry, log));
+
+        // After the 304 check, so cheap revalidations never take a permit
+        if (concurrencyLimit.isEnabled()) {
+            meterRegistry.ifAvailable(meters -> addConcurrencyLimitInterceptors(registry, meters));
+        }
+    }
+
+    private void addConcurrencyLimitInterceptors(InterceptorRegistry registry, MeterRegistry meters) {
+        addConcurrencyLimit(registry, meters, ConcurrencyLimitInterceptor.Group.VOTES,
+                "/api/perks/*/upvote", "/api/perks/*/downvote");
+        addConcurrencyLimit(registry, meters, ConcurrencyLimitInterceptor.Group.SEARCH,
+                "/api/perks", "/api/perks/facets");
+        addConcurrencyLimit(registry, meters, ConcurrencyLimitInterceptor.Group.RECOMMENDATIONS,
+                "/api/perks/recommended");
+        addConcurrencyLimit(registry, meters, ConcurrencyLimitInterceptor.Group.AUTH,
+                "/api/login", "/api/register", "/api/logout");
+    }
+
+    private void addConcurrencyLimit(InterceptorRegistry registry, MeterRegistry meters,
+                                     ConcurrencyLimitInterceptor.Group group, String... pathPatterns) {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(
+                concurrencyLimit.getInitialLimit(),
+                concurrencyLimit.getMinLimit(),
+                concurrencyLimit.getMaxLimit(),
+                concurrencyLimit.getTolerance(),
+                concurrencyLimit.getLatencyFloor().toNanos());
+        registry.addInterceptor(new ConcurrencyLimitInterceptor(group, limit, concurrencyLimit.getRetryAfter(), meters))
+                .addPathPatterns(pathPatterns);
+    }
+
+    private void addConditionalGetInterceptors(InterceptorRegistry registry, CatalogChangeLog log) {
+        Duration settleTime = readReplicaProperties.stream()
+                .map(ReadReplicaProperties::getReplicaLagTolerance)
+                .findFirst()
+                .orElse(Duration.ZERO);
+        MeterRegistry meters = meterRegistry.getObject();
+        registry.addInterceptor(new ConditionalGetInterceptor(
+                        ConditionalGetInterceptor.Listing.PERKS, log, settleTime, meters))
+                .addPathPatterns("/api/perks", "/api/perks/facets");
+        registry.addInterceptor(new ConditionalGetInterceptor(
+                        ConditionalGetInterceptor.Listing.MEMBERSHIPS, log, settleTime, meters))
+                .addPathPatterns("/api/memberships");
     }
 }
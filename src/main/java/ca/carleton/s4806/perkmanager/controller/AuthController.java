@@ -5,6 +5,7 @@ import ca.carleton.s4806.perkmanager.model.Membership;
 import ca.carleton.s4806.perkmanager.model.RegisterRequest;
 import ca.carleton.s4806.perkmanager.model.User;
 import ca.carleton.s4806.perkmanager.repository.UserRepository;
+import ca.carleton.s4806.perkmanager.service.PasswordHashes;
 import jakarta.servlet.http.HttpSession;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -31,7 +32,8 @@ public class AuthController {
     public ResponseEntity<UserResponse> login(@RequestBody LoginRequest loginRequest, HttpSession session) {
         User user = userRepository.findByUsername(loginRequest.getUsername());
 
-        if (user != null && user.getPassword().equals(loginRequest.getPassword())) {
+        // Accounts restored from a catalog snapshot hold a hashed password
+        if (user != null && PasswordHashes.matches(loginRequest.getPassword(), user.getPassword())) {
             session.setAttribute("user", user);
             return ResponseEntity.ok(toResponse(user));
         }
@@ -2,8 +2,10 @@ package ca.carleton.s4806.perkmanager.controller;
 
 import ca.carleton.s4806.perkmanager.model.Membership;
 import ca.carleton.s4806.perkmanager.repository.MembershipRepository;
+import ca.carleton.s4806.perkmanager.service.CatalogChangeLog;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -24,9 +26,11 @@ import java.util.List;
 public class MembershipController {
 
     private final MembershipRepository membershipRepository;
+    private final CatalogChangeLog changeLog;
 
-    public MembershipController(MembershipRepository membershipRepository) {
+    public MembershipController(MembershipRepository membershipRepository, CatalogChangeLog changeLog) {
         this.membershipRepository = membershipRepository;
+        this.changeLog = changeLog;
     }
 
     /**
@@ -35,6 +39,7 @@ public class MembershipController {
      * @return list of memberships
      */
     @GetMapping
+    @Transactional(readOnly = true)
     public List<Membership> getMemberships() {
         return membershipRepository.findAll(Sort.by(Sort.Direction.ASC, "name"));
     }
@@ -58,6 +63,8 @@ public class MembershipController {
             throw new ResponseStatusException(HttpStatus.CONFLICT, "Membership already exists");
         }
         membership.setName(normalizedName);
-        return membershipRepository.save(membership);
+        Membership saved = membershipRepository.save(membership);
+        changeLog.recordMembershipChange();
+        return saved;
     }
 }
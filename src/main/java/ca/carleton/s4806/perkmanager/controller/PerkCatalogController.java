@@ -0,0 +1,88 @@
+package ca.carleton.s4806.perkmanager.controller;
+
+import ca.carleton.s4806.perkmanager.service.CatalogFormat;
+import ca.carleton.s4806.perkmanager.service.PerkCatalogService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+
+/**
+ * REST controller for bulk export and import of the perk catalog.
+ * <p>
+ * Both endpoints stream, so catalogs of any size can be moved without
+ * holding them in memory.
+ */
+@RestController
+@CrossOrigin
+@RequestMapping("/api/perks")
+public class PerkCatalogController {
+
+    private final PerkCatalogService catalogService;
+
+    public PerkCatalogController(PerkCatalogService catalogService) {
+        this.catalogService = catalogService;
+    }
+
+    /**
+     * Exports every perk.
+     * Responds to HTTP GET requests on "/api/perks/export".
+     *
+     * @param format "csv" (default) or "ndjson"
+     * @return the catalog, written to the response as it is read
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportPerks(
+            @RequestParam(value = "format", required = false) String format) {
+        CatalogFormat catalogFormat = resolveFormat(format, null);
+        String filename = "perks." + catalogFormat.name().toLowerCase();
+        return ResponseEntity.ok()
+                .contentType(catalogFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(out -> catalogService.export(out, catalogFormat));
+    }
+
+    /**
+     * Imports perks from the raw request body.
+     * Responds to HTTP POST requests on "/api/perks/import".
+     * <p>
+     * The format is taken from the {@code format} parameter, or from the
+     * Content-Type header ({@code application/x-ndjson} or {@code text/csv}).
+     * CSV uploads need a header row using the export's column names; the
+     * {@code id} column is ignored. Rows with a past expiry date or an unknown
+     * membership are skipped and reported.
+     *
+     * @param format "csv" or "ndjson", optional
+     * @param request the request whose body holds the catalog
+     * @return counts of imported and rejected rows
+     */
+    @PostMapping("/import")
+    public PerkCatalogService.ImportResult importPerks(
+            @RequestParam(value = "format", required = false) String format,
+            HttpServletRequest request) {
+        CatalogFormat catalogFormat = resolveFormat(format, request.getContentType());
+        try {
+            return catalogService.importCatalog(request.getInputStream(), catalogFormat);
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private CatalogFormat resolveFormat(String format, String contentType) {
+        try {
+            return CatalogFormat.resolve(format, contentType);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+}
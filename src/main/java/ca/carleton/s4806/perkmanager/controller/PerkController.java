@@ -1,15 +1,41 @@
 package ca.carleton.s4806.perkmanager.controller;
 
+import ca.carleton.s4806.perkmanager.config.ReplicaRoutingContext;
 import ca.carleton.s4806.perkmanager.model.Perk;
+import ca.carleton.s4806.perkmanager.model.PerkArchive;
+import ca.carleton.s4806.perkmanager.model.PerkField;
 import ca.carleton.s4806.perkmanager.model.User;
 import ca.carleton.s4806.perkmanager.model.Membership;
+import ca.carleton.s4806.perkmanager.repository.PerkArchiveRepository;
+import ca.carleton.s4806.perkmanager.repository.PerkFilter;
 import ca.carleton.s4806.perkmanager.repository.PerkRepository;
+import ca.carleton.s4806.perkmanager.repository.PerkSpecifications;
 import ca.carleton.s4806.perkmanager.repository.UserRepository;
+import ca.carleton.s4806.perkmanager.service.CatalogChangeLog;
+import ca.carleton.s4806.perkmanager.service.CompactPerkEncoder;
+import ca.carleton.s4806.perkmanager.service.PerkGeoIndex;
+import ca.carleton.s4806.perkmanager.service.PerkListingCache;
+import ca.carleton.s4806.perkmanager.service.PerkVoteStream;
+import ca.carleton.s4806.perkmanager.service.PerkVotedEvent;
+import ca.carleton.s4806.perkmanager.service.RequestCoalescer;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jakarta.servlet.http.HttpSession;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -21,11 +47,25 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * REST controller for managing Perks.
@@ -54,8 +94,32 @@ public class PerkController {
             Map.entry("expirydate", "expiryDate"),
             Map.entry("location", "location"));
 
+    private static final Map<String, Comparator<Perk>> PROPERTY_COMPARATORS = Map.of(
+            "id", nullsFirst(Perk::getId),
+            "title", nullsFirst(Perk::getTitle),
+            "product", nullsFirst(Perk::getProduct),
+            "membership.name", nullsFirst(perk -> perk.getMembership() == null ? null : perk.getMembership().getName()),
+            "upvotes", nullsFirst(Perk::getUpvotes),
+            "downvotes", nullsFirst(Perk::getDownvotes),
+            "expiryDate", nullsFirst(Perk::getExpiryDate),
+            "location", nullsFirst(Perk::getLocation),
+            "score", Comparator.comparingInt(Perk::getScore));
+
+    /** Sort properties that change when a perk is voted on. */
+    private static final List<String> VOTE_PROPERTIES = List.of("upvotes", "downvotes");
+
     private final PerkRepository perkRepository; // Repository for Perk Data operations
+    private final PerkArchiveRepository perkArchiveRepository;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PerkVoteStream voteStream;
+    private final CatalogChangeLog changeLog;
+    private final RequestCoalescer requestCoalescer;
+    private final PerkListingCache listingCache;
+    private final PerkGeoIndex geoIndex;
+    private final CompactPerkEncoder compactEncoder;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
     private final Counter voteCounter;
 
     /**
@@ -63,86 +127,437 @@ public class PerkController {
      *
      * @param perkRepository The repository implementation provided by Spring.
      */
-    public PerkController(PerkRepository perkRepository, UserRepository userRepository, MeterRegistry registry) {
+    public PerkController(PerkRepository perkRepository, PerkArchiveRepository perkArchiveRepository,
+                          UserRepository userRepository, ApplicationEventPublisher eventPublisher,
+                          PerkVoteStream voteStream, CatalogChangeLog changeLog,
+                          RequestCoalescer requestCoalescer, PerkListingCache listingCache, PerkGeoIndex geoIndex,
+                          CompactPerkEncoder compactEncoder, ObjectMapper objectMapper,
+                          PlatformTransactionManager transactionManager, MeterRegistry registry) {
         this.perkRepository = perkRepository;
+        this.perkArchiveRepository = perkArchiveRepository;
         this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.voteStream = voteStream;
+        this.changeLog = changeLog;
+        this.requestCoalescer = requestCoalescer;
+        this.listingCache = listingCache;
+        this.geoIndex = geoIndex;
+        this.compactEncoder = compactEncoder;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
         this.voteCounter = Counter.builder("perk_votes_total")
                 .description("Total votes cast")
                 .register(registry);
     }
 
     /**
-     * Gets a list of all perks.
+     * Gets a list of all active perks.
      * Responds to HTTP GET requests on "/api/perks".
+     * Expired perks are left out unless {@code includeExpired=true}, which also
+     * adds perks that have been moved to the archive.
+     * <p>
+     * {@code fields=id,title,score} returns only those properties of each perk.
+     * Unfiltered listings are projected from the listing cache; filtered ones
+     * select only the matching columns.
+     * {@code compact=true} lists each membership once and refers to it by
+     * {@code membershipId}, see {@link CompactPerkEncoder}; it has no effect with {@code fields=}.
+     * <p>
+     * {@code membershipIds}, {@code product}, {@code location}, {@code expiresBefore},
+     * {@code expiresAfter} and {@code minScore} narrow the list further; see {@link PerkFilter}.
+     * All given criteria are combined into one query.
+     * {@code near=lat,lon} with {@code radiusKm} (default 25, at most 500) keeps the perks whose
+     * coordinates and coverage reach that circle, looked up in {@link PerkGeoIndex}. The matches
+     * are queried with the other criteria in batches and sorted in memory.
+     * <p>
+     * Concurrent requests with the same normalized parameters share one query
+     * and one serialized response.
      *
      * @return A List of all Perk Objects (serialized as JSON)
      */
     @GetMapping
-    public List<Perk> getAllPerks(
+    public ResponseEntity<byte[]> getAllPerks(
             @RequestParam(value = "search", required = false) String searchKeyword,
             @RequestParam(value = "sortBy", required = false) String sortBy,
-            @RequestParam(value = "direction", required = false) String direction) {
+            @RequestParam(value = "direction", required = false) String direction,
+            @RequestParam(value = "includeExpired", defaultValue = "false") boolean includeExpired,
+            @RequestParam(value = "fields", required = false) String fieldList,
+            @RequestParam(value = "membershipIds", required = false) List<Long> membershipIds,
+            @RequestParam(value = "product", required = false) String product,
+            @RequestParam(value = "location", required = false) String location,
+            @RequestParam(value = "expiresBefore", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate expiresBefore,
+            @RequestParam(value = "expiresAfter", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate expiresAfter,
+            @RequestParam(value = "minScore", required = false) Integer minScore,
+            @RequestParam(value = "near", required = false) String nearParam,
+            @RequestParam(value = "radiusKm", defaultValue = "25") double radiusKm,
+            @RequestParam(value = "compact", defaultValue = "false") boolean compact) {
         boolean sortByScore = isScoreSort(sortBy);
         Sort sort = sortByScore ? Sort.unsorted() : resolveSort(sortBy, direction);
-        boolean hasSearch = searchKeyword != null && !searchKeyword.trim().isEmpty();
-        List<Perk> perks;
-
-        if (hasSearch) {
-            if (sort.isUnsorted()) {
-                perks = perkRepository.findByTitleContainingIgnoreCaseOrProductContainingIgnoreCase(
-                        searchKeyword,
-                        searchKeyword);
-            } else {
-                perks = perkRepository.findByTitleContainingIgnoreCaseOrProductContainingIgnoreCase(
-                        searchKeyword,
-                        searchKeyword,
-                        sort);
+        String search = searchKeyword != null && !searchKeyword.trim().isEmpty() ? searchKeyword.toLowerCase() : null;
+        Set<PerkField> fields = parseFields(fieldList);
+        PerkFilter baseFilter = new PerkFilter(membershipIds, product, location, expiresBefore, expiresAfter, minScore);
+        PerkGeoIndex.Near near = parseNear(nearParam, radiusKm);
+        LocalDate today = LocalDate.now();
+        // Read before joining a flight, so a request never shares a query that started before a write it has seen
+        long catalogVersion = changeLog.getVersion();
+
+        String sortKey = sortByScore ? "score:" + isDescending(direction) : sort.toString();
+        boolean voteOrdered = sortByScore || VOTE_PROPERTIES.stream().anyMatch(property -> sort.getOrderFor(property) != null);
+        String key = String.join("|",
+                String.valueOf(search),
+                sortKey,
+                String.valueOf(includeExpired),
+                String.valueOf(fields),
+                String.valueOf(compact),
+                baseFilter.toString(),
+                String.valueOf(near),
+                today.toString(),
+                String.valueOf(catalogVersion),
+                routingKey());
+        return json(requestCoalescer.execute("perks", key, () -> {
+            // Outside the transaction, so a rebuild of the spatial index can pick its own database
+            PerkFilter filter = nearby(baseFilter, near);
+            return readOnlyTransaction.execute(status -> {
+                // Listings that include archived perks are rare and span two tables, so they are not cached.
+                // Neither are filtered ones: they are one indexed query, and any vote can change a minScore result.
+                PerkListingCache.Key cacheKey = includeExpired || !filter.isEmpty()
+                        ? null
+                        : new PerkListingCache.Key(search, sortKey, today);
+                // Uncached sparse listings select only the requested columns; cached ones are projected below,
+                // and so are nearby ones, whose batches are sorted together
+                if (fields != null && cacheKey == null && !includeExpired && filter.ids() == null) {
+                    Sort sparseSort = sortByScore
+                            ? Sort.by(isDescending(direction) ? Sort.Direction.DESC : Sort.Direction.ASC, "score")
+                            : sort;
+                    return toJson(perkRepository.findFields(filters(search, false, today, filter), sparseSort, fields));
+                }
+                List<Perk> perks = cacheKey == null ? null : listingCache.get(cacheKey);
+                if (perks == null) {
+                    long token = listingCache.beginLoad();
+                    perks = findPerks(search, sort, includeExpired, today, filter);
+                    if (sortByScore) {
+                        sortPerksByScore(perks, direction);
+                    }
+                    if (cacheKey != null) {
+                        listingCache.put(cacheKey, perks, voteOrdered, token);
+                    }
+                }
+                return fields == null ? toJson(perks, compact) : toJson(project(perks, fields));
+            });
+        }));
+    }
+
+    /**
+     * Streams the perk listing instead of building it in memory.
+     * Responds to HTTP GET requests on "/api/perks?stream=true", with the same
+     * parameters and JSON array as {@link #getAllPerks}.
+     * <p>
+     * Rows are read through a database cursor and written to the response as
+     * they arrive, so memory use does not grow with the result. This is meant
+     * for exports and large unfiltered listings; streamed requests skip the
+     * listing cache and request coalescing.
+     *
+     * @return the perks as a chunked JSON array
+     */
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamPerks(
+            @RequestParam(value = "search", required = false) String searchKeyword,
+            @RequestParam(value = "sortBy", required = false) String sortBy,
+            @RequestParam(value = "direction", required = false) String direction,
+            @RequestParam(value = "includeExpired", defaultValue = "false") boolean includeExpired,
+            @RequestParam(value = "fields", required = false) String fieldList,
+            @RequestParam(value = "membershipIds", required = false) List<Long> membershipIds,
+            @RequestParam(value = "product", required = false) String product,
+            @RequestParam(value = "location", required = false) String location,
+            @RequestParam(value = "expiresBefore", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate expiresBefore,
+            @RequestParam(value = "expiresAfter", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate expiresAfter,
+            @RequestParam(value = "minScore", required = false) Integer minScore,
+            @RequestParam(value = "near", required = false) String nearParam,
+            @RequestParam(value = "radiusKm", defaultValue = "25") double radiusKm) {
+        Sort sort = isScoreSort(sortBy)
+                ? Sort.by(isDescending(direction) ? Sort.Direction.DESC : Sort.Direction.ASC, "score")
+                : resolveSort(sortBy, direction);
+        String search = searchKeyword != null && !searchKeyword.trim().isEmpty() ? searchKeyword.toLowerCase() : null;
+        Set<PerkField> fields = parseFields(fieldList);
+        PerkFilter baseFilter = new PerkFilter(membershipIds, product, location, expiresBefore, expiresAfter, minScore);
+        PerkGeoIndex.Near near = parseNear(nearParam, radiusKm);
+        LocalDate today = LocalDate.now();
+        // Looked up before the body, which runs without the request's routing
+        PerkFilter filter = nearby(baseFilter, near);
+        // The body is written on another thread, which must read from the same database
+        boolean pinned = ReplicaRoutingContext.isPinnedToPrimary();
+
+        StreamingResponseBody body = out -> {
+            if (pinned) {
+                ReplicaRoutingContext.pinToPrimary();
+            }
+            try {
+                readOnlyTransaction.executeWithoutResult(status -> {
+                    try (Stream<Perk> perks = streamPerks(search, sort, includeExpired, today, filter)) {
+                        writeJsonArray(out, perks, fields);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } finally {
+                if (pinned) {
+                    ReplicaRoutingContext.clear();
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private Stream<Perk> streamPerks(String search, Sort sort, boolean includeExpired, LocalDate today,
+                                     PerkFilter filter) {
+        if (filter.ids() != null) {
+            return findNearby(search, sort, today, filter).stream();
+        }
+        Stream<Perk> perks = perkRepository.streamAll(filters(search, includeExpired, today, filter), sort);
+        if (!includeExpired) {
+            return perks;
+        }
+        Stream<Perk> archived = perkArchiveRepository.streamAll(archiveFilters(search, filter), sort)
+                .map(PerkArchive::toPerk);
+        return sort.isSorted() ? merge(perks, archived, comparatorFor(sort)) : Stream.concat(perks, archived);
+    }
+
+    /**
+     * Merges two streams that are each already in order.
+     */
+    private static Stream<Perk> merge(Stream<Perk> first, Stream<Perk> second, Comparator<Perk> comparator) {
+        Iterator<Perk> left = first.iterator();
+        Iterator<Perk> right = second.iterator();
+        Iterator<Perk> merged = new Iterator<>() {
+            private Perk nextLeft;
+            private Perk nextRight;
+
+            @Override
+            public boolean hasNext() {
+                return nextLeft != null || nextRight != null || left.hasNext() || right.hasNext();
+            }
+
+            @Override
+            public Perk next() {
+                if (nextLeft == null && left.hasNext()) {
+                    nextLeft = left.next();
+                }
+                if (nextRight == null && right.hasNext()) {
+                    nextRight = right.next();
+                }
+                if (nextLeft == null && nextRight == null) {
+                    throw new NoSuchElementException();
+                }
+                Perk next;
+                if (nextRight == null || (nextLeft != null && comparator.compare(nextLeft, nextRight) <= 0)) {
+                    next = nextLeft;
+                    nextLeft = null;
+                } else {
+                    next = nextRight;
+                    nextRight = null;
+                }
+                return next;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED), false)
+                .onClose(() -> {
+                    try (first) {
+                        second.close();
+                    }
+                });
+    }
+
+    private void writeJsonArray(OutputStream out, Stream<Perk> perks, Set<PerkField> fields) throws IOException {
+        // One flush per row would send one chunk per row; let the generator buffer instead
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            Iterator<Perk> rows = perks.iterator();
+            while (rows.hasNext()) {
+                Perk perk = rows.next();
+                writer.writeValue(generator, fields == null ? perk : PerkField.project(perk, fields));
             }
-        } else {
-            perks = sort.isUnsorted()
-                    ? perkRepository.findAll()
-                    : perkRepository.findAll(sort);
+            generator.writeEndArray();
         }
+    }
 
-        if (sortByScore) {
-            sortPerksByScore(perks, direction);
+    private List<Perk> findPerks(String search, Sort sort, boolean includeExpired, LocalDate today,
+                                 PerkFilter filter) {
+        if (filter.ids() != null) {
+            return findNearby(search, sort, today, filter);
         }
+        List<Perk> perks = new ArrayList<>(perkRepository.findAll(filters(search, includeExpired, today, filter), sort));
+
+        if (includeExpired) {
+            for (PerkArchive archived : perkArchiveRepository.findAll(archiveFilters(search, filter), sort)) {
+                perks.add(archived.toPerk());
+            }
+            // Both lists are already in order, so sorting merges two runs
+            if (sort.isSorted()) {
+                perks.sort(comparatorFor(sort));
+            }
+        }
+        return perks;
+    }
 
+    /**
+     * Lists the perks matched by the spatial index, querying their IDs in batches.
+     * Archived perks are not in the index, so only live perks are read.
+     */
+    private List<Perk> findNearby(String search, Sort sort, LocalDate today, PerkFilter filter) {
+        List<Perk> perks = new ArrayList<>();
+        for (PerkFilter batch : filter.idBatches(geoIndex.getIdBatchSize())) {
+            perks.addAll(perkRepository.findAll(filters(search, false, today, batch), sort));
+        }
+        // Each batch is in order, but the batches are not
+        if (sort.isSorted()) {
+            perks.sort(comparatorFor(sort));
+        }
         return perks;
+    }
+
+    private static Specification<Perk> filters(String search, boolean includeExpired, LocalDate today,
+                                               PerkFilter filter) {
+        List<Specification<Perk>> filters = new ArrayList<>();
+        if (!includeExpired) {
+            filters.add(PerkSpecifications.active(today));
+        }
+        if (search != null) {
+            filters.add(PerkSpecifications.titleOrProductContains(search));
+        }
+        filters.add(filter.forPerks());
+        return Specification.allOf(filters);
+    }
 
+    private static Specification<PerkArchive> archiveFilters(String search, PerkFilter filter) {
+        Specification<PerkArchive> archiveFilter = filter.forArchive();
+        return search != null
+                ? archiveFilter.and(PerkSpecifications.titleOrProductContains(search))
+                : archiveFilter;
     }
 
     /**
      * Gets a list of recommended perks for the currently logged-in user.
      * Responds to HTTP GET requests on "/api/perks/recommended".
+     * Supports {@code fields=} and {@code compact=true} like {@link #getAllPerks}.
+     * Concurrent requests for the same user share one query and response.
      *
      * @param session The HTTP session to retrieve the logged-in user.
      * @return A List of recommended Perk Objects.
      */
     @GetMapping("/recommended")
-    public List<Perk> getRecommendedPerks(HttpSession session) {
+    public ResponseEntity<byte[]> getRecommendedPerks(
+            HttpSession session,
+            @RequestParam(value = "fields", required = false) String fieldList,
+            @RequestParam(value = "compact", defaultValue = "false") boolean compact) {
+        Set<PerkField> fields = parseFields(fieldList);
+        boolean compactShape = compact && fields == null;
         User sessionUser = (User) session.getAttribute("user");
         if (sessionUser == null) {
-            return List.of(); // Return empty list if no user is logged in
+            return json(toJson(List.of(), compactShape)); // Return empty list if no user is logged in
         }
 
         Long userId = sessionUser.getId();
         if (userId == null) {
-            return List.of();
+            return json(toJson(List.of(), compactShape));
         }
 
+        String key = userId + "|" + fields + "|" + compactShape + "|" + LocalDate.now()
+                + "|" + changeLog.getVersion() + "|" + routingKey();
+        return json(requestCoalescer.execute("recommended", key, () -> readOnlyTransaction.execute(status -> {
+            Specification<Perk> filter = recommendedFilter(userId);
+            if (filter == null) {
+                return toJson(List.of(), compactShape);
+            }
+            return fields == null
+                    ? toJson(perkRepository.findAll(filter), compactShape)
+                    : toJson(perkRepository.findFields(filter, Sort.unsorted(), fields));
+        })));
+    }
+
+    /**
+     * Builds the filter for a user's recommended perks.
+     *
+     * @return the filter, or null if the user has no memberships
+     */
+    private Specification<Perk> recommendedFilter(Long userId) {
         // Fetch fresh user data to ensure we have the latest memberships
         User user = userRepository.findById(userId).orElse(null);
         if (user == null) {
-            return List.of();
+            return null;
         }
 
         List<Membership> memberships = user.getMemberships();
         if (memberships == null || memberships.isEmpty()) {
-            return List.of();
+            return null;
         }
 
-        return perkRepository.findByMembershipIn(memberships);
+        return Specification.allOf(
+                PerkSpecifications.active(LocalDate.now()),
+                PerkSpecifications.membershipIn(memberships));
+    }
+
+    /**
+     * Gets the changes to the perk catalog since a version the client has seen.
+     * Responds to HTTP GET requests on "/api/perks/changes".
+     * <p>
+     * Clients keep the returned {@code version} and pass it as {@code since} on
+     * the next call. When the log no longer reaches back that far,
+     * {@code fullResync} is true and {@code perks} holds every active perk instead.
+     *
+     * @param since the last catalog version the client has seen
+     * @return the changes since that version, or the full list of active perks
+     */
+    @GetMapping("/changes")
+    public CatalogChanges getChanges(@RequestParam("since") long since) {
+        CatalogChangeLog.Delta delta = changeLog.changesSince(since);
+        if (!delta.fullResync()) {
+            return new CatalogChanges(delta.version(), false, delta.changes(), null);
+        }
+        // Read the list after taking the version, and from the primary, so it
+        // already contains every change up to that version
+        boolean pinned = ReplicaRoutingContext.isPinnedToPrimary();
+        ReplicaRoutingContext.pinToPrimary();
+        try {
+            List<Perk> perks = perkRepository.findAll(PerkSpecifications.active(LocalDate.now()));
+            return new CatalogChanges(delta.version(), true, List.of(), perks);
+        } finally {
+            if (!pinned) {
+                ReplicaRoutingContext.clear();
+            }
+        }
+    }
+
+    /**
+     * Response of {@code GET /api/perks/changes}.
+     *
+     * @param version the catalog version to pass as {@code since} next time
+     * @param fullResync whether the client must replace its list with {@code perks}
+     * @param changes the changes in version order, when not resyncing
+     * @param perks every active perk, when resyncing
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record CatalogChanges(long version, boolean fullResync,
+                                 List<CatalogChangeLog.Change> changes, List<Perk> perks) {
+    }
+
+    /**
+     * Streams live vote counts as Server-Sent Events.
+     * Responds to HTTP GET requests on "/api/perks/stream".
+     * <p>
+     * Each "votes" event carries a JSON array of {@code {perkId, upvotes, downvotes}}
+     * for the perks voted on since the previous event.
+     *
+     * @return the event stream
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamVotes() {
+        return voteStream.subscribe();
     }
 
     /**
@@ -161,7 +576,11 @@ public class PerkController {
         perk.setUpvotes((currentUpvotes == null ? 0 : currentUpvotes) + 1);
         voteCounter.increment();
 
-        return perkRepository.save(perk);
+        Perk saved = perkRepository.save(perk);
+        changeLog.recordVoted(saved);
+        listingCache.onVoted(saved.getId());
+        eventPublisher.publishEvent(new PerkVotedEvent(saved.getId(), saved.getUpvotes(), saved.getDownvotes()));
+        return saved;
     }
 
     /**
@@ -180,7 +599,11 @@ public class PerkController {
         perk.setDownvotes((currentDownvotes == null ? 0 : currentDownvotes) + 1);
         voteCounter.increment();
 
-        return perkRepository.save(perk);
+        Perk saved = perkRepository.save(perk);
+        changeLog.recordVoted(saved);
+        listingCache.onVoted(saved.getId());
+        eventPublisher.publishEvent(new PerkVotedEvent(saved.getId(), saved.getUpvotes(), saved.getDownvotes()));
+        return saved;
     }
 
     /**
@@ -220,15 +643,16 @@ public class PerkController {
         if (perk.getDownvotes() == null)
             perk.setDownvotes(0);
 
-        if (perk.getExpiryDate() != null) {
-            LocalDate today = LocalDate.now();
-            if (perk.getExpiryDate().isBefore(today)) {
-                throw new ResponseStatusException(
-                        HttpStatus.BAD_REQUEST,
-                        "Expiry date cannot be in the past.");
-            }
+        if (perk.isExpiredOn(LocalDate.now())) {
+            throw new ResponseStatusException(
+                    HttpStatus.BAD_REQUEST,
+                    "Expiry date cannot be in the past.");
         }
-        return perkRepository.save(perk);
+        validateCoordinates(perk);
+        Perk saved = perkRepository.save(perk);
+        changeLog.recordCreated(saved);
+        listingCache.onCreated(saved);
+        return saved;
     }
 
     /**
@@ -245,6 +669,8 @@ public class PerkController {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Perk not found");
         }
         perkRepository.deleteById(id);
+        changeLog.recordDeleted(List.of(id));
+        listingCache.onDeleted(id);
     }
 
     private Sort resolveSort(String sortBy, String direction) {
@@ -264,6 +690,100 @@ public class PerkController {
         return Sort.by(sortDirection, property);
     }
 
+    /**
+     * Builds an in-memory comparator matching a sort from {@link #resolveSort}.
+     */
+    private Comparator<Perk> comparatorFor(Sort sort) {
+        Comparator<Perk> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<Perk> next = PROPERTY_COMPARATORS.get(order.getProperty());
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator;
+    }
+
+    private static <T extends Comparable<? super T>> Comparator<Perk> nullsFirst(Function<Perk, T> key) {
+        return Comparator.comparing(key, Comparator.nullsFirst(Comparator.naturalOrder()));
+    }
+
+    /**
+     * Requests pinned to the primary must not share results read from a replica.
+     */
+    private static String routingKey() {
+        return ReplicaRoutingContext.isPinnedToPrimary() ? "primary" : "default";
+    }
+
+    private static PerkGeoIndex.Near parseNear(String near, double radiusKm) {
+        if (near == null || near.isBlank()) {
+            return null;
+        }
+        try {
+            return PerkGeoIndex.Near.parse(near, radiusKm);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private static void validateCoordinates(Perk perk) {
+        String error = perk.coordinateError();
+        if (error != null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, error);
+        }
+    }
+
+    /**
+     * Restricts a filter to the perks the spatial index finds near a location.
+     * Archived perks are not in the index, so they never match.
+     */
+    private PerkFilter nearby(PerkFilter filter, PerkGeoIndex.Near near) {
+        return near == null ? filter : filter.withIds(geoIndex.within(near));
+    }
+
+    private static Set<PerkField> parseFields(String fieldList) {
+        if (fieldList == null || fieldList.isBlank()) {
+            return null;
+        }
+        try {
+            return PerkField.parse(fieldList);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private static List<?> project(List<Perk> perks, Set<PerkField> fields) {
+        if (fields == null) {
+            return perks;
+        }
+        List<Map<String, Object>> rows = new ArrayList<>(perks.size());
+        for (Perk perk : perks) {
+            rows.add(PerkField.project(perk, fields));
+        }
+        return rows;
+    }
+
+    private byte[] toJson(List<?> perks) {
+        try {
+            return objectMapper.writeValueAsBytes(perks);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private byte[] toJson(List<Perk> perks, boolean compact) {
+        return compact ? compactEncoder.encode(perks) : toJson(perks);
+    }
+
+    private static ResponseEntity<byte[]> json(byte[] body) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    private static boolean isDescending(String direction) {
+        return direction != null && direction.equalsIgnoreCase("desc");
+    }
+
     private boolean isScoreSort(String sortBy) {
         return sortBy != null && sortBy.trim().equalsIgnoreCase("score");
     }
@@ -274,7 +794,7 @@ public class PerkController {
         }
 
         Comparator<Perk> comparator = Comparator.comparingInt(Perk::getScore);
-        if (direction != null && direction.equalsIgnoreCase("desc")) {
+        if (isDescending(direction)) {
             comparator = comparator.reversed();
         }
         perks.sort(comparator);
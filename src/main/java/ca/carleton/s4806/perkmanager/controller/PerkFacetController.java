@@ -0,0 +1,41 @@
+package ca.carleton.s4806.perkmanager.controller;
+
+import ca.carleton.s4806.perkmanager.service.PerkFacetIndex;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+
+/**
+ * REST controller for perk facet counts, used to build listing filters.
+ * <p>
+ * Counts are served from {@link PerkFacetIndex}, so requests do not query
+ * the perk table.
+ */
+@RestController
+@CrossOrigin
+@RequestMapping("/api/perks")
+public class PerkFacetController {
+
+    private final PerkFacetIndex facetIndex;
+
+    public PerkFacetController(PerkFacetIndex facetIndex) {
+        this.facetIndex = facetIndex;
+    }
+
+    /**
+     * Counts the active perks per product, membership and location.
+     * Responds to HTTP GET requests on "/api/perks/facets".
+     *
+     * @param search optional keyword; counts only perks whose title or product
+     *               contains it, as {@code GET /api/perks?search=} would list
+     * @return the counts, most common values first
+     */
+    @GetMapping("/facets")
+    public PerkFacetIndex.Facets getFacets(@RequestParam(value = "search", required = false) String search) {
+        return facetIndex.facets(search, LocalDate.now());
+    }
+}
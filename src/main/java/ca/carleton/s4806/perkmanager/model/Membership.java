@@ -1,6 +1,8 @@
 package ca.carleton.s4806.perkmanager.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 /**
  * Represents a Membership entity in the Perk Manager application.
@@ -11,10 +13,12 @@ import jakarta.persistence.*;
  * @version 1.0
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "membership")
 public class Membership {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledSequence(name = "membership_seq")
     private Long id; // Unique identifier for the membership
 
     private String name; // Name of the membership (Ex. "Visa", "Air Miles")
@@ -1,6 +1,8 @@
 package ca.carleton.s4806.perkmanager.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDate;
 
 /**
@@ -11,10 +13,20 @@ import java.time.LocalDate;
  * @version 2.1
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "perk")
+@Table(indexes = {
+        @Index(name = "idx_perk_expiry_date", columnList = "expiry_date"),
+        @Index(name = "idx_perk_active_until", columnList = "active_until"),
+        // Equality filter first, then the "not expired" range every live listing applies
+        @Index(name = "idx_perk_membership_active", columnList = "membership_id, active_until"),
+        @Index(name = "idx_perk_product_active", columnList = "product, active_until"),
+        @Index(name = "idx_perk_location_active", columnList = "location, active_until")
+})
 public class Perk {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @PooledSequence(name = "perk_seq")
     private Long id; // Unique identifier for the perk
 
     private String title; // Title or name of the perk
@@ -34,9 +46,22 @@ public class Perk {
 
     private String location; // Geographic location where the perk is valid (e.g., "Ottawa, ON")
 
+    private Double latitude; // Coordinates of the place the perk applies to, if it is tied to one
+
+    private Double longitude;
+
+    @Column(name = "coverage_km")
+    private Double coverageKm; // How far from the coordinates the perk still applies, e.g. a whole city
+
     @Column(name = "expiry_date")
     private LocalDate expiryDate; // Expiry date of the perk
 
+    // Computed by the database: the expiry date, or a far-future date when there is none.
+    // Lets "not expired" be a single indexed range check instead of "expiry_date >= ? OR expiry_date IS NULL".
+    @Column(name = "active_until", insertable = false, updatable = false,
+            columnDefinition = "date generated always as (coalesce(expiry_date, date '9999-12-31'))")
+    private LocalDate activeUntil;
+
     /**
      * Default constructor required by JPA.
      */
@@ -209,6 +234,87 @@ public class Perk {
         this.location = location;
     }
 
+    /**
+     * Gets the latitude of the place this perk applies to.
+     *
+     * @return the latitude in degrees, or null if the perk has no coordinates
+     */
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * Sets the latitude of the place this perk applies to.
+     *
+     * @param latitude the latitude in degrees
+     */
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    /**
+     * Gets the longitude of the place this perk applies to.
+     *
+     * @return the longitude in degrees, or null if the perk has no coordinates
+     */
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * Sets the longitude of the place this perk applies to.
+     *
+     * @param longitude the longitude in degrees
+     */
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    /**
+     * Gets how far from its coordinates this perk applies.
+     *
+     * @return the coverage radius in kilometres, or null for the point only
+     */
+    public Double getCoverageKm() {
+        return coverageKm;
+    }
+
+    /**
+     * Sets how far from its coordinates this perk applies (Ex. 30 for a city).
+     *
+     * @param coverageKm the coverage radius in kilometres
+     */
+    public void setCoverageKm(Double coverageKm) {
+        this.coverageKm = coverageKm;
+    }
+
+    /**
+     * Checks whether this perk has both coordinates.
+     *
+     * @return true if it can be found by location
+     */
+    public boolean hasCoordinates() {
+        return latitude != null && longitude != null;
+    }
+
+    /**
+     * Checks the coordinates and coverage, as required when a perk is created or imported.
+     *
+     * @return why they are invalid, or null if they are valid or absent
+     */
+    public String coordinateError() {
+        if ((latitude == null) != (longitude == null)) {
+            return "Latitude and longitude must be given together.";
+        }
+        if (hasCoordinates() && !(Math.abs(latitude) <= 90 && Math.abs(longitude) <= 180)) {
+            return "Coordinates are outside the valid latitude/longitude range.";
+        }
+        if (coverageKm != null && !(coverageKm >= 0)) {
+            return "Coverage cannot be negative.";
+        }
+        return null;
+    }
+
     /**
      * Gets the expiry date of this perk.
      *
@@ -227,6 +333,17 @@ public class Perk {
         this.expiryDate = expiryDate;
     }
 
+    /**
+     * Checks whether this perk has expired as of the given date.
+     * A perk without an expiry date never expires.
+     *
+     * @param today the date to check against
+     * @return true if the expiry date is before {@code today}
+     */
+    public boolean isExpiredOn(LocalDate today) {
+        return expiryDate != null && expiryDate.isBefore(today);
+    }
+
     /**
      * Gets the overall score of the perk (upvotes minus downvotes).
      * @return the score
@@ -0,0 +1,121 @@
+package ca.carleton.s4806.perkmanager.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * An expired perk moved out of the live {@code perk} table by the archival job.
+ * Keeps the original perk ID so archived perks can still be referenced.
+ */
+@Entity
+@Table(name = "perk_archive")
+public class PerkArchive {
+
+    @Id
+    private Long id; // ID the perk had in the live table
+
+    private String title;
+
+    @Column(length = 1000)
+    private String description;
+
+    private String product;
+
+    @ManyToOne
+    @JoinColumn(name = "membership_id")
+    private Membership membership;
+
+    private Integer upvotes;
+
+    private Integer downvotes;
+
+    private String location;
+
+    private Double latitude;
+
+    private Double longitude;
+
+    @Column(name = "coverage_km")
+    private Double coverageKm;
+
+    @Column(name = "expiry_date")
+    private LocalDate expiryDate;
+
+    @Column(name = "archived_on")
+    private LocalDate archivedOn; // Day the perk was moved to the archive
+
+    /**
+     * Default constructor required by JPA.
+     */
+    public PerkArchive() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getProduct() {
+        return product;
+    }
+
+    public Membership getMembership() {
+        return membership;
+    }
+
+    public Integer getUpvotes() {
+        return upvotes;
+    }
+
+    public Integer getDownvotes() {
+        return downvotes;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public Double getCoverageKm() {
+        return coverageKm;
+    }
+
+    public LocalDate getExpiryDate() {
+        return expiryDate;
+    }
+
+    public LocalDate getArchivedOn() {
+        return archivedOn;
+    }
+
+    /**
+     * Converts this archived perk back to a (detached) {@link Perk}, so it can
+     * be returned alongside live perks.
+     *
+     * @return a perk with the same ID and values
+     */
+    public Perk toPerk() {
+        Perk perk = new Perk(title, description, product, membership, expiryDate, location);
+        perk.setId(id);
+        perk.setUpvotes(upvotes);
+        perk.setDownvotes(downvotes);
+        perk.setLatitude(latitude);
+        perk.setLongitude(longitude);
+        perk.setCoverageKm(coverageKm);
+        return perk;
+    }
+}
@@ -0,0 +1,38 @@
+package ca.carleton.s4806.perkmanager.model;
+
+import java.time.LocalDate;
+
+/**
+ * One perk as it appears in a catalog export or import file (CSV or NDJSON).
+ * The membership is flattened to its id and name so rows can be written and
+ * read without loading Membership entities.
+ *
+ * @param id the perk ID (ignored on import)
+ * @param title the title of the perk
+ * @param description the description of the perk
+ * @param product the product this perk applies to
+ * @param membershipId the ID of the required membership
+ * @param membershipName the name of the required membership, used when no ID is given
+ * @param upvotes the number of upvotes
+ * @param downvotes the number of downvotes
+ * @param location the geographic location where the perk is valid
+ * @param latitude the latitude in degrees, or null if the perk has no coordinates
+ * @param longitude the longitude in degrees, or null if the perk has no coordinates
+ * @param coverageKm the coverage radius in kilometres, or null for the point only
+ * @param expiryDate the expiry date of the perk
+ */
+public record PerkCatalogRow(
+        Long id,
+        String title,
+        String description,
+        String product,
+        Long membershipId,
+        String membershipName,
+        Integer upvotes,
+        Integer downvotes,
+        String location,
+        Double latitude,
+        Double longitude,
+        Double coverageKm,
+        LocalDate expiryDate) {
+}
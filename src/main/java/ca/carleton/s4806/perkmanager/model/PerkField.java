@@ -0,0 +1,115 @@
+package ca.carleton.s4806.perkmanager.model;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Perk fields a client can ask for with {@code fields=} on the list endpoints.
+ * Each field is named as in the full {@link Perk} JSON, so sparse responses
+ * have the same shape, just with fewer properties.
+ */
+public enum PerkField {
+    ID("id", Perk::getId),
+    TITLE("title", Perk::getTitle),
+    DESCRIPTION("description", Perk::getDescription),
+    PRODUCT("product", Perk::getProduct),
+    MEMBERSHIP("membership", perk -> membership(perk.getMembership())),
+    UPVOTES("upvotes", Perk::getUpvotes),
+    DOWNVOTES("downvotes", Perk::getDownvotes),
+    LOCATION("location", Perk::getLocation),
+    LATITUDE("latitude", Perk::getLatitude),
+    LONGITUDE("longitude", Perk::getLongitude),
+    COVERAGE_KM("coverageKm", Perk::getCoverageKm),
+    EXPIRY_DATE("expiryDate", Perk::getExpiryDate),
+    SCORE("score", Perk::getScore);
+
+    private final String jsonName;
+    private final Function<Perk, Object> getter;
+
+    PerkField(String jsonName, Function<Perk, Object> getter) {
+        this.jsonName = jsonName;
+        this.getter = getter;
+    }
+
+    /**
+     * Gets the property name used in JSON.
+     *
+     * @return the JSON property name
+     */
+    public String getJsonName() {
+        return jsonName;
+    }
+
+    /**
+     * Parses a comma-separated field list, ignoring case and blanks.
+     *
+     * @param fields the field list, e.g. {@code "id,title,score"}
+     * @return the requested fields, in declaration order
+     * @throws IllegalArgumentException if a field is unknown or none is given
+     */
+    public static Set<PerkField> parse(String fields) {
+        Set<PerkField> parsed = EnumSet.noneOf(PerkField.class);
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            PerkField field = null;
+            for (PerkField candidate : values()) {
+                if (candidate.jsonName.equalsIgnoreCase(trimmed)) {
+                    field = candidate;
+                }
+            }
+            if (field == null) {
+                throw new IllegalArgumentException("Unknown field: " + trimmed.toLowerCase(Locale.ROOT));
+            }
+            parsed.add(field);
+        }
+        if (parsed.isEmpty()) {
+            throw new IllegalArgumentException("No fields requested");
+        }
+        return Collections.unmodifiableSet(parsed);
+    }
+
+    /**
+     * Copies the requested fields of a loaded perk into a map, for results
+     * that could not be projected in the query.
+     *
+     * @param perk the perk
+     * @param fields the fields to copy
+     * @return the sparse perk, keyed by JSON property name
+     */
+    public static Map<String, Object> project(Perk perk, Set<PerkField> fields) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (PerkField field : fields) {
+            row.put(field.jsonName, field.getter.apply(perk));
+        }
+        return row;
+    }
+
+    /**
+     * Builds the nested membership object of a sparse perk.
+     *
+     * @param id the membership ID
+     * @param name the membership name
+     * @return the membership as a map, or null if the perk has none
+     */
+    public static Map<String, Object> membership(Long id, String name) {
+        if (id == null) {
+            return null;
+        }
+        Map<String, Object> membership = new LinkedHashMap<>();
+        membership.put("id", id);
+        membership.put("name", name);
+        return membership;
+    }
+
+    private static Map<String, Object> membership(Membership membership) {
+        return membership == null ? null : membership(membership.getId(), membership.getName());
+    }
+}
@@ -0,0 +1,27 @@
+package ca.carleton.s4806.perkmanager.model;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an entity identifier as generated from a database sequence using
+ * Hibernate's pooled optimizer.
+ * The allocation size is shared by every entity and can be changed through
+ * the {@code perkmanager.id.allocation_size} Hibernate property.
+ */
+@IdGeneratorType(PooledSequenceGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface PooledSequence {
+
+    /**
+     * Gets the name of the backing database sequence.
+     *
+     * @return the sequence name
+     */
+    String name();
+}
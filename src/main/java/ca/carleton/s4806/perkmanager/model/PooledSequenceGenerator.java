@@ -0,0 +1,63 @@
+package ca.carleton.s4806.perkmanager.model;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * Sequence generator backing {@link PooledSequence}.
+ * Hands out identifiers in blocks so Hibernate can batch inserts instead of
+ * doing one round trip per entity, as it has to with identity columns.
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    /**
+     * Hibernate property (settable via {@code spring.jpa.properties.*}) holding the allocation size.
+     */
+    public static final String ALLOCATION_SIZE_SETTING = "perkmanager.id.allocation_size";
+
+    /**
+     * Allocation size used when {@link #ALLOCATION_SIZE_SETTING} is not set.
+     */
+    public static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    private final String sequenceName;
+
+    /**
+     * Constructs the generator for the annotated identifier.
+     *
+     * @param config the annotation placed on the identifier
+     */
+    public PooledSequenceGenerator(PooledSequence config) {
+        this.sequenceName = config.name();
+    }
+
+    @Override
+    public void configure(Type type, Properties parameters, ServiceRegistry serviceRegistry) throws MappingException {
+        parameters.setProperty(SEQUENCE_PARAM, sequenceName);
+        parameters.setProperty(INCREMENT_PARAM, String.valueOf(allocationSize(serviceRegistry)));
+        parameters.setProperty(OPT_PARAM, StandardOptimizerDescriptor.POOLED.getExternalName());
+        super.configure(type, parameters, serviceRegistry);
+    }
+
+    /**
+     * Resolves the configured allocation size.
+     *
+     * @param serviceRegistry the Hibernate service registry
+     * @return the allocation size, never less than 1
+     */
+    public static int allocationSize(ServiceRegistry serviceRegistry) {
+        Object value = serviceRegistry.requireService(ConfigurationService.class)
+                .getSettings()
+                .get(ALLOCATION_SIZE_SETTING);
+        if (value == null) {
+            return DEFAULT_ALLOCATION_SIZE;
+        }
+        return Math.max(1, Integer.parseInt(value.toString().trim()));
+    }
+}
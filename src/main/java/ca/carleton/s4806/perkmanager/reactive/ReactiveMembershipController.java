@@ -0,0 +1,36 @@
+package ca.carleton.s4806.perkmanager.reactive;
+
+import ca.carleton.s4806.perkmanager.model.Membership;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+/**
+ * Reactive counterpart of the membership listing of
+ * {@link ca.carleton.s4806.perkmanager.controller.MembershipController}.
+ */
+@RestController
+@CrossOrigin
+@Profile("reactive")
+@RequestMapping("/api/memberships")
+public class ReactiveMembershipController {
+
+    private final ReactivePerkRepository perkRepository;
+
+    public ReactiveMembershipController(ReactivePerkRepository perkRepository) {
+        this.perkRepository = perkRepository;
+    }
+
+    /**
+     * Returns all memberships sorted alphabetically by name.
+     *
+     * @return the memberships
+     */
+    @GetMapping
+    public Flux<Membership> getMemberships() {
+        return perkRepository.findMemberships();
+    }
+}
@@ -0,0 +1,56 @@
+package ca.carleton.s4806.perkmanager.reactive;
+
+import ca.carleton.s4806.perkmanager.model.Perk;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+
+/**
+ * Reactive counterpart of the perk read endpoints of
+ * {@link ca.carleton.s4806.perkmanager.controller.PerkController}.
+ * <p>
+ * Responses are a JSON array by default, written element by element as rows
+ * arrive, or one perk per line with {@code Accept: application/x-ndjson}.
+ * Either way the server only reads further rows as the client takes them.
+ * <p>
+ * There is no {@code /recommended}: it depends on the logged-in user, and
+ * this node does not share the main application's sessions.
+ */
+@RestController
+@CrossOrigin
+@Profile("reactive")
+@RequestMapping("/api/perks")
+public class ReactivePerkController {
+
+    private final ReactivePerkRepository perkRepository;
+
+    public ReactivePerkController(ReactivePerkRepository perkRepository) {
+        this.perkRepository = perkRepository;
+    }
+
+    /**
+     * Lists the active perks.
+     * Responds to HTTP GET requests on "/api/perks".
+     *
+     * @param search text the title or product must contain, ignoring case
+     * @param sortBy the field to sort by, as on the main application
+     * @param direction "asc" or "desc"
+     * @return the perks
+     */
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Perk> getAllPerks(
+            @RequestParam(value = "search", required = false) String search,
+            @RequestParam(value = "sortBy", required = false) String sortBy,
+            @RequestParam(value = "direction", required = false) String direction) {
+        String keyword = search != null && !search.trim().isEmpty() ? search : null;
+        boolean descending = direction != null && direction.equalsIgnoreCase("desc");
+        return perkRepository.findActive(keyword, sortBy, descending, LocalDate.now());
+    }
+}
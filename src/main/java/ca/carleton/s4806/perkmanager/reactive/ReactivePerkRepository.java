@@ -0,0 +1,140 @@
+package ca.carleton.s4806.perkmanager.reactive;
+
+import ca.carleton.s4806.perkmanager.model.Membership;
+import ca.carleton.s4806.perkmanager.model.Perk;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Reads perks and memberships through R2DBC for the reactive read API.
+ * <p>
+ * Queries are plain SQL over the tables the main application maps with JPA,
+ * mirroring its listing rules: only active perks (by the generated
+ * {@code active_until} column), search on title or product, and the same
+ * {@code sortBy} keys. Rows are mapped onto the shared {@link Perk} and
+ * {@link Membership} classes so responses have the same JSON shape.
+ * <p>
+ * Results are requested from the database {@code fetch-size} rows at a time
+ * as the subscriber asks for more, so a slow client holds back the query
+ * instead of buffering the whole listing.
+ */
+@Repository
+@Profile("reactive")
+public class ReactivePerkRepository {
+
+    /** The {@code sortBy} keys of the main listing, mapped to SQL. Unknown keys leave the ID order. */
+    private static final Map<String, String> SORT_COLUMNS = Map.ofEntries(
+            Map.entry("id", "p.id"),
+            Map.entry("title", "p.title"),
+            Map.entry("product", "p.product"),
+            Map.entry("membership", "m.name"),
+            Map.entry("membership.name", "m.name"),
+            Map.entry("membershipname", "m.name"),
+            Map.entry("upvotes", "p.upvotes"),
+            Map.entry("downvotes", "p.downvotes"),
+            Map.entry("expirydate", "p.expiry_date"),
+            Map.entry("location", "p.location"),
+            Map.entry("score", "coalesce(p.upvotes, 0) - coalesce(p.downvotes, 0)"));
+
+    private static final String SELECT_PERKS = """
+            select p.id, p.title, p.description, p.product, p.upvotes, p.downvotes, p.location,
+                   p.latitude, p.longitude, p.coverage_km, p.expiry_date,
+                   m.id as membership_id, m.name as membership_name
+            from perk p left join membership m on m.id = p.membership_id
+            where p.active_until >= :today
+            """;
+
+    private final DatabaseClient databaseClient;
+    private final int fetchSize;
+
+    public ReactivePerkRepository(DatabaseClient databaseClient,
+                                  @Value("${perkmanager.reactive.fetch-size:256}") int fetchSize) {
+        this.databaseClient = databaseClient;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Finds the active perks, optionally matching a search and sorted like
+     * {@code GET /api/perks} on the main application.
+     *
+     * @param search text the title or product must contain, ignoring case, or null
+     * @param sortBy the sort key, or null for ID order
+     * @param descending whether to sort in descending order
+     * @param today the current date
+     * @return the perks, streamed as the subscriber requests them
+     */
+    public Flux<Perk> findActive(String search, String sortBy, boolean descending, LocalDate today) {
+        StringBuilder sql = new StringBuilder(SELECT_PERKS);
+        if (search != null) {
+            sql.append(" and (lower(p.title) like :pattern escape '\\' or lower(p.product) like :pattern escape '\\')");
+        }
+        String column = sortBy == null ? null : SORT_COLUMNS.get(sortBy.trim().toLowerCase());
+        if (column != null) {
+            sql.append(" order by ").append(column).append(descending ? " desc" : " asc").append(", p.id");
+        } else {
+            sql.append(" order by p.id");
+        }
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString()).bind("today", today);
+        if (search != null) {
+            spec = spec.bind("pattern", containsPattern(search));
+        }
+        return spec.map(ReactivePerkRepository::toPerk).all().limitRate(fetchSize);
+    }
+
+    /**
+     * Finds every membership, sorted by name.
+     *
+     * @return the memberships
+     */
+    public Flux<Membership> findMemberships() {
+        return databaseClient.sql("select id, name from membership order by name")
+                .map(row -> toMembership(row.get("id", Long.class), row.get("name", String.class)))
+                .all();
+    }
+
+    /**
+     * Builds a lower-case LIKE pattern with wildcards escaped, as
+     * {@code PerkSpecifications.titleOrProductContains} does.
+     */
+    private static String containsPattern(String keyword) {
+        String escaped = keyword.toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+
+    private static Perk toPerk(Readable row) {
+        Perk perk = new Perk();
+        perk.setId(row.get("id", Long.class));
+        perk.setTitle(row.get("title", String.class));
+        perk.setDescription(row.get("description", String.class));
+        perk.setProduct(row.get("product", String.class));
+        perk.setUpvotes(row.get("upvotes", Integer.class));
+        perk.setDownvotes(row.get("downvotes", Integer.class));
+        perk.setLocation(row.get("location", String.class));
+        perk.setLatitude(row.get("latitude", Double.class));
+        perk.setLongitude(row.get("longitude", Double.class));
+        perk.setCoverageKm(row.get("coverage_km", Double.class));
+        perk.setExpiryDate(row.get("expiry_date", LocalDate.class));
+        Long membershipId = row.get("membership_id", Long.class);
+        if (membershipId != null) {
+            perk.setMembership(toMembership(membershipId, row.get("membership_name", String.class)));
+        }
+        return perk;
+    }
+
+    private static Membership toMembership(Long id, String name) {
+        Membership membership = new Membership(name);
+        membership.setId(id);
+        return membership;
+    }
+}
@@ -0,0 +1,53 @@
+package ca.carleton.s4806.perkmanager.reactive;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.jpa.JpaRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Read-only edge node serving the perk and membership listings on WebFlux and R2DBC.
+ * <p>
+ * Requests are handled on Netty's event loop, a thread or two per core, and
+ * wait for the database without holding a thread, so tens of thousands of
+ * open connections cost memory rather than threads. Listings are written as
+ * rows arrive and only as fast as the client reads them (see
+ * {@link ReactivePerkRepository}). It shares the {@code model} classes with
+ * {@link ca.carleton.s4806.perkmanager.PerkManagerApplication}, which stays
+ * the only writer; nothing is cached here, so every response reflects the
+ * database.
+ * <p>
+ * Runs with the "reactive" profile: {@code mvn -Preactive spring-boot:run}.
+ * The profile also keeps these beans out of the main application, whose
+ * component scan covers this package.
+ */
+@SpringBootApplication(exclude = {
+        DataSourceAutoConfiguration.class,
+        DataSourceTransactionManagerAutoConfiguration.class,
+        HibernateJpaAutoConfiguration.class,
+        JpaRepositoriesAutoConfiguration.class})
+@Profile("reactive")
+public class ReactiveReadApplication {
+
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(ReactiveReadApplication.class)
+                .profiles("reactive")
+                .web(WebApplicationType.REACTIVE)
+                .run(args);
+    }
+
+    /**
+     * Netty rather than Tomcat, which Spring Boot would otherwise pick
+     * because the servlet starter is on the classpath too.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
@@ -0,0 +1,73 @@
+package ca.carleton.s4806.perkmanager.repository;
+
+import ca.carleton.s4806.perkmanager.model.Membership;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.CacheMode;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Builds the cursor-backed queries behind {@link PerkStreamRepository} and
+ * {@link PerkArchiveStreamRepository}. Both entities have the same vote and
+ * membership attributes.
+ */
+final class EntityStreams {
+
+    private EntityStreams() {
+    }
+
+    /**
+     * Streams the matching entities with their membership fetched in the same row.
+     * Each entity is detached as it is handed out and read-only results skip the
+     * second-level cache, so the persistence context does not grow with the result.
+     * The stream must be closed, and consumed inside a transaction.
+     */
+    @SuppressWarnings("unchecked")
+    static <T> Stream<T> stream(EntityManager entityManager, Class<T> type,
+                                Specification<T> spec, Sort sort, int fetchSize) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(type);
+        Root<T> root = query.from(type);
+        Join<T, Membership> membership = (Join<T, Membership>) root.<T, Membership>fetch("membership", JoinType.LEFT);
+        query.select(root);
+
+        Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        List<Order> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            Expression<?> expression = switch (order.getProperty()) {
+                case "score" -> cb.diff(cb.coalesce(root.<Integer>get("upvotes"), 0),
+                        cb.coalesce(root.<Integer>get("downvotes"), 0));
+                case "membership.name" -> membership.get("name");
+                default -> root.get(order.getProperty());
+            };
+            orders.add(order.isAscending() ? cb.asc(expression) : cb.desc(expression));
+        }
+        query.orderBy(orders);
+
+        TypedQuery<T> typedQuery = entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .setHint(HibernateHints.HINT_CACHE_MODE, CacheMode.IGNORE);
+        return typedQuery.getResultStream().map(entity -> {
+            entityManager.detach(entity);
+            return entity;
+        });
+    }
+}
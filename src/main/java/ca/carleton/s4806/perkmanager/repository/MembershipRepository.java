@@ -1,9 +1,15 @@
 package ca.carleton.s4806.perkmanager.repository;
 
 import ca.carleton.s4806.perkmanager.model.Membership;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 /**
  * Repository interface for Membership entity.
  * Provides CRUD operations for Membership data.
@@ -23,4 +29,16 @@ public interface MembershipRepository extends JpaRepository<Membership, Long> {
     // Custom query methods can be added here if needed, Ex.:
     // Optional<Membership> findByName(String name);
     boolean existsByNameIgnoreCase(String name);
+
+    /**
+     * Returns all memberships in the given order.
+     * The result is kept in the Hibernate query cache, since the membership
+     * list is requested on nearly every page load and rarely changes.
+     *
+     * @param sort the ordering to apply
+     * @return all memberships
+     */
+    @Override
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    List<Membership> findAll(Sort sort);
 }
@@ -0,0 +1,25 @@
+package ca.carleton.s4806.perkmanager.repository;
+
+import ca.carleton.s4806.perkmanager.model.PerkArchive;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository interface for archived (expired) perks.
+ * Supports the same {@link PerkSpecifications} filters as {@link PerkRepository}.
+ */
+@Repository
+public interface PerkArchiveRepository extends JpaRepository<PerkArchive, Long>, JpaSpecificationExecutor<PerkArchive>,
+        PerkArchiveStreamRepository {
+
+    // Fetch the membership with the archived perks, as PerkRepository does
+    @Override
+    @EntityGraph(attributePaths = "membership")
+    List<PerkArchive> findAll(Specification<PerkArchive> spec, Sort sort);
+}
@@ -0,0 +1,24 @@
+package ca.carleton.s4806.perkmanager.repository;
+
+import ca.carleton.s4806.perkmanager.model.PerkArchive;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.stream.Stream;
+
+/**
+ * Reads archived perks through a database cursor, like {@link PerkStreamRepository}.
+ * Mixed into {@link PerkArchiveRepository}.
+ */
+public interface PerkArchiveStreamRepository {
+
+    /**
+     * Streams the archived perks matching the filter, with their memberships.
+     * Close the stream and consume it inside a transaction.
+     *
+     * @param spec the filter
+     * @param sort the order, as for {@link PerkStreamRepository#streamAll}
+     * @return the archived perks
+     */
+    Stream<PerkArchive> streamAll(Specification<PerkArchive> spec, Sort sort);
+}
@@ -0,0 +1,29 @@
+package ca.carleton.s4806.perkmanager.repository;
+
+import ca.carleton.s4806.perkmanager.model.PerkArchive;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.stream.Stream;
+
+/**
+ * Criteria implementation of {@link PerkArchiveStreamRepository}.
+ */
+class PerkArchiveStreamRepositoryImpl implements PerkArchiveStreamRepository {
+
+    private final EntityManager entityManager;
+    private final int fetchSize;
+
+    PerkArchiveStreamRepositoryImpl(EntityManager entityManager,
+                                    @Value("${perkmanager.listing.stream-fetch-size:500}") int fetchSize) {
+        this.entityManager = entityManager;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public Stream<PerkArchive> streamAll(Specification<PerkArchive> spec, Sort sort) {
+        return EntityStreams.stream(entityManager, PerkArchive.class, spec, sort, fetchSize);
+    }
+}
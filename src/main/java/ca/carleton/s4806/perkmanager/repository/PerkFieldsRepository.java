@@ -0,0 +1,28 @@
+package ca.carleton.s4806.perkmanager.repository;
+
+import ca.carleton.s4806.perkmanager.model.Perk;
+import ca.carleton.s4806.perkmanager.model.PerkField;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sparse perk queries that select only the requested columns instead of
+ * loading whole {@link Perk} entities. Mixed into {@link PerkRepository}.
+ */
+public interface PerkFieldsRepository {
+
+    /**
+     * Finds perks matching the filter and returns only the requested fields.
+     *
+     * @param spec the filter, e.g. from {@link PerkSpecifications}
+     * @param sort the order; besides entity attributes, {@code "score"} and
+     *             {@code "membership.name"} are accepted
+     * @param fields the fields to select
+     * @return one map per perk, keyed by JSON property name
+     */
+    List<Map<String, Object>> findFields(Specification<Perk> spec, Sort sort, Set<PerkField> fields);
+}
@@ -0,0 +1,115 @@
+package ca.carleton.s4806.perkmanager.repository;
+
+import ca.carleton.s4806.perkmanager.model.Membership;
+import ca.carleton.s4806.perkmanager.model.Perk;
+import ca.carleton.s4806.perkmanager.model.PerkField;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Criteria implementation of {@link PerkFieldsRepository}. Builds a tuple
+ * query with one selection per requested field; the membership table is only
+ * joined when the membership is selected or sorted on.
+ */
+class PerkFieldsRepositoryImpl implements PerkFieldsRepository {
+
+    private static final String MEMBERSHIP_ID = "membershipId";
+    private static final String MEMBERSHIP_NAME = "membershipName";
+
+    private final EntityManager entityManager;
+
+    PerkFieldsRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<Map<String, Object>> findFields(Specification<Perk> spec, Sort sort, Set<PerkField> fields) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Perk> root = query.from(Perk.class);
+        MembershipJoin membership = new MembershipJoin(root);
+
+        List<Selection<?>> selections = new ArrayList<>();
+        for (PerkField field : fields) {
+            switch (field) {
+                case MEMBERSHIP -> {
+                    selections.add(membership.get().get("id").alias(MEMBERSHIP_ID));
+                    selections.add(membership.get().get("name").alias(MEMBERSHIP_NAME));
+                }
+                case SCORE -> selections.add(score(cb, root).alias(field.getJsonName()));
+                default -> selections.add(root.get(field.getJsonName()).alias(field.getJsonName()));
+            }
+        }
+        query.multiselect(selections);
+
+        Predicate predicate = spec == null ? null : spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        List<Order> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            Expression<?> expression = switch (order.getProperty()) {
+                case "score" -> score(cb, root);
+                case "membership.name" -> membership.get().get("name");
+                default -> root.get(order.getProperty());
+            };
+            orders.add(order.isAscending() ? cb.asc(expression) : cb.desc(expression));
+        }
+        query.orderBy(orders);
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Tuple tuple : entityManager.createQuery(query).getResultList()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (PerkField field : fields) {
+                row.put(field.getJsonName(), field == PerkField.MEMBERSHIP
+                        ? PerkField.membership(tuple.get(MEMBERSHIP_ID, Long.class), tuple.get(MEMBERSHIP_NAME, String.class))
+                        : tuple.get(field.getJsonName()));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * Same as {@link Perk#getScore()}, computed by the database.
+     */
+    private static Expression<Integer> score(CriteriaBuilder cb, Root<Perk> root) {
+        return cb.diff(cb.coalesce(root.<Integer>get("upvotes"), 0), cb.coalesce(root.<Integer>get("downvotes"), 0));
+    }
+
+    /**
+     * Joins the membership table the first time it is needed.
+     */
+    private static final class MembershipJoin {
+        private final Root<Perk> root;
+        private Join<Perk, Membership> join;
+
+        private MembershipJoin(Root<Perk> root) {
+            this.root = root;
+        }
+
+        private Join<Perk, Membership> get() {
+            if (join == null) {
+                join = root.join("membership", JoinType.LEFT);
+            }
+            return join;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package ca.carleton.s4806.perkmanager.repository;
+
+import ca.carleton.s4806.perkmanager.model.Perk;
+import ca.carleton.s4806.perkmanager.model.PerkArchive;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Optional listing criteria, combined with AND into a single query.
+ * Unset criteria (null or empty) do not filter.
+ * <p>
+ * Membership, product and location are equality matches, so together with
+ * the "not expired" range on {@code active_until} they are served by the
+ * composite indexes declared on {@link Perk}. {@code minScore} is checked
+ * on the rows those indexes select.
+ *
+ * @param membershipIds perks belonging to any of these memberships
+ * @param product the exact product, e.g. a value from {@code /api/perks/facets}
+ * @param location the exact location
+ * @param expiresBefore perks with an expiry date before this day
+ * @param expiresAfter perks that expire after this day, or never
+ * @param minScore perks with at least this score (upvotes minus downvotes)
+ * @param ids only these perks, e.g. the result of a spatial lookup; an empty set matches nothing
+ */
+public record PerkFilter(List<Long> membershipIds, String product, String location,
+                         LocalDate expiresBefore, LocalDate expiresAfter, Integer minScore,
+                         Set<Long> ids) {
+
+    /** No criteria. */
+    public static final PerkFilter NONE = new PerkFilter(null, null, null, null, null, null);
+
+    public PerkFilter {
+        membershipIds = membershipIds == null || membershipIds.isEmpty() ? null : List.copyOf(membershipIds);
+        ids = ids == null ? null : Set.copyOf(ids);
+        product = product == null || product.isBlank() ? null : product.trim();
+        location = location == null || location.isBlank() ? null : location.trim();
+    }
+
+    /**
+     * Creates a filter without an ID restriction.
+     */
+    public PerkFilter(List<Long> membershipIds, String product, String location,
+                      LocalDate expiresBefore, LocalDate expiresAfter, Integer minScore) {
+        this(membershipIds, product, location, expiresBefore, expiresAfter, minScore, null);
+    }
+
+    /**
+     * Copies this filter, restricted to the given perks.
+     *
+     * @param ids the perk IDs to keep
+     * @return the narrower filter
+     */
+    public PerkFilter withIds(Set<Long> ids) {
+        return new PerkFilter(membershipIds, product, location, expiresBefore, expiresAfter, minScore, ids);
+    }
+
+    /**
+     * Splits the ID restriction into batches, so that a long ID list is
+     * queried as several short IN-lists.
+     *
+     * @param batchSize the most IDs per batch
+     * @return copies of this filter, each restricted to one batch of IDs;
+     *         just this filter if it has no more than {@code batchSize} IDs
+     */
+    public List<PerkFilter> idBatches(int batchSize) {
+        if (ids == null || ids.size() <= batchSize) {
+            return List.of(this);
+        }
+        List<Long> sorted = ids.stream().sorted().toList();
+        List<PerkFilter> batches = new ArrayList<>();
+        for (int from = 0; from < sorted.size(); from += batchSize) {
+            batches.add(withIds(Set.copyOf(sorted.subList(from, Math.min(from + batchSize, sorted.size())))));
+        }
+        return batches;
+    }
+
+    /**
+     * Checks whether no criteria are set.
+     *
+     * @return true if the filter matches every perk
+     */
+    public boolean isEmpty() {
+        return this.equals(NONE);
+    }
+
+    /**
+     * Builds the criteria for live perks.
+     *
+     * @return the filter
+     */
+    public Specification<Perk> forPerks() {
+        List<Specification<Perk>> filters = common();
+        if (expiresAfter != null) {
+            filters.add(PerkSpecifications.activeAfter(expiresAfter));
+        }
+        return Specification.allOf(filters);
+    }
+
+    /**
+     * Builds the criteria for archived perks, which always have an expiry date.
+     *
+     * @return the filter
+     */
+    public Specification<PerkArchive> forArchive() {
+        List<Specification<PerkArchive>> filters = common();
+        if (expiresAfter != null) {
+            filters.add(PerkSpecifications.expiresAfter(expiresAfter));
+        }
+        return Specification.allOf(filters);
+    }
+
+    private <T> List<Specification<T>> common() {
+        List<Specification<T>> filters = new ArrayList<>();
+        if (membershipIds != null) {
+            filters.add(PerkSpecifications.membershipIdIn(membershipIds));
+        }
+        if (product != null) {
+            filters.add(PerkSpecifications.productIs(product));
+        }
+        if (location != null) {
+            filters.add(PerkSpecifications.locationIs(location));
+        }
+        if (expiresBefore != null) {
+            filters.add(PerkSpecifications.expiresBefore(expiresBefore));
+        }
+        if (minScore != null) {
+            filters.add(PerkSpecifications.scoreAtLeast(minScore));
+        }
+        if (ids != null) {
+            filters.add(PerkSpecifications.idIn(ids));
+        }
+        return filters;
+    }
+}
@@ -2,7 +2,10 @@ package ca.carleton.s4806.perkmanager.repository;
 
 import ca.carleton.s4806.perkmanager.model.Perk;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -18,24 +21,56 @@ import java.util.List;
  * - deleteById(Long id) - Deletes a perk by its ID
  * - count() - Returns the total number of perks
  * - existsById(Long id) - Checks if a perk exists by ID
+ * - findAll(Specification spec, Sort sort) - Finds perks matching {@link PerkSpecifications} filters
+ * - findFields(Specification spec, Sort sort, Set fields) - Same, selecting only the given {@link PerkFieldsRepository} fields
  *
  * @author Moesa Malik
  * @version 1.0
  */
 @Repository
-public interface PerkRepository extends JpaRepository<Perk, Long> {
+public interface PerkRepository extends JpaRepository<Perk, Long>, JpaSpecificationExecutor<Perk>, PerkFieldsRepository,
+        PerkStreamRepository {
+
+        // List queries fetch the membership in the same select. Otherwise the
+        // eager @ManyToOne costs one extra select per membership (or per row).
+
+        @Override
+        @EntityGraph(attributePaths = "membership")
+        List<Perk> findAll();
+
+        @Override
+        @EntityGraph(attributePaths = "membership")
+        List<Perk> findAll(Sort sort);
+
+        @Override
+        @EntityGraph(attributePaths = "membership")
+        List<Perk> findAllById(Iterable<Long> ids);
+
+        @Override
+        @EntityGraph(attributePaths = "membership")
+        List<Perk> findAll(Specification<Perk> spec);
+
+        @Override
+        @EntityGraph(attributePaths = "membership")
+        List<Perk> findAll(Specification<Perk> spec, Sort sort);
+
+        @EntityGraph(attributePaths = "membership")
         List<Perk> findByTitleContainingIgnoreCase(String titleKeyword);
 
+        @EntityGraph(attributePaths = "membership")
         List<Perk> findByProductContainingIgnoreCase(String productKeyword);
 
+        @EntityGraph(attributePaths = "membership")
         List<Perk> findByTitleContainingIgnoreCaseOrProductContainingIgnoreCase(
                         String titleKeyword,
                         String productKeyword);
 
+        @EntityGraph(attributePaths = "membership")
         List<Perk> findByTitleContainingIgnoreCaseOrProductContainingIgnoreCase(
                         String titleKeyword,
                         String productKeyword,
                         Sort sort);
 
+        @EntityGraph(attributePaths = "membership")
         List<Perk> findByMembershipIn(List<ca.carleton.s4806.perkmanager.model.Membership> memberships);
 }
@@ -0,0 +1,151 @@
+package ca.carleton.s4806.perkmanager.repository;
+
+import ca.carleton.s4806.perkmanager.model.Membership;
+import ca.carleton.s4806.perkmanager.model.Perk;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+/**
+ * Query filters shared by {@link PerkRepository} and {@link PerkArchiveRepository}.
+ * Both entities use the same attribute names, so the generic filters work for either.
+ */
+public final class PerkSpecifications {
+
+    private PerkSpecifications() {
+    }
+
+    /**
+     * Matches live perks that have not expired: no expiry date, or one on or after {@code today}.
+     * Compares the generated {@code active_until} column so the index on it can be used.
+     *
+     * @param today the current date
+     * @return the filter
+     */
+    public static Specification<Perk> active(LocalDate today) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("activeUntil"), today);
+    }
+
+    /**
+     * Matches perks whose title or product contains the keyword, ignoring case.
+     *
+     * @param keyword the text to look for
+     * @param <T> the perk entity type
+     * @return the filter
+     */
+    public static <T> Specification<T> titleOrProductContains(String keyword) {
+        // Escape wildcards so they match literally, as the derived "Containing" queries do
+        String escaped = keyword.toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        String pattern = "%" + escaped + "%";
+        return (root, query, cb) -> cb.or(
+                cb.like(cb.lower(root.get("title")), pattern, '\\'),
+                cb.like(cb.lower(root.get("product")), pattern, '\\'));
+    }
+
+    /**
+     * Matches perks belonging to any of the given memberships.
+     *
+     * @param memberships the memberships to match
+     * @param <T> the perk entity type
+     * @return the filter
+     */
+    public static <T> Specification<T> membershipIn(Collection<Membership> memberships) {
+        return (root, query, cb) -> root.get("membership").in(memberships);
+    }
+
+    /**
+     * Matches perks belonging to any of the given membership IDs.
+     *
+     * @param membershipIds the membership IDs to match
+     * @param <T> the perk entity type
+     * @return the filter
+     */
+    public static <T> Specification<T> membershipIdIn(Collection<Long> membershipIds) {
+        // Compares the membership_id column directly, without joining the membership table
+        return (root, query, cb) -> root.get("membership").get("id").in(membershipIds);
+    }
+
+    /**
+     * Matches perks for exactly this product.
+     *
+     * @param product the product
+     * @param <T> the perk entity type
+     * @return the filter
+     */
+    public static <T> Specification<T> productIs(String product) {
+        return (root, query, cb) -> cb.equal(root.get("product"), product);
+    }
+
+    /**
+     * Matches perks valid at exactly this location.
+     *
+     * @param location the location
+     * @param <T> the perk entity type
+     * @return the filter
+     */
+    public static <T> Specification<T> locationIs(String location) {
+        return (root, query, cb) -> cb.equal(root.get("location"), location);
+    }
+
+    /**
+     * Matches perks with an expiry date before the given day.
+     *
+     * @param date the first day not matched
+     * @param <T> the perk entity type
+     * @return the filter
+     */
+    public static <T> Specification<T> expiresBefore(LocalDate date) {
+        return (root, query, cb) -> cb.lessThan(root.get("expiryDate"), date);
+    }
+
+    /**
+     * Matches perks with an expiry date after the given day.
+     *
+     * @param date the last day not matched
+     * @param <T> the perk entity type
+     * @return the filter
+     */
+    public static <T> Specification<T> expiresAfter(LocalDate date) {
+        return (root, query, cb) -> cb.greaterThan(root.get("expiryDate"), date);
+    }
+
+    /**
+     * Matches live perks that are still valid after the given day: those
+     * expiring later and those that never expire. Uses {@code active_until}
+     * like {@link #active(LocalDate)}.
+     *
+     * @param date the last day not matched
+     * @return the filter
+     */
+    public static Specification<Perk> activeAfter(LocalDate date) {
+        return (root, query, cb) -> cb.greaterThan(root.get("activeUntil"), date);
+    }
+
+    /**
+     * Matches perks whose score (upvotes minus downvotes) is at least the given value.
+     *
+     * @param minScore the lowest score matched
+     * @param <T> the perk entity type
+     * @return the filter
+     */
+    public static <T> Specification<T> scoreAtLeast(int minScore) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(
+                cb.diff(cb.coalesce(root.<Integer>get("upvotes"), 0), cb.coalesce(root.<Integer>get("downvotes"), 0)),
+                minScore);
+    }
+
+    /**
+     * Matches only the given perks.
+     *
+     * @param ids the perk IDs; an empty collection matches nothing
+     * @param <T> the perk entity type
+     * @return the filter
+     */
+    public static <T> Specification<T> idIn(Collection<Long> ids) {
+        return (root, query, cb) -> ids.isEmpty() ? cb.disjunction() : root.get("id").in(ids);
+    }
+}
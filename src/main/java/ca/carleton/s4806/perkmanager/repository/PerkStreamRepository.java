@@ -0,0 +1,26 @@
+package ca.carleton.s4806.perkmanager.repository;
+
+import ca.carleton.s4806.perkmanager.model.Perk;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.stream.Stream;
+
+/**
+ * Reads perks through a database cursor instead of loading the whole result
+ * into a list. Mixed into {@link PerkRepository}.
+ */
+public interface PerkStreamRepository {
+
+    /**
+     * Streams the perks matching the filter, with their memberships.
+     * Perks are detached as they are read. Close the stream and consume it
+     * inside a transaction.
+     *
+     * @param spec the filter, e.g. from {@link PerkSpecifications}
+     * @param sort the order; besides entity attributes, {@code "score"} and
+     *             {@code "membership.name"} are accepted
+     * @return the perks, read {@code perkmanager.listing.stream-fetch-size} rows at a time
+     */
+    Stream<Perk> streamAll(Specification<Perk> spec, Sort sort);
+}
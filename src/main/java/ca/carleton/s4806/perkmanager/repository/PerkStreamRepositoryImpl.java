@@ -0,0 +1,29 @@
+package ca.carleton.s4806.perkmanager.repository;
+
+import ca.carleton.s4806.perkmanager.model.Perk;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.stream.Stream;
+
+/**
+ * Criteria implementation of {@link PerkStreamRepository}.
+ */
+class PerkStreamRepositoryImpl implements PerkStreamRepository {
+
+    private final EntityManager entityManager;
+    private final int fetchSize;
+
+    PerkStreamRepositoryImpl(EntityManager entityManager,
+                             @Value("${perkmanager.listing.stream-fetch-size:500}") int fetchSize) {
+        this.entityManager = entityManager;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public Stream<Perk> streamAll(Specification<Perk> spec, Sort sort) {
+        return EntityStreams.stream(entityManager, Perk.class, spec, sort, fetchSize);
+    }
+}
@@ -0,0 +1,211 @@
+package ca.carleton.s4806.perkmanager.service;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit that adapts to observed latency (AIMD).
+ * <p>
+ * Requests take a permit before running and return it with their start and
+ * end times. While latency stays near the no-load baseline and at least half
+ * the permits are in use, the limit grows by one per limit's worth of
+ * requests (additive increase). A request that took more than
+ * {@code tolerance} times the baseline means work is queueing somewhere
+ * downstream, and the limit is cut by {@link #BACKOFF} (multiplicative
+ * decrease). Only requests started after the last cut can cut again, so a
+ * burst of slow requests that were all admitted under the old limit counts
+ * once.
+ * <p>
+ * The baseline is the lowest latency of the last {@link #BASELINE_WINDOW}
+ * samples, so it follows the workload as the data grows. Requests that
+ * queried the database and requests served from caches keep separate
+ * baselines: otherwise a sub-millisecond cache hit sets the baseline and
+ * every ordinary query looks congested. Latencies under
+ * {@code latencyFloorNanos} never count as congestion, which keeps jitter on
+ * sub-millisecond requests from shrinking the limit.
+ * <p>
+ * Thread-safe. Uses a lock rather than {@code synchronized} so waiting
+ * virtual threads do not pin their carriers.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    /** Factor the limit is multiplied by when latency rises. */
+    static final double BACKOFF = 0.9;
+    /** Samples after which the baseline is replaced by the lowest latency seen since. */
+    static final int BASELINE_WINDOW = 1000;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final long latencyFloorNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private double limit;
+    private int inFlight;
+    private long rejected;
+    private final Baseline cachedBaseline = new Baseline();
+    private final Baseline queriedBaseline = new Baseline();
+    private long lastDecreaseNanos = Long.MIN_VALUE;
+
+    /**
+     * @param initialLimit the limit to start from
+     * @param minLimit the lowest the limit can be cut to
+     * @param maxLimit the highest the limit can grow to
+     * @param tolerance how many times the baseline latency counts as congestion
+     * @param latencyFloorNanos latencies below this never count as congestion
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit,
+                                    double tolerance, long latencyFloorNanos) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max");
+        }
+        if (tolerance <= 1) {
+            throw new IllegalArgumentException("Tolerance must be greater than 1");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.latencyFloorNanos = latencyFloorNanos;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Takes a permit if fewer than the limit are in use.
+     *
+     * @return whether the request may run; if so it must call {@link #release} or {@link #releaseWithoutSample}
+     */
+    public boolean tryAcquire() {
+        lock.lock();
+        try {
+            if (inFlight >= (int) limit) {
+                rejected++;
+                return false;
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a permit and adjusts the limit to the latency of a request that
+     * queried the database.
+     *
+     * @param startNanos when the request started, from {@link System#nanoTime()}
+     * @param endNanos when it finished, from {@link System#nanoTime()}
+     */
+    public void release(long startNanos, long endNanos) {
+        release(startNanos, endNanos, true);
+    }
+
+    /**
+     * Returns a permit and adjusts the limit to the request's latency,
+     * compared with the baseline of requests that did the same kind of work.
+     *
+     * @param startNanos when the request started, from {@link System#nanoTime()}
+     * @param endNanos when it finished, from {@link System#nanoTime()}
+     * @param queried whether the request queried the database rather than being served from caches
+     */
+    public void release(long startNanos, long endNanos, boolean queried) {
+        long latency = endNanos - startNanos;
+        lock.lock();
+        try {
+            boolean busy = inFlight * 2 >= (int) limit;
+            inFlight--;
+
+            long baselineNanos = (queried ? queriedBaseline : cachedBaseline).sample(latency);
+            if (latency > latencyFloorNanos && latency > baselineNanos * tolerance) {
+                if (startNanos > lastDecreaseNanos) {
+                    limit = Math.max(minLimit, limit * BACKOFF);
+                    lastDecreaseNanos = endNanos;
+                }
+            } else if (busy) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lowest latency of the current and previous window for one kind of request.
+     * Guarded by the limit's lock.
+     */
+    private static final class Baseline {
+        private long baselineNanos = Long.MAX_VALUE;
+        private long windowMinNanos = Long.MAX_VALUE;
+        private int windowSamples;
+
+        /**
+         * Adds a sample.
+         *
+         * @return the baseline including this sample
+         */
+        long sample(long latency) {
+            windowMinNanos = Math.min(windowMinNanos, latency);
+            if (++windowSamples >= BASELINE_WINDOW) {
+                baselineNanos = windowMinNanos;
+                windowMinNanos = Long.MAX_VALUE;
+                windowSamples = 0;
+            } else {
+                baselineNanos = Math.min(baselineNanos, latency);
+            }
+            return baselineNanos;
+        }
+    }
+
+    /**
+     * Returns a permit without a latency sample, for requests whose duration
+     * says nothing about load (e.g. long-running streams).
+     */
+    public void releaseWithoutSample() {
+        lock.lock();
+        try {
+            inFlight--;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the current limit.
+     *
+     * @return the number of requests allowed to run at once
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of permits in use.
+     *
+     * @return the requests running now
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of requests turned away so far.
+     *
+     * @return the rejected request count
+     */
+    public long getRejected() {
+        lock.lock();
+        try {
+            return rejected;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package ca.carleton.s4806.perkmanager.service;
+
+import ca.carleton.s4806.perkmanager.model.Perk;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Catalog version and a bounded, append-only log of perk changes, so clients
+ * can fetch what changed since the version they last saw instead of the whole
+ * perk list.
+ * <p>
+ * Every change gets the next version number. Only the most recent
+ * {@code perkmanager.changes.capacity} changes are kept; a client asking for
+ * changes older than that, or from before a bulk change recorded with
+ * {@link #markReset()}, has to resync from the full list.
+ * <p>
+ * The log lives in memory, so versions start from the startup time in
+ * milliseconds. A version handed out before a restart is then lower than
+ * anything the new log holds and triggers a resync instead of a wrong delta.
+ * <p>
+ * Memberships are not logged but have their own version, bumped on every
+ * membership change, for conditional GETs of the membership list.
+ */
+@Service
+public class CatalogChangeLog {
+
+    /**
+     * Kind of change made to a perk.
+     */
+    public enum ChangeType {
+        CREATED, DELETED, VOTED
+    }
+
+    /**
+     * One entry of the log. {@code perk} is set for {@code CREATED};
+     * the vote counts for {@code VOTED}.
+     *
+     * @param version the catalog version this change produced
+     * @param type the kind of change
+     * @param perkId the changed perk
+     * @param perk the new perk, for creates
+     * @param upvotes the upvote count after a vote
+     * @param downvotes the downvote count after a vote
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Change(long version, ChangeType type, Long perkId, Perk perk, Integer upvotes, Integer downvotes) {
+    }
+
+    /**
+     * Changes after a requested version.
+     *
+     * @param version the catalog version the changes lead up to
+     * @param fullResync whether the requested version is no longer covered by the log;
+     *                   {@code changes} is then empty and the client has to reload everything
+     * @param changes the changes in version order
+     */
+    public record Delta(long version, boolean fullResync, List<Change> changes) {
+    }
+
+    private final Deque<Change> changes = new ArrayDeque<>();
+    private final int capacity;
+    private long version;
+    private long membershipVersion;
+    private long lastChangeMillis;
+    private long resetVersion;
+    /** Lowest version a client can still sync from; older ones need a full resync. */
+    private long oldestSyncable;
+
+    public CatalogChangeLog(MeterRegistry registry,
+                            @Value("${perkmanager.changes.capacity:10000}") int capacity) {
+        this.capacity = capacity;
+        this.version = System.currentTimeMillis();
+        this.membershipVersion = version;
+        this.lastChangeMillis = version;
+        this.resetVersion = version;
+        this.oldestSyncable = version;
+        Gauge.builder("perk_catalog_version", this, CatalogChangeLog::getVersion)
+                .description("Current catalog version")
+                .register(registry);
+    }
+
+    /**
+     * Gets the current catalog version.
+     *
+     * @return the version of the latest change
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the current membership version.
+     *
+     * @return the version of the latest membership change
+     */
+    public synchronized long getMembershipVersion() {
+        return membershipVersion;
+    }
+
+    /**
+     * Gets the time of the latest perk or membership change.
+     *
+     * @return the time in epoch milliseconds
+     */
+    public synchronized long getLastChangeMillis() {
+        return lastChangeMillis;
+    }
+
+    /**
+     * Gets the version of the latest bulk change recorded with {@link #markReset()}.
+     * Anything derived from the catalog before it is out of date.
+     *
+     * @return the version of the latest reset
+     */
+    public synchronized long getResetVersion() {
+        return resetVersion;
+    }
+
+    /**
+     * Records that a membership was created or changed.
+     *
+     * @return the new membership version
+     */
+    public synchronized long recordMembershipChange() {
+        lastChangeMillis = System.currentTimeMillis();
+        return ++membershipVersion;
+    }
+
+    /**
+     * Records a newly created perk.
+     *
+     * @param perk the saved perk
+     * @return the new catalog version
+     */
+    public synchronized long recordCreated(Perk perk) {
+        return append(ChangeType.CREATED, perk.getId(), perk, null, null);
+    }
+
+    /**
+     * Records a new vote count.
+     *
+     * @param perk the saved perk
+     * @return the new catalog version
+     */
+    public synchronized long recordVoted(Perk perk) {
+        return append(ChangeType.VOTED, perk.getId(), null, perk.getUpvotes(), perk.getDownvotes());
+    }
+
+    /**
+     * Records deleted (or archived) perks.
+     *
+     * @param perkIds the perks that were removed
+     * @return the new catalog version
+     */
+    public synchronized long recordDeleted(Collection<Long> perkIds) {
+        for (Long perkId : perkIds) {
+            append(ChangeType.DELETED, perkId, null, null, null);
+        }
+        return version;
+    }
+
+    /**
+     * Records a bulk change that is not logged perk by perk, such as an import
+     * or loading seed data. Every client has to resync from the full list
+     * afterwards, and the membership version moves on as well.
+     *
+     * @return the new catalog version
+     */
+    public synchronized long markReset() {
+        changes.clear();
+        membershipVersion++;
+        lastChangeMillis = System.currentTimeMillis();
+        version++;
+        oldestSyncable = version;
+        resetVersion = version;
+        return version;
+    }
+
+    /**
+     * Gets the changes made after the given version.
+     *
+     * @param since the last version the client has seen
+     * @return the changes, or a resync marker if they are no longer all in the log
+     */
+    public synchronized Delta changesSince(long since) {
+        if (since < oldestSyncable || since > version) {
+            return new Delta(version, true, List.of());
+        }
+        List<Change> result = new ArrayList<>((int) (version - since));
+        // Newest entries are at the tail, so walk backwards and stop early
+        Iterator<Change> newestFirst = changes.descendingIterator();
+        while (newestFirst.hasNext()) {
+            Change change = newestFirst.next();
+            if (change.version() <= since) {
+                break;
+            }
+            result.add(change);
+        }
+        Collections.reverse(result);
+        return new Delta(version, false, result);
+    }
+
+    private long append(ChangeType type, Long perkId, Perk perk, Integer upvotes, Integer downvotes) {
+        lastChangeMillis = System.currentTimeMillis();
+        version++;
+        changes.addLast(new Change(version, type, perkId, perk, upvotes, downvotes));
+        if (changes.size() > capacity) {
+            oldestSyncable = changes.removeFirst().version();
+        }
+        return version;
+    }
+}
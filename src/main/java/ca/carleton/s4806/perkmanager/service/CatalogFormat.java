@@ -0,0 +1,51 @@
+package ca.carleton.s4806.perkmanager.service;
+
+import org.springframework.http.MediaType;
+
+/**
+ * File formats supported for perk catalog export and import.
+ */
+public enum CatalogFormat {
+
+    /**
+     * Comma-separated values with a header row (RFC 4180 quoting).
+     */
+    CSV(new MediaType("text", "csv")),
+
+    /**
+     * Newline-delimited JSON, one perk object per line.
+     */
+    NDJSON(MediaType.APPLICATION_NDJSON);
+
+    private final MediaType mediaType;
+
+    CatalogFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Resolves the format from an explicit name or, failing that, a content type.
+     *
+     * @param name format name such as "csv" or "ndjson", may be null
+     * @param contentType request content type, may be null
+     * @return the matching format, CSV if nothing matches
+     */
+    public static CatalogFormat resolve(String name, String contentType) {
+        if (name != null && !name.isBlank()) {
+            for (CatalogFormat format : values()) {
+                if (format.name().equalsIgnoreCase(name.trim())) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported catalog format: " + name);
+        }
+        if (contentType != null && MediaType.parseMediaType(contentType).isCompatibleWith(NDJSON.mediaType)) {
+            return NDJSON;
+        }
+        return CSV;
+    }
+}
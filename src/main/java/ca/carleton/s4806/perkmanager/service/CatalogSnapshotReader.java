@@ -0,0 +1,228 @@
+package ca.carleton.s4806.perkmanager.service;
+
+import ca.carleton.s4806.perkmanager.service.CatalogSnapshotWriter.Column;
+import ca.carleton.s4806.perkmanager.service.CatalogSnapshotWriter.ColumnType;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads catalog snapshots written by {@link CatalogSnapshotWriter}.
+ * <p>
+ * When memory mapping is requested the file is mapped read-only and column
+ * blocks are decoded in place; otherwise each column block is read into a
+ * buffer first. Files larger than 2 GB are always streamed.
+ */
+public class CatalogSnapshotReader implements Closeable {
+
+    private final Source source;
+    private List<Column> columns;
+
+    /**
+     * Opens a snapshot and checks its header.
+     *
+     * @param path the snapshot file
+     * @param memoryMapped whether to map the file instead of streaming it
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public CatalogSnapshotReader(Path path, boolean memoryMapped) throws IOException {
+        long size = Files.size(path);
+        this.source = memoryMapped && size <= Integer.MAX_VALUE
+                ? new MappedSource(path)
+                : new StreamSource(path);
+        try {
+            if (source.readInt() != CatalogSnapshotWriter.MAGIC) {
+                throw new IOException("Not a catalog snapshot: " + path);
+            }
+            int version = source.readInt();
+            if (version != CatalogSnapshotWriter.VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+        } catch (IOException e) {
+            source.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Moves to the next table. Any unread blocks of the current table are skipped.
+     *
+     * @return the table name, or null at the end of the snapshot
+     * @throws IOException if reading fails
+     */
+    public String nextTable() throws IOException {
+        while (columns != null) {
+            nextBlock();
+        }
+        byte tag = source.readByte();
+        if (tag == CatalogSnapshotWriter.END) {
+            return null;
+        }
+        if (tag != CatalogSnapshotWriter.TABLE) {
+            throw new IOException("Corrupt snapshot: unexpected tag " + tag);
+        }
+        String name = readString(source.slice(source.readInt()));
+        int count = source.readInt();
+        List<Column> read = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String column = readString(source.slice(source.readInt()));
+            read.add(new Column(column, ColumnType.values()[source.readByte()]));
+        }
+        columns = read;
+        return name;
+    }
+
+    /**
+     * Gets the columns of the current table.
+     *
+     * @return the columns, in storage order
+     */
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Reads the next block of the current table.
+     *
+     * @return the rows of the block, or null once the table has no more blocks
+     * @throws IOException if reading fails
+     */
+    public List<Object[]> nextBlock() throws IOException {
+        if (columns == null) {
+            return null;
+        }
+        int rows = source.readInt();
+        if (rows == 0) {
+            columns = null;
+            return null;
+        }
+        List<Object[]> block = new ArrayList<>(rows);
+        for (int r = 0; r < rows; r++) {
+            block.add(new Object[columns.size()]);
+        }
+        for (int c = 0; c < columns.size(); c++) {
+            ByteBuffer data = source.slice(source.readInt());
+            byte[] nulls = new byte[(rows + 7) / 8];
+            data.get(nulls);
+            ColumnType type = columns.get(c).type();
+            for (int r = 0; r < rows; r++) {
+                if ((nulls[r >> 3] & (1 << (r & 7))) == 0) {
+                    block.get(r)[c] = readValue(data, type);
+                }
+            }
+        }
+        return block;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    private static Object readValue(ByteBuffer data, ColumnType type) {
+        return switch (type) {
+            case LONG -> data.getLong();
+            case INT -> data.getInt();
+            case STRING -> {
+                byte[] bytes = new byte[data.getInt()];
+                data.get(bytes);
+                yield new String(bytes, StandardCharsets.UTF_8);
+            }
+            case DATE -> LocalDate.ofEpochDay(data.getInt());
+            case DOUBLE -> data.getDouble();
+        };
+    }
+
+    private static String readString(ByteBuffer data) {
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Where the snapshot bytes come from.
+     */
+    private interface Source extends Closeable {
+        int readInt() throws IOException;
+
+        byte readByte() throws IOException;
+
+        /**
+         * Returns the next {@code length} bytes as a buffer positioned at its start.
+         */
+        ByteBuffer slice(int length) throws IOException;
+    }
+
+    private static final class MappedSource implements Source {
+        private final ByteBuffer buffer;
+
+        MappedSource(Path path) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+
+        @Override
+        public int readInt() {
+            return buffer.getInt();
+        }
+
+        @Override
+        public byte readByte() {
+            return buffer.get();
+        }
+
+        @Override
+        public ByteBuffer slice(int length) {
+            ByteBuffer slice = buffer.slice(buffer.position(), length);
+            buffer.position(buffer.position() + length);
+            return slice;
+        }
+
+        @Override
+        public void close() {
+            // The mapping is released when the buffer is garbage collected
+        }
+    }
+
+    private static final class StreamSource implements Source {
+        private final DataInputStream in;
+
+        StreamSource(Path path) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 64 * 1024));
+        }
+
+        @Override
+        public int readInt() throws IOException {
+            return in.readInt();
+        }
+
+        @Override
+        public byte readByte() throws IOException {
+            return in.readByte();
+        }
+
+        @Override
+        public ByteBuffer slice(int length) throws IOException {
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return ByteBuffer.wrap(bytes);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
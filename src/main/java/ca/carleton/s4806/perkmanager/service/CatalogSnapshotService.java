@@ -0,0 +1,398 @@
+package ca.carleton.s4806.perkmanager.service;
+
+import ca.carleton.s4806.perkmanager.service.CatalogSnapshotWriter.Column;
+import ca.carleton.s4806.perkmanager.service.CatalogSnapshotWriter.ColumnType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves the whole catalog (memberships, users, perks and archived perks) to a binary snapshot
+ * file and restores it with JDBC batch inserts.
+ * <p>
+ * Restoring a snapshot at startup is much faster than seeding through JPA one
+ * entity at a time, so a node with a large catalog can start serving quickly.
+ * See {@link CatalogSnapshotWriter} for the file layout.
+ * <p>
+ * The file is meant to be copied between nodes, so passwords are written as
+ * salted one-way hashes ({@link PasswordHashes}); restored accounts log in as before.
+ */
+@Service
+public class CatalogSnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogSnapshotService.class);
+
+    /**
+     * Tables in dependency order, so a snapshot can be loaded front to back.
+     */
+    private static final List<Table> TABLES = List.of(
+            new Table("membership", "membership_seq", List.of(
+                    new Column("id", ColumnType.LONG),
+                    new Column("name", ColumnType.STRING))),
+            new Table("users", "users_seq", List.of(
+                    new Column("id", ColumnType.LONG),
+                    new Column("username", ColumnType.STRING),
+                    new Column("password", ColumnType.STRING),
+                    new Column("email", ColumnType.STRING))),
+            new Table("user_memberships", null, List.of(
+                    new Column("user_id", ColumnType.LONG),
+                    new Column("membership_id", ColumnType.LONG))),
+            new Table("perk", "perk_seq", List.of(
+                    new Column("id", ColumnType.LONG),
+                    new Column("title", ColumnType.STRING),
+                    new Column("description", ColumnType.STRING),
+                    new Column("product", ColumnType.STRING),
+                    new Column("membership_id", ColumnType.LONG),
+                    new Column("upvotes", ColumnType.INT),
+                    new Column("downvotes", ColumnType.INT),
+                    new Column("location", ColumnType.STRING),
+                    new Column("latitude", ColumnType.DOUBLE),
+                    new Column("longitude", ColumnType.DOUBLE),
+                    new Column("coverage_km", ColumnType.DOUBLE),
+                    new Column("expiry_date", ColumnType.DATE))),
+            new Table("perk_archive", null, List.of(
+                    new Column("id", ColumnType.LONG),
+                    new Column("title", ColumnType.STRING),
+                    new Column("description", ColumnType.STRING),
+                    new Column("product", ColumnType.STRING),
+                    new Column("membership_id", ColumnType.LONG),
+                    new Column("upvotes", ColumnType.INT),
+                    new Column("downvotes", ColumnType.INT),
+                    new Column("location", ColumnType.STRING),
+                    new Column("latitude", ColumnType.DOUBLE),
+                    new Column("longitude", ColumnType.DOUBLE),
+                    new Column("coverage_km", ColumnType.DOUBLE),
+                    new Column("expiry_date", ColumnType.DATE),
+                    new Column("archived_on", ColumnType.DATE))));
+
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
+    /** Index of users.password, which is hashed on the way out. */
+    private static final int PASSWORD_COLUMN = 2;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final MeterRegistry registry;
+    private final CatalogChangeLog changeLog;
+    private final Path path;
+    private final boolean memoryMapped;
+    private final boolean writeOnShutdown;
+    private final int allocationSize;
+
+    public CatalogSnapshotService(JdbcTemplate jdbcTemplate,
+                                  EntityManagerFactory entityManagerFactory,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry registry,
+                                  CatalogChangeLog changeLog,
+                                  @Value("${perkmanager.snapshot.path:data/catalog.snapshot}") Path path,
+                                  @Value("${perkmanager.snapshot.memory-mapped:true}") boolean memoryMapped,
+                                  @Value("${perkmanager.snapshot.write-on-shutdown:false}") boolean writeOnShutdown,
+                                  @Value("${spring.jpa.properties.perkmanager.id.allocation_size:50}") int allocationSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.registry = registry;
+        this.changeLog = changeLog;
+        this.path = path;
+        this.memoryMapped = memoryMapped;
+        this.writeOnShutdown = writeOnShutdown;
+        this.allocationSize = allocationSize;
+    }
+
+    /**
+     * Gets the columns a snapshot must contain for one of the catalog tables,
+     * for code that writes snapshots itself.
+     *
+     * @param table the table name (membership, users, user_memberships, perk or perk_archive)
+     * @return the columns in snapshot order
+     * @throws IllegalArgumentException if the table is not part of snapshots
+     */
+    public static List<Column> columns(String table) {
+        return TABLES.stream()
+                .filter(t -> t.name().equals(table))
+                .findFirst()
+                .map(Table::columns)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown snapshot table " + table));
+    }
+
+    /**
+     * Gets the configured snapshot file.
+     *
+     * @return the snapshot path
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Loads the configured snapshot if the file exists.
+     *
+     * @return true if a snapshot was loaded
+     * @throws IOException if the file exists but cannot be read
+     */
+    public boolean loadIfPresent() throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return false;
+        }
+        load(path);
+        return true;
+    }
+
+    /**
+     * Writes the catalog to the configured snapshot file.
+     *
+     * @return number of rows written
+     * @throws IOException if the file cannot be written
+     */
+    public long write() throws IOException {
+        return write(path);
+    }
+
+    /**
+     * Writes the catalog to a snapshot file. The file is written next to the
+     * target and then moved into place, so readers never see a partial file.
+     *
+     * @param target the file to write
+     * @return number of rows written
+     * @throws IOException if the file cannot be written
+     */
+    public long write(Path target) throws IOException {
+        Timer.Sample sample = Timer.start(registry);
+        Path absolute = target.toAbsolutePath();
+        Files.createDirectories(absolute.getParent());
+        Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        long rows;
+        try {
+            try (CatalogSnapshotWriter writer = new CatalogSnapshotWriter(
+                    new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024))) {
+                readOnlyTransaction.executeWithoutResult(status -> TABLES.forEach(table -> writeTable(writer, table)));
+                rows = writer.getRowsWritten();
+            }
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        long nanos = sample.stop(timer("write"));
+        rowCounter("write").increment(rows);
+        log.info("Wrote catalog snapshot with {} rows to {} in {} ms", rows, absolute, TimeUnit.NANOSECONDS.toMillis(nanos));
+        return rows;
+    }
+
+    /**
+     * Loads a snapshot into empty tables using JDBC batch inserts, then moves
+     * the ID sequences past the loaded IDs so new entities do not collide.
+     *
+     * @param source the snapshot file
+     * @return number of rows loaded
+     * @throws IOException if the file cannot be read
+     * @throws IllegalStateException if the catalog tables are not empty
+     */
+    public long load(Path source) throws IOException {
+        Timer.Sample sample = Timer.start(registry);
+        long rows;
+        try (CatalogSnapshotReader reader = new CatalogSnapshotReader(source, memoryMapped)) {
+            rows = writeTransaction.execute(status -> {
+                for (Table table : TABLES) {
+                    Long existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table.name(), Long.class);
+                    if (existing != null && existing > 0) {
+                        throw new IllegalStateException("Cannot load a snapshot: table " + table.name() + " is not empty");
+                    }
+                }
+                long loaded = 0;
+                try {
+                    String name;
+                    while ((name = reader.nextTable()) != null) {
+                        loaded += loadTable(reader, table(name, reader.getColumns()));
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                TABLES.stream().filter(table -> table.sequence() != null).forEach(this::restartSequence);
+                return loaded;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        // Rows were inserted behind Hibernate's back, so cached entities and query results are stale
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        changeLog.markReset();
+        long nanos = sample.stop(timer("load"));
+        rowCounter("load").increment(rows);
+        log.info("Loaded catalog snapshot with {} rows from {} in {} ms", rows, source, TimeUnit.NANOSECONDS.toMillis(nanos));
+        return rows;
+    }
+
+    /**
+     * Writes a snapshot while the application shuts down, if enabled with
+     * {@code perkmanager.snapshot.write-on-shutdown}.
+     *
+     * @param event the context closed event
+     */
+    @EventListener
+    public void onShutdown(ContextClosedEvent event) {
+        if (!writeOnShutdown) {
+            return;
+        }
+        try {
+            write();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not write catalog snapshot on shutdown", e);
+        }
+    }
+
+    private void writeTable(CatalogSnapshotWriter writer, Table table) {
+        try {
+            writer.beginTable(table.name(), table.columns());
+            List<String> names = table.columns().stream().map(Column::name).toList();
+            String sql = "SELECT " + String.join(", ", names) + " FROM " + table.name() + " ORDER BY " + names.get(0);
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(
+                        sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(EXPORT_FETCH_SIZE);
+                return statement;
+            }, (ResultSet rs) -> {
+                Object[] values = new Object[table.columns().size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = readColumn(rs, i + 1, table.columns().get(i).type());
+                }
+                if (table.name().equals("users")) {
+                    values[PASSWORD_COLUMN] = PasswordHashes.hashIfPlain((String) values[PASSWORD_COLUMN]);
+                }
+                try {
+                    writer.writeRow(values);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.endTable();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long loadTable(CatalogSnapshotReader reader, Table table) throws IOException {
+        String sql = "INSERT INTO " + table.name() + " ("
+                + String.join(", ", table.columns().stream().map(Column::name).toList())
+                + ") VALUES (" + String.join(", ", table.columns().stream().map(c -> "?").toList()) + ")";
+        // Explicit types spare the driver a metadata lookup for every null value
+        int[] types = table.columns().stream().mapToInt(column -> sqlType(column.type())).toArray();
+        long loaded = 0;
+        List<Object[]> block;
+        while ((block = reader.nextBlock()) != null) {
+            List<Object[]> args = new ArrayList<>(block.size());
+            for (Object[] row : block) {
+                Object[] converted = row.clone();
+                for (int i = 0; i < converted.length; i++) {
+                    if (converted[i] instanceof LocalDate date) {
+                        converted[i] = Date.valueOf(date);
+                    }
+                }
+                args.add(converted);
+            }
+            jdbcTemplate.batchUpdate(sql, args, types);
+            loaded += block.size();
+        }
+        return loaded;
+    }
+
+    private void restartSequence(Table table) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table.name(), Long.class);
+        Long current = jdbcTemplate.queryForObject(
+                "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE UPPER(SEQUENCE_NAME) = UPPER(?)",
+                Long.class, table.sequence());
+        // The pooled optimizer treats each sequence value as the top of a block of
+        // allocationSize IDs, so the next value must clear the loaded IDs by a full block
+        long restart = Math.max(current == null ? 1 : current, (maxId == null ? 0 : maxId) + allocationSize + 1);
+        jdbcTemplate.execute("ALTER SEQUENCE " + table.sequence() + " RESTART WITH " + restart);
+    }
+
+    private static Table table(String name, List<Column> columns) {
+        for (Table table : TABLES) {
+            if (table.name().equals(name)) {
+                if (!table.columns().equals(columns)) {
+                    throw new IllegalStateException("Snapshot columns for " + name + " do not match the schema");
+                }
+                return table;
+            }
+        }
+        throw new IllegalStateException("Snapshot contains unknown table " + name);
+    }
+
+    private static int sqlType(ColumnType type) {
+        return switch (type) {
+            case LONG -> Types.BIGINT;
+            case INT -> Types.INTEGER;
+            case STRING -> Types.VARCHAR;
+            case DATE -> Types.DATE;
+            case DOUBLE -> Types.DOUBLE;
+        };
+    }
+
+    private static Object readColumn(ResultSet rs, int index, ColumnType type) throws SQLException {
+        return switch (type) {
+            case LONG -> rs.getObject(index, Long.class);
+            case INT -> rs.getObject(index, Integer.class);
+            case STRING -> rs.getString(index);
+            case DATE -> {
+                Date date = rs.getDate(index);
+                yield date == null ? null : date.toLocalDate();
+            }
+            case DOUBLE -> rs.getObject(index, Double.class);
+        };
+    }
+
+    private Timer timer(String operation) {
+        return Timer.builder("perk_snapshot_duration")
+                .description("Time taken to write or load a catalog snapshot")
+                .tag("operation", operation)
+                .register(registry);
+    }
+
+    private Counter rowCounter(String operation) {
+        return Counter.builder("perk_snapshot_rows_total")
+                .description("Rows written to or loaded from catalog snapshots")
+                .tag("operation", operation)
+                .register(registry);
+    }
+
+    /**
+     * A table included in snapshots.
+     *
+     * @param name the table name
+     * @param sequence the ID sequence to move past loaded rows, or null
+     * @param columns the columns stored in the snapshot
+     */
+    private record Table(String name, String sequence, List<Column> columns) {
+    }
+}
@@ -0,0 +1,195 @@
+package ca.carleton.s4806.perkmanager.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes catalog snapshots.
+ * <p>
+ * A snapshot is a sequence of tables. Each table starts with its name and
+ * column list, followed by blocks of up to {@link #BLOCK_ROWS} rows. Within a
+ * block the values are stored column by column, and every column is prefixed
+ * with its length in bytes so a reader can slice or skip it without decoding.
+ * <pre>
+ * file   := MAGIC version:int table* END
+ * table  := TABLE name:str columnCount:int (name:str type:byte)* block* rows=0:int
+ * block  := rows:int column+
+ * column := length:int nullBitmap value*      (values present for non-null rows only)
+ * str    := length:int utf8-bytes
+ * </pre>
+ * LONG and DOUBLE values take 8 bytes, INT values 4 bytes, DATE values the
+ * 4-byte epoch day.
+ */
+public class CatalogSnapshotWriter implements Closeable {
+
+    static final int MAGIC = 0x504b534e; // "PKSN"
+    static final int VERSION = 2;
+    static final byte TABLE = 'T';
+    static final byte END = 'E';
+
+    /**
+     * Maximum rows buffered before a block is written.
+     */
+    public static final int BLOCK_ROWS = 8192;
+
+    /**
+     * Column types supported in a snapshot.
+     */
+    public enum ColumnType {
+        LONG, INT, STRING, DATE, DOUBLE
+    }
+
+    /**
+     * A named, typed column.
+     *
+     * @param name the column name
+     * @param type the value type
+     */
+    public record Column(String name, ColumnType type) {
+    }
+
+    private final DataOutputStream out;
+    private List<Column> columns;
+    private final List<Object[]> block = new ArrayList<>(BLOCK_ROWS);
+    private long rowsWritten;
+
+    /**
+     * Constructs a writer and writes the file header.
+     *
+     * @param out the stream to write to; closed by {@link #close()}
+     * @throws IOException if the header cannot be written
+     */
+    public CatalogSnapshotWriter(OutputStream out) throws IOException {
+        this.out = new DataOutputStream(out);
+        this.out.writeInt(MAGIC);
+        this.out.writeInt(VERSION);
+    }
+
+    /**
+     * Starts a new table. The previous table, if any, must have been ended.
+     *
+     * @param name the table name
+     * @param columns the columns, in the order values are passed to {@link #writeRow}
+     * @throws IOException if writing fails
+     */
+    public void beginTable(String name, List<Column> columns) throws IOException {
+        if (this.columns != null) {
+            throw new IllegalStateException("Table not ended");
+        }
+        this.columns = List.copyOf(columns);
+        out.writeByte(TABLE);
+        writeString(out, name);
+        out.writeInt(columns.size());
+        for (Column column : columns) {
+            writeString(out, column.name());
+            out.writeByte(column.type().ordinal());
+        }
+    }
+
+    /**
+     * Adds a row to the current table.
+     *
+     * @param values one value per column (Long, Integer, String or LocalDate), null allowed
+     * @throws IOException if a full block cannot be written
+     */
+    public void writeRow(Object... values) throws IOException {
+        if (columns == null) {
+            throw new IllegalStateException("No table started");
+        }
+        if (values.length != columns.size()) {
+            throw new IllegalArgumentException("Expected " + columns.size() + " values but got " + values.length);
+        }
+        block.add(values);
+        if (block.size() == BLOCK_ROWS) {
+            flushBlock();
+        }
+    }
+
+    /**
+     * Ends the current table.
+     *
+     * @throws IOException if writing fails
+     */
+    public void endTable() throws IOException {
+        flushBlock();
+        out.writeInt(0);
+        columns = null;
+    }
+
+    /**
+     * Gets the number of rows written so far, across all tables.
+     *
+     * @return the row count
+     */
+    public long getRowsWritten() {
+        return rowsWritten + block.size();
+    }
+
+    /**
+     * Writes the end marker and closes the stream.
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (columns != null) {
+            endTable();
+        }
+        out.writeByte(END);
+        out.close();
+    }
+
+    private void flushBlock() throws IOException {
+        if (block.isEmpty()) {
+            return;
+        }
+        out.writeInt(block.size());
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream column = new DataOutputStream(buffer);
+        for (int c = 0; c < columns.size(); c++) {
+            buffer.reset();
+            byte[] nulls = new byte[(block.size() + 7) / 8];
+            for (int r = 0; r < block.size(); r++) {
+                if (block.get(r)[c] == null) {
+                    nulls[r >> 3] |= (byte) (1 << (r & 7));
+                }
+            }
+            column.write(nulls);
+            ColumnType type = columns.get(c).type();
+            for (Object[] row : block) {
+                Object value = row[c];
+                if (value != null) {
+                    writeValue(column, type, value);
+                }
+            }
+            column.flush();
+            out.writeInt(buffer.size());
+            buffer.writeTo(out);
+        }
+        rowsWritten += block.size();
+        block.clear();
+    }
+
+    private static void writeValue(DataOutputStream out, ColumnType type, Object value) throws IOException {
+        switch (type) {
+            case LONG -> out.writeLong(((Number) value).longValue());
+            case INT -> out.writeInt(((Number) value).intValue());
+            case STRING -> writeString(out, (String) value);
+            case DATE -> out.writeInt((int) ((LocalDate) value).toEpochDay());
+            case DOUBLE -> out.writeDouble(((Number) value).doubleValue());
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,203 @@
+package ca.carleton.s4806.perkmanager.service;
+
+import ca.carleton.s4806.perkmanager.model.Membership;
+import ca.carleton.s4806.perkmanager.model.Perk;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes perk lists in the compact shape of {@code compact=true}: each
+ * membership once in a {@code memberships} table, and perks referring to it
+ * by {@code membershipId}.
+ * <pre>
+ * {"memberships":[{"id":1,"name":"Visa"}],
+ *  "perks":[{"upvotes":5,"downvotes":1,"score":4,"id":7,"title":"Movie Night",...,"membershipId":1}]}
+ * </pre>
+ * Perks and memberships are never edited after they are created, only voted
+ * on, so everything but the vote counts is encoded to UTF-8 JSON once per
+ * perk or membership and cached; a list is then mostly a copy of cached
+ * bytes. Properties that are null are left out. Bulk changes
+ * ({@link CatalogChangeLog#markReset()}) may reuse IDs, so cached fragments
+ * from before the last reset are encoded again.
+ * <p>
+ * The cache is bounded by total size, and its hits, misses and evictions are
+ * published as {@code cache_*{cache="perk_json"}} metrics.
+ */
+@Service
+public class CompactPerkEncoder {
+
+    private record Key(Class<?> type, long id) {
+    }
+
+    private record Fragment(SerializedString json, long resetVersion) {
+    }
+
+    private static final SerializedString MEMBERSHIPS = new SerializedString("memberships");
+    private static final SerializedString PERKS = new SerializedString("perks");
+    private static final SerializedString UPVOTES = new SerializedString("upvotes");
+    private static final SerializedString DOWNVOTES = new SerializedString("downvotes");
+    private static final SerializedString SCORE = new SerializedString("score");
+
+    private final JsonFactory jsonFactory;
+    private final CatalogChangeLog changeLog;
+    private final Cache<Key, Fragment> fragments;
+
+    public CompactPerkEncoder(ObjectMapper objectMapper,
+                              CatalogChangeLog changeLog,
+                              MeterRegistry registry,
+                              @Value("${perkmanager.json-cache.max-size:16MB}") DataSize maxSize) {
+        this.jsonFactory = objectMapper.getFactory();
+        this.changeLog = changeLog;
+        this.fragments = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                // The text and its UTF-8 encoding
+                .weigher((Key key, Fragment fragment) -> 64 + fragment.json().charLength() * 2)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, fragments, "perk_json");
+    }
+
+    /**
+     * Encodes perks in the compact shape.
+     *
+     * @param perks the perks in listing order
+     * @return the UTF-8 JSON document
+     */
+    public byte[] encode(List<Perk> perks) {
+        long resetVersion = changeLog.getResetVersion();
+        Map<Long, Membership> memberships = new LinkedHashMap<>();
+        for (Perk perk : perks) {
+            Membership membership = perk.getMembership();
+            if (membership != null && membership.getId() != null) {
+                memberships.putIfAbsent(membership.getId(), membership);
+            }
+        }
+
+        ByteArrayBuilder out = new ByteArrayBuilder(64 + perks.size() * 256);
+        try (JsonGenerator gen = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+            gen.writeStartObject();
+            gen.writeFieldName(MEMBERSHIPS);
+            gen.writeStartArray();
+            for (Membership membership : memberships.values()) {
+                gen.writeRawValue(fragment(membership, resetVersion));
+            }
+            gen.writeEndArray();
+
+            gen.writeFieldName(PERKS);
+            gen.writeStartArray();
+            for (Perk perk : perks) {
+                // Votes change, so they are written fresh; the cached rest follows them
+                gen.writeStartObject();
+                writeNumber(gen, UPVOTES, perk.getUpvotes());
+                writeNumber(gen, DOWNVOTES, perk.getDownvotes());
+                gen.writeFieldName(SCORE);
+                gen.writeNumber(perk.getScore());
+                gen.writeRaw(fragment(perk, resetVersion));
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private SerializedString fragment(Membership membership, long resetVersion) {
+        return cached(new Key(Membership.class, membership.getId()), resetVersion, gen -> {
+            gen.writeStartObject();
+            gen.writeNumberField("id", membership.getId());
+            writeString(gen, "name", membership.getName());
+            gen.writeEndObject();
+        }, false);
+    }
+
+    /**
+     * Encodes the properties of a perk other than its votes, as
+     * {@code ,"id":7,"title":...} to follow the vote counts in its object.
+     */
+    private SerializedString fragment(Perk perk, long resetVersion) {
+        return cached(new Key(Perk.class, perk.getId()), resetVersion, gen -> {
+            gen.writeStartObject();
+            gen.writeNumberField("id", perk.getId());
+            writeString(gen, "title", perk.getTitle());
+            writeString(gen, "description", perk.getDescription());
+            writeString(gen, "product", perk.getProduct());
+            if (perk.getMembership() != null && perk.getMembership().getId() != null) {
+                gen.writeNumberField("membershipId", perk.getMembership().getId());
+            }
+            writeString(gen, "location", perk.getLocation());
+            writeNumber(gen, "latitude", perk.getLatitude());
+            writeNumber(gen, "longitude", perk.getLongitude());
+            writeNumber(gen, "coverageKm", perk.getCoverageKm());
+            if (perk.getExpiryDate() != null) {
+                gen.writeStringField("expiryDate", perk.getExpiryDate().toString());
+            }
+            gen.writeEndObject();
+        }, true);
+    }
+
+    private interface FragmentWriter {
+        void write(JsonGenerator gen) throws IOException;
+    }
+
+    private SerializedString cached(Key key, long resetVersion, FragmentWriter writer, boolean continuation) {
+        Fragment fragment = fragments.getIfPresent(key);
+        if (fragment == null || fragment.resetVersion() != resetVersion) {
+            StringWriter text = new StringWriter();
+            try (JsonGenerator gen = jsonFactory.createGenerator(text)) {
+                writer.write(gen);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            String json = text.toString();
+            if (continuation) {
+                // Drop the braces; the properties continue an object that is already open
+                json = "," + json.substring(1, json.length() - 1);
+            }
+            SerializedString encoded = new SerializedString(json);
+            // Encode before caching, so writers only ever copy bytes
+            encoded.asUnquotedUTF8();
+            fragment = new Fragment(encoded, resetVersion);
+            fragments.put(key, fragment);
+        }
+        return fragment.json();
+    }
+
+    private static void writeString(JsonGenerator gen, String name, String value) throws IOException {
+        if (value != null) {
+            gen.writeStringField(name, value);
+        }
+    }
+
+    private static void writeNumber(JsonGenerator gen, String name, Double value) throws IOException {
+        if (value != null) {
+            gen.writeNumberField(name, value);
+        }
+    }
+
+    private static void writeNumber(JsonGenerator gen, SerializedString name, Integer value) throws IOException {
+        if (value != null) {
+            gen.writeFieldName(name);
+            gen.writeNumber(value);
+        }
+    }
+}
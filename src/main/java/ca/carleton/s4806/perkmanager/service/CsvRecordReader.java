@@ -0,0 +1,123 @@
+package ca.carleton.s4806.perkmanager.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads CSV records one at a time from a character stream.
+ * Supports quoted fields containing commas, doubled quotes and line breaks.
+ * Only the current record is held in memory.
+ */
+public class CsvRecordReader {
+
+    private final Reader reader;
+    private int lineNumber = 1;
+    private int recordLine;
+    private boolean finished;
+
+    /**
+     * Constructs a reader over the given stream. The caller should pass a buffered reader.
+     *
+     * @param reader the character stream to read from
+     */
+    public CsvRecordReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return the fields of the next record, or null at end of input
+     * @throws IOException if reading fails or a quoted field is not closed
+     */
+    public List<String> next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        recordLine = lineNumber;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean sawAnything = false;
+        int c;
+        while ((c = reader.read()) != -1) {
+            sawAnything = true;
+            char ch = (char) c;
+            if (quoted) {
+                if (ch == '"') {
+                    reader.mark(1);
+                    int peek = reader.read();
+                    if (peek == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (peek != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    if (ch == '\n') {
+                        lineNumber++;
+                    }
+                    field.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (ch == '\n') {
+                lineNumber++;
+                fields.add(field.toString());
+                return fields;
+            } else if (ch != '\r') {
+                field.append(ch);
+            }
+        }
+        finished = true;
+        if (quoted) {
+            throw new IOException("Unterminated quoted field starting on line " + recordLine);
+        }
+        if (!sawAnything) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Gets the line on which the most recently returned record started.
+     *
+     * @return the 1-based line number
+     */
+    public int getRecordLine() {
+        return recordLine;
+    }
+
+    /**
+     * Formats one CSV record, quoting fields where needed.
+     *
+     * @param fields the field values; null is written as an empty field
+     * @return the record, terminated by a line break
+     */
+    public static String format(List<String> fields) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            String value = fields.get(i);
+            if (value == null) {
+                continue;
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                line.append('"').append(value.replace("\"", "\"\"")).append('"');
+            } else {
+                line.append(value);
+            }
+        }
+        return line.append('\n').toString();
+    }
+}
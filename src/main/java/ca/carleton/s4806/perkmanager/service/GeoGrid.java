@@ -0,0 +1,206 @@
+package ca.carleton.s4806.perkmanager.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Grid of fixed-size latitude/longitude cells for finding the points whose
+ * coverage circle reaches a search circle.
+ * <p>
+ * Each point is stored in every cell its coverage overlaps, so a lookup only
+ * checks the cells around the search circle and then the exact great-circle
+ * distance of the points found there. Points keep a unit vector and the
+ * cosine and sine of their coverage angle, so that check is a dot product
+ * rather than a haversine per point. Points covering more than
+ * {@link #WIDE_COVERAGE_KM} (a province rather than a city) would fill too
+ * many cells and are checked on every lookup instead.
+ * <p>
+ * Not thread-safe; {@link PerkGeoIndex} guards it with a lock.
+ */
+public class GeoGrid {
+
+    /** Cell size in degrees; about 28 km of latitude. */
+    static final double CELL_DEGREES = 0.25;
+    /** Coverage radius above which a point is kept out of the cells. */
+    static final double WIDE_COVERAGE_KM = 200;
+
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+    private static final int LAT_CELLS = (int) Math.ceil(180 / CELL_DEGREES);
+    private static final int LON_CELLS = (int) Math.ceil(360 / CELL_DEGREES);
+
+    private record Point(long id, double latitude, double longitude, double coverageKm,
+                         double x, double y, double z, double cosCoverage, double sinCoverage) {
+
+        static Point of(long id, double latitude, double longitude, double coverageKm) {
+            double lat = Math.toRadians(latitude);
+            double lon = Math.toRadians(longitude);
+            double angle = coverageKm / EARTH_RADIUS_KM;
+            return new Point(id, latitude, longitude, coverageKm,
+                    Math.cos(lat) * Math.cos(lon), Math.cos(lat) * Math.sin(lon), Math.sin(lat),
+                    Math.cos(angle), Math.sin(angle));
+        }
+
+        /**
+         * Whether this point's coverage reaches a search circle: the angle between
+         * the centres is at most the sum of the two radii, i.e. their dot product
+         * is at least the cosine of that sum.
+         */
+        boolean reaches(Point circle) {
+            if (coverageKm + circle.coverageKm() >= Math.PI * EARTH_RADIUS_KM) {
+                return true;
+            }
+            double dot = x * circle.x() + y * circle.y() + z * circle.z();
+            // Small tolerance for rounding when the circles just touch
+            return dot >= cosCoverage * circle.cosCoverage() - sinCoverage * circle.sinCoverage() - 1e-12;
+        }
+    }
+
+    private final Map<Long, Point> points = new HashMap<>();
+    private final Map<Long, List<Point>> cells = new HashMap<>();
+    private final Map<Long, Point> wide = new HashMap<>();
+
+    /**
+     * Adds a point, replacing any earlier one with the same ID.
+     *
+     * @param id the point ID
+     * @param latitude the latitude in degrees
+     * @param longitude the longitude in degrees
+     * @param coverageKm how far from the point it applies, 0 for the point only
+     */
+    public void put(long id, double latitude, double longitude, double coverageKm) {
+        remove(id);
+        Point point = Point.of(id, latitude, longitude, Math.max(0, coverageKm));
+        points.put(id, point);
+        if (point.coverageKm() > WIDE_COVERAGE_KM) {
+            wide.put(id, point);
+            return;
+        }
+        for (long cell : cellsAround(latitude, longitude, point.coverageKm(), Integer.MAX_VALUE)) {
+            cells.computeIfAbsent(cell, key -> new ArrayList<>(4)).add(point);
+        }
+    }
+
+    /**
+     * Removes a point if present.
+     *
+     * @param id the point ID
+     */
+    public void remove(long id) {
+        Point point = points.remove(id);
+        if (point == null) {
+            return;
+        }
+        if (wide.remove(id) != null) {
+            return;
+        }
+        for (long cell : cellsAround(point.latitude(), point.longitude(), point.coverageKm(), Integer.MAX_VALUE)) {
+            List<Point> inCell = cells.get(cell);
+            if (inCell != null) {
+                inCell.removeIf(stored -> stored.id() == id);
+                if (inCell.isEmpty()) {
+                    cells.remove(cell);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes every point.
+     */
+    public void clear() {
+        points.clear();
+        cells.clear();
+        wide.clear();
+    }
+
+    /**
+     * Gets the number of points.
+     *
+     * @return the number of points
+     */
+    public int size() {
+        return points.size();
+    }
+
+    /**
+     * Finds the points whose coverage reaches within {@code radiusKm} of a location.
+     *
+     * @param latitude the latitude in degrees
+     * @param longitude the longitude in degrees
+     * @param radiusKm the search radius
+     * @return the IDs of the matching points
+     */
+    public Set<Long> within(double latitude, double longitude, double radiusKm) {
+        Point circle = Point.of(-1, latitude, longitude, radiusKm);
+        Set<Long> found = new HashSet<>();
+        List<Long> around = cellsAround(latitude, longitude, radiusKm, cells.size());
+        if (around == null) {
+            // A huge radius: cheaper to look at every occupied cell
+            around = List.copyOf(cells.keySet());
+        }
+        for (long cell : around) {
+            List<Point> inCell = cells.get(cell);
+            if (inCell != null) {
+                for (Point point : inCell) {
+                    if (point.reaches(circle)) {
+                        found.add(point.id());
+                    }
+                }
+            }
+        }
+        for (Point point : wide.values()) {
+            if (point.reaches(circle)) {
+                found.add(point.id());
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Lists the cells overlapping the bounding box of a circle,
+     * or returns null if there are more than {@code limit}.
+     */
+    private static List<Long> cellsAround(double latitude, double longitude, double radiusKm, int limit) {
+        double latDelta = radiusKm / KM_PER_DEGREE;
+        int minLat = latCell(Math.max(-90, latitude - latDelta));
+        int maxLat = latCell(Math.min(90, latitude + latDelta));
+
+        // Longitude degrees shrink towards the poles; past them the box spans every longitude
+        double northmost = Math.min(90, Math.abs(latitude) + latDelta);
+        double cos = Math.cos(Math.toRadians(northmost));
+        int minLon;
+        int lonCount;
+        if (northmost >= 89.9 || radiusKm / (KM_PER_DEGREE * cos) >= 180) {
+            minLon = 0;
+            lonCount = LON_CELLS;
+        } else {
+            double lonDelta = radiusKm / (KM_PER_DEGREE * cos);
+            minLon = (int) Math.floor((longitude - lonDelta + 180) / CELL_DEGREES);
+            int maxLon = (int) Math.floor((longitude + lonDelta + 180) / CELL_DEGREES);
+            lonCount = Math.min(LON_CELLS, maxLon - minLon + 1);
+        }
+
+        long count = (long) (maxLat - minLat + 1) * lonCount;
+        if (count > limit) {
+            return null;
+        }
+        List<Long> around = new ArrayList<>((int) count);
+        for (int lat = minLat; lat <= maxLat; lat++) {
+            for (int i = 0; i < lonCount; i++) {
+                // Wrap across the antimeridian
+                int lon = Math.floorMod(minLon + i, LON_CELLS);
+                around.add(((long) lat << 32) | lon);
+            }
+        }
+        return around;
+    }
+
+    private static int latCell(double latitude) {
+        return Math.min(LAT_CELLS - 1, (int) Math.floor((latitude + 90) / CELL_DEGREES));
+    }
+}
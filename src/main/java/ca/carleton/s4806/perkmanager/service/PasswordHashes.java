@@ -0,0 +1,108 @@
+package ca.carleton.s4806.perkmanager.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Salted one-way password hashes, as stored for accounts restored from a
+ * catalog snapshot: {@code {sha256}<salt>$<hash>}, both Base64.
+ * <p>
+ * Accounts created through {@code POST /api/register} still hold the
+ * password as entered, so {@link #matches} accepts either form.
+ */
+public final class PasswordHashes {
+
+    private static final String PREFIX = "{sha256}";
+    private static final int SALT_BYTES = 16;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private PasswordHashes() {
+    }
+
+    /**
+     * Hashes a password with a random salt.
+     *
+     * @param password the password as entered
+     * @return the encoded hash
+     */
+    public static String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        return hash(password, salt);
+    }
+
+    /**
+     * Hashes a password with the given salt, for output that must be
+     * reproducible such as a seeded synthetic catalog.
+     *
+     * @param password the password as entered
+     * @param salt the salt
+     * @return the encoded hash
+     */
+    public static String hash(String password, byte[] salt) {
+        Base64.Encoder base64 = Base64.getEncoder();
+        return PREFIX + base64.encodeToString(salt) + "$" + base64.encodeToString(digest(salt, password));
+    }
+
+    /**
+     * Hashes a stored password unless it is already hashed.
+     *
+     * @param stored the stored password, or null
+     * @return the encoded hash, or null if there was no password
+     */
+    public static String hashIfPlain(String stored) {
+        return stored == null || isHashed(stored) ? stored : hash(stored);
+    }
+
+    /**
+     * Checks whether a stored password is a hash made by this class.
+     *
+     * @param stored the stored password
+     * @return true if it is hashed
+     */
+    public static boolean isHashed(String stored) {
+        return stored.startsWith(PREFIX);
+    }
+
+    /**
+     * Checks a password as entered against a stored one, hashed or not.
+     *
+     * @param password the password as entered
+     * @param stored the stored password, or null
+     * @return true if they match
+     */
+    public static boolean matches(String password, String stored) {
+        if (password == null || stored == null) {
+            return false;
+        }
+        if (!isHashed(stored)) {
+            return stored.equals(password);
+        }
+        int separator = stored.indexOf('$', PREFIX.length());
+        if (separator < 0) {
+            return false;
+        }
+        Base64.Decoder base64 = Base64.getDecoder();
+        try {
+            byte[] salt = base64.decode(stored.substring(PREFIX.length(), separator));
+            byte[] expected = base64.decode(stored.substring(separator + 1));
+            return MessageDigest.isEqual(expected, digest(salt, password));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static byte[] digest(byte[] salt, String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(salt);
+            return digest.digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
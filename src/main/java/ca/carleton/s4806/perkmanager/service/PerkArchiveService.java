@@ -0,0 +1,118 @@
+package ca.carleton.s4806.perkmanager.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Moves expired perks from the live {@code perk} table into {@code perk_archive}.
+ * <p>
+ * Runs on a schedule (daily by default) and works in batches, each in its own
+ * transaction, so the live table is never locked for long. Keeping expired
+ * perks out of the live table keeps search, listing and recommendation queries
+ * proportional to the number of active perks.
+ */
+@Service
+public class PerkArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(PerkArchiveService.class);
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final CatalogChangeLog changeLog;
+    private final Counter archivedCounter;
+    private final boolean enabled;
+    private final int batchSize;
+
+    public PerkArchiveService(EntityManager entityManager,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry registry,
+                              CatalogChangeLog changeLog,
+                              @Value("${perkmanager.archive.enabled:true}") boolean enabled,
+                              @Value("${perkmanager.archive.batch-size:1000}") int batchSize) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.changeLog = changeLog;
+        this.archivedCounter = Counter.builder("perk_archived_total")
+                .description("Expired perks moved to the archive table")
+                .register(registry);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Archives expired perks on the configured schedule
+     * ({@code perkmanager.archive.cron}, 03:15 every day by default).
+     */
+    @Scheduled(cron = "${perkmanager.archive.cron:0 15 3 * * *}")
+    public void archiveOnSchedule() {
+        if (enabled) {
+            archiveExpired(LocalDate.now());
+        }
+    }
+
+    /**
+     * Moves every perk that expired before {@code today} to the archive.
+     *
+     * @param today the current date; perks expiring on this day stay live
+     * @return number of perks archived
+     */
+    public long archiveExpired(LocalDate today) {
+        long total = 0;
+        int moved;
+        do {
+            moved = archiveBatch(today);
+            total += moved;
+        } while (moved == batchSize);
+        if (total > 0) {
+            log.info("Archived {} expired perks", total);
+        }
+        return total;
+    }
+
+    private int archiveBatch(LocalDate today) {
+        List<Long> moved = transactionTemplate.execute(status -> {
+            List<Long> ids = entityManager.createQuery(
+                            "select p.id from Perk p where p.expiryDate < :today order by p.expiryDate, p.id", Long.class)
+                    .setParameter("today", today)
+                    .setMaxResults(batchSize)
+                    .getResultList();
+            if (ids.isEmpty()) {
+                return ids;
+            }
+            // Bulk statements also invalidate the cached perks and perk queries
+            entityManager.createQuery("""
+                            insert into PerkArchive (id, title, description, product, membership,
+                                                     upvotes, downvotes, location, latitude, longitude,
+                                                     coverageKm, expiryDate, archivedOn)
+                            select p.id, p.title, p.description, p.product, p.membership,
+                                   p.upvotes, p.downvotes, p.location, p.latitude, p.longitude,
+                                   p.coverageKm, p.expiryDate, :today
+                            from Perk p where p.id in :ids""")
+                    .setParameter("today", today)
+                    .setParameter("ids", ids)
+                    .executeUpdate();
+            entityManager.createQuery("delete from Perk p where p.id in :ids")
+                    .setParameter("ids", ids)
+                    .executeUpdate();
+            return ids;
+        });
+        if (moved == null || moved.isEmpty()) {
+            return 0;
+        }
+        // Archived perks leave the live list, so delta clients see them as deleted
+        changeLog.recordDeleted(moved);
+        archivedCounter.increment(moved.size());
+        return moved.size();
+    }
+}
@@ -0,0 +1,470 @@
+package ca.carleton.s4806.perkmanager.service;
+
+import ca.carleton.s4806.perkmanager.model.Membership;
+import ca.carleton.s4806.perkmanager.model.Perk;
+import ca.carleton.s4806.perkmanager.model.PerkCatalogRow;
+import ca.carleton.s4806.perkmanager.repository.MembershipRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bulk export and import of the perk catalog.
+ * <p>
+ * Export streams rows from a forward-only JDBC cursor straight to the output,
+ * so memory use does not grow with the catalog size. Import parses the upload
+ * one record at a time and persists perks in chunks, each chunk in its own
+ * transaction so Hibernate can send the inserts as JDBC batches.
+ */
+@Service
+public class PerkCatalogService {
+
+    static final List<String> COLUMNS = List.of(
+            "id", "title", "description", "product", "membershipId", "membershipName",
+            "upvotes", "downvotes", "location", "latitude", "longitude", "coverageKm", "expiryDate");
+
+    private static final String EXPORT_SQL = """
+            SELECT p.id, p.title, p.description, p.product, p.membership_id, m.name,
+                   p.upvotes, p.downvotes, p.location, p.latitude, p.longitude, p.coverage_km, p.expiry_date
+            FROM perk p LEFT JOIN membership m ON m.id = p.membership_id
+            ORDER BY p.id""";
+
+    private static final int EXPORT_FETCH_SIZE = 500;
+    private static final int MAX_REPORTED_ERRORS = 50;
+
+    /** Returned by a {@link RowSource} for blank lines, which are skipped. */
+    private static final PerkCatalogRow BLANK =
+            new PerkCatalogRow(null, null, null, null, null, null, null, null, null, null, null, null, null);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    private final MembershipRepository membershipRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final MeterRegistry registry;
+    private final CatalogChangeLog changeLog;
+    private final int importChunkSize;
+
+    public PerkCatalogService(JdbcTemplate jdbcTemplate,
+                              EntityManager entityManager,
+                              MembershipRepository membershipRepository,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry registry,
+                              CatalogChangeLog changeLog,
+                              @Value("${perkmanager.catalog.import-chunk-size:1000}") int importChunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+        this.membershipRepository = membershipRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.registry = registry;
+        this.changeLog = changeLog;
+        this.importChunkSize = importChunkSize;
+    }
+
+    /**
+     * Writes every perk to the output stream in the given format.
+     *
+     * @param out the stream to write to; not closed by this method
+     * @param format the file format
+     * @return number of perks written
+     */
+    public long export(OutputStream out, CatalogFormat format) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        long start = System.nanoTime();
+        long[] count = {0};
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try {
+                if (format == CatalogFormat.CSV) {
+                    writer.write(CsvRecordReader.format(COLUMNS));
+                }
+                jdbcTemplate.query(connection -> {
+                    PreparedStatement statement = connection.prepareStatement(
+                            EXPORT_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    statement.setFetchSize(EXPORT_FETCH_SIZE);
+                    return statement;
+                }, (ResultSet rs) -> {
+                    try {
+                        writer.write(formatRow(toRow(rs), format));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    count[0]++;
+                });
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        record("export", count[0], System.nanoTime() - start);
+        return count[0];
+    }
+
+    /**
+     * Reads perks from the input stream and saves the valid ones.
+     * Rows are validated like {@code POST /api/perks}: the expiry date may not be
+     * in the past and the coordinates must be complete and in range. Invalid rows are skipped and reported in the result.
+     *
+     * @param in the uploaded catalog; not closed by this method
+     * @param format the file format
+     * @return counts of imported and rejected rows, with the first errors
+     * @throws IOException if the upload cannot be read or a CSV header is missing
+     */
+    public ImportResult importCatalog(InputStream in, CatalogFormat format) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        MembershipLookup memberships = new MembershipLookup(membershipRepository.findAll());
+        LocalDate today = LocalDate.now();
+        ImportResult result = new ImportResult();
+        List<Perk> chunk = new ArrayList<>(importChunkSize);
+        long start = System.nanoTime();
+
+        RowSource rows = format == CatalogFormat.CSV ? csvRows(reader) : ndjsonRows(reader);
+        int[] line = new int[1];
+        while (true) {
+            PerkCatalogRow row;
+            try {
+                row = rows.next(line);
+            } catch (IllegalArgumentException e) {
+                result.reject(line[0], e.getMessage());
+                continue;
+            }
+            if (row == null) {
+                break;
+            }
+            if (row == BLANK) {
+                continue;
+            }
+            Perk perk = toPerk(row, memberships);
+            String error = validate(row, perk, today);
+            if (error != null) {
+                result.reject(line[0], error);
+            } else {
+                chunk.add(perk);
+                if (chunk.size() >= importChunkSize) {
+                    persist(chunk, result);
+                }
+            }
+        }
+        persist(chunk, result);
+        if (result.getImported() > 0) {
+            // Imported perks are not logged one by one; delta clients resync instead
+            changeLog.markReset();
+        }
+        record("import", result.getImported(), System.nanoTime() - start);
+        return result;
+    }
+
+    private void persist(List<Perk> chunk, ImportResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        writeTransaction.executeWithoutResult(status -> {
+            for (Perk perk : chunk) {
+                if (perk.getMembership() != null) {
+                    perk.setMembership(entityManager.getReference(Membership.class, perk.getMembership().getId()));
+                }
+                entityManager.persist(perk);
+            }
+            entityManager.flush();
+            entityManager.clear();
+        });
+        result.addImported(chunk.size());
+        chunk.clear();
+    }
+
+    private String validate(PerkCatalogRow row, Perk perk, LocalDate today) {
+        if (perk.isExpiredOn(today)) {
+            return "Expiry date cannot be in the past.";
+        }
+        String coordinateError = perk.coordinateError();
+        if (coordinateError != null) {
+            return coordinateError;
+        }
+        boolean membershipGiven = row.membershipId() != null
+                || (row.membershipName() != null && !row.membershipName().isBlank());
+        if (membershipGiven && perk.getMembership() == null) {
+            return "Unknown membership";
+        }
+        return null;
+    }
+
+    private Perk toPerk(PerkCatalogRow row, MembershipLookup memberships) {
+        Perk perk = new Perk(row.title(), row.description(), row.product(), memberships.find(row),
+                row.expiryDate(), row.location());
+        perk.setUpvotes(row.upvotes() == null ? 0 : row.upvotes());
+        perk.setDownvotes(row.downvotes() == null ? 0 : row.downvotes());
+        perk.setLatitude(row.latitude());
+        perk.setLongitude(row.longitude());
+        perk.setCoverageKm(row.coverageKm());
+        return perk;
+    }
+
+    private void record(String direction, long rows, long nanos) {
+        Counter.builder("perk_catalog_rows_total")
+                .description("Perk rows exported or imported through the catalog endpoints")
+                .tag("direction", direction)
+                .register(registry)
+                .increment(rows);
+        Timer.builder("perk_catalog_transfer")
+                .description("Time taken by catalog exports and imports")
+                .tag("direction", direction)
+                .register(registry)
+                .record(Duration.ofNanos(nanos));
+        double seconds = nanos / 1_000_000_000.0;
+        if (rows > 0 && seconds > 0) {
+            DistributionSummary.builder("perk_catalog_rows_per_second")
+                    .description("Throughput of each catalog export or import")
+                    .tag("direction", direction)
+                    .register(registry)
+                    .record(rows / seconds);
+        }
+    }
+
+    private PerkCatalogRow toRow(ResultSet rs) throws SQLException {
+        Date expiry = rs.getDate(13);
+        return new PerkCatalogRow(
+                rs.getLong(1),
+                rs.getString(2),
+                rs.getString(3),
+                rs.getString(4),
+                (Long) rs.getObject(5, Long.class),
+                rs.getString(6),
+                (Integer) rs.getObject(7, Integer.class),
+                (Integer) rs.getObject(8, Integer.class),
+                rs.getString(9),
+                (Double) rs.getObject(10, Double.class),
+                (Double) rs.getObject(11, Double.class),
+                (Double) rs.getObject(12, Double.class),
+                expiry == null ? null : expiry.toLocalDate());
+    }
+
+    private String formatRow(PerkCatalogRow row, CatalogFormat format) throws JsonProcessingException {
+        if (format == CatalogFormat.NDJSON) {
+            return objectMapper.writeValueAsString(row) + "\n";
+        }
+        return CsvRecordReader.format(Arrays.asList(
+                toText(row.id()), row.title(), row.description(), row.product(),
+                toText(row.membershipId()), row.membershipName(),
+                toText(row.upvotes()), toText(row.downvotes()), row.location(),
+                toText(row.latitude()), toText(row.longitude()), toText(row.coverageKm()),
+                toText(row.expiryDate())));
+    }
+
+    private static String toText(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * Supplies parsed rows one at a time.
+     */
+    private interface RowSource {
+        /**
+         * Reads the next row.
+         *
+         * @param line receives the line number the row started on
+         * @return the next row, {@link #BLANK} for a blank line, or null at end of input
+         * @throws IllegalArgumentException if the row cannot be parsed
+         */
+        PerkCatalogRow next(int[] line) throws IOException;
+    }
+
+    private RowSource csvRows(BufferedReader reader) throws IOException {
+        CsvRecordReader csv = new CsvRecordReader(reader);
+        List<String> header = csv.next();
+        if (header == null) {
+            return line -> null;
+        }
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            index.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!index.containsKey("title")) {
+            throw new IOException("CSV header must include a title column");
+        }
+        return line -> {
+            List<String> fields = csv.next();
+            if (fields == null) {
+                return null;
+            }
+            line[0] = csv.getRecordLine();
+            if (fields.size() == 1 && fields.get(0).isBlank()) {
+                return BLANK;
+            }
+            return new PerkCatalogRow(
+                    null,
+                    field(fields, index, "title"),
+                    field(fields, index, "description"),
+                    field(fields, index, "product"),
+                    parseLong(field(fields, index, "membershipid"), "membershipId"),
+                    field(fields, index, "membershipname"),
+                    parseInt(field(fields, index, "upvotes"), "upvotes"),
+                    parseInt(field(fields, index, "downvotes"), "downvotes"),
+                    field(fields, index, "location"),
+                    parseDouble(field(fields, index, "latitude"), "latitude"),
+                    parseDouble(field(fields, index, "longitude"), "longitude"),
+                    parseDouble(field(fields, index, "coveragekm"), "coverageKm"),
+                    parseDate(field(fields, index, "expirydate")));
+        };
+    }
+
+    private RowSource ndjsonRows(BufferedReader reader) {
+        int[] lineNumber = {0};
+        return line -> {
+            String text = reader.readLine();
+            if (text == null) {
+                return null;
+            }
+            line[0] = ++lineNumber[0];
+            if (text.isBlank()) {
+                return BLANK;
+            }
+            try {
+                return objectMapper.readValue(text, PerkCatalogRow.class);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+            }
+        };
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> index, String column) {
+        Integer position = index.get(column);
+        if (position == null || position >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(position);
+        return value.isEmpty() ? null : value;
+    }
+
+    private static Long parseLong(String value, String column) {
+        try {
+            return value == null ? null : Long.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": " + value);
+        }
+    }
+
+    private static Integer parseInt(String value, String column) {
+        try {
+            return value == null ? null : Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": " + value);
+        }
+    }
+
+    private static Double parseDouble(String value, String column) {
+        try {
+            return value == null ? null : Double.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": " + value);
+        }
+    }
+
+    private static LocalDate parseDate(String value) {
+        try {
+            return value == null ? null : LocalDate.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid expiryDate: " + value);
+        }
+    }
+
+    /**
+     * Finds memberships by ID, or by name (case-insensitive) when no ID is given.
+     */
+    private static final class MembershipLookup {
+        private final Map<Long, Membership> byId = new HashMap<>();
+        private final Map<String, Membership> byName = new HashMap<>();
+
+        MembershipLookup(List<Membership> memberships) {
+            for (Membership membership : memberships) {
+                byId.put(membership.getId(), membership);
+                if (membership.getName() != null) {
+                    byName.put(membership.getName().trim().toLowerCase(Locale.ROOT), membership);
+                }
+            }
+        }
+
+        Membership find(PerkCatalogRow row) {
+            if (row.membershipId() != null) {
+                return byId.get(row.membershipId());
+            }
+            if (row.membershipName() != null) {
+                return byName.get(row.membershipName().trim().toLowerCase(Locale.ROOT));
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Outcome of a catalog import.
+     */
+    public static class ImportResult {
+        private long imported;
+        private long rejected;
+        private final List<String> errors = new ArrayList<>();
+
+        void addImported(long count) {
+            imported += count;
+        }
+
+        void reject(int line, String reason) {
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add("Line " + line + ": " + reason);
+            }
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        /**
+         * Gets the reasons for the first rejected rows (at most 50).
+         *
+         * @return error messages prefixed with their line number
+         */
+        public List<String> getErrors() {
+            return errors;
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package ca.carleton.s4806.perkmanager.service;
+
+import ca.carleton.s4806.perkmanager.config.ReplicaRoutingContext;
+import ca.carleton.s4806.perkmanager.model.Membership;
+import ca.carleton.s4806.perkmanager.model.Perk;
+import ca.carleton.s4806.perkmanager.repository.MembershipRepository;
+import ca.carleton.s4806.perkmanager.repository.PerkRepository;
+import ca.carleton.s4806.perkmanager.repository.PerkSpecifications;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory facet counts of the active perks: how many there are per
+ * product, membership and location.
+ * <p>
+ * The index is built once from the database and then kept current from
+ * {@link CatalogChangeLog}: each read applies the creates and deletes
+ * (including archiving) logged since the last one, and drops perks that
+ * have expired since. A bulk change, or falling further behind than the
+ * log reaches, rebuilds it.
+ * <p>
+ * Counts for a search come from a trigram index over the lower-case title
+ * and product, so they match {@link PerkSpecifications#titleOrProductContains}
+ * without touching the database.
+ * <p>
+ * Reads are serialized with a {@link ReentrantLock} rather than
+ * {@code synchronized}: a rebuild queries the database while holding it,
+ * and a virtual thread blocked inside a monitor would pin its carrier.
+ */
+@Service
+public class PerkFacetIndex {
+
+    /**
+     * Number of perks with one facet value.
+     *
+     * @param value the product or location
+     * @param count the number of active perks with it
+     */
+    public record Bucket(String value, long count) {
+    }
+
+    /**
+     * Number of perks for one membership.
+     *
+     * @param id the membership ID
+     * @param name the membership name
+     * @param count the number of active perks for it
+     */
+    public record MembershipBucket(Long id, String name, long count) {
+    }
+
+    /**
+     * Facet counts, most common values first.
+     *
+     * @param version the catalog version the counts are current to
+     * @param total the number of active perks counted
+     * @param products counts per product
+     * @param memberships counts per membership
+     * @param locations counts per location
+     */
+    public record Facets(long version, long total, List<Bucket> products,
+                         List<MembershipBucket> memberships, List<Bucket> locations) {
+    }
+
+    private record Entry(long id, String title, String product, String productLabel,
+                         Long membershipId, String location, LocalDate expiryDate) {
+    }
+
+    private static final int GRAM = 3;
+
+    private final PerkRepository perkRepository;
+    private final MembershipRepository membershipRepository;
+    private final CatalogChangeLog changeLog;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Counter rebuilds;
+    private final Lock lock = new ReentrantLock();
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private final Map<String, Set<Long>> trigrams = new HashMap<>();
+    private final NavigableMap<LocalDate, Set<Long>> byExpiry = new TreeMap<>();
+    private final Map<String, Long> productCounts = new HashMap<>();
+    private final Map<Long, Long> membershipCounts = new HashMap<>();
+    private final Map<String, Long> locationCounts = new HashMap<>();
+    private final Map<Long, String> membershipNames = new HashMap<>();
+    /** Catalog version applied so far; -1 until the first build. */
+    private long appliedVersion = -1;
+
+    public PerkFacetIndex(PerkRepository perkRepository, MembershipRepository membershipRepository,
+                          CatalogChangeLog changeLog, PlatformTransactionManager transactionManager,
+                          MeterRegistry registry) {
+        this.perkRepository = perkRepository;
+        this.membershipRepository = membershipRepository;
+        this.changeLog = changeLog;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.rebuilds = Counter.builder("perk_facet_index_rebuilds_total")
+                .description("Times the facet index was rebuilt from the database")
+                .register(registry);
+        Gauge.builder("perk_facet_index_perks", this, PerkFacetIndex::size)
+                .description("Active perks held by the facet index")
+                .register(registry);
+    }
+
+    /**
+     * Counts the active perks per facet value.
+     *
+     * @param search restricts the counts to perks whose title or product
+     *               contains this text, ignoring case; null for all perks
+     * @param today the current date; perks expired before it are not counted
+     * @return the facet counts
+     */
+    public Facets facets(String search, LocalDate today) {
+        lock.lock();
+        try {
+            catchUp(today);
+            if (search == null || search.isBlank()) {
+                return new Facets(appliedVersion, entries.size(),
+                        buckets(productCounts),
+                        membershipBuckets(membershipCounts),
+                        buckets(locationCounts));
+            }
+
+            Map<String, Long> products = new HashMap<>();
+            Map<Long, Long> memberships = new HashMap<>();
+            Map<String, Long> locations = new HashMap<>();
+            long total = 0;
+            for (Entry entry : matching(search.toLowerCase())) {
+                total++;
+                increment(products, entry.productLabel());
+                increment(memberships, entry.membershipId());
+                increment(locations, entry.location());
+            }
+            return new Facets(appliedVersion, total,
+                    buckets(products),
+                    membershipBuckets(memberships),
+                    buckets(locations));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies the changes logged since the last read, or rebuilds if they are gone.
+     */
+    private void catchUp(LocalDate today) {
+        CatalogChangeLog.Delta delta = appliedVersion < 0 ? null : changeLog.changesSince(appliedVersion);
+        if (delta == null || delta.fullResync()) {
+            rebuild(today);
+        } else {
+            for (CatalogChangeLog.Change change : delta.changes()) {
+                switch (change.type()) {
+                    case CREATED -> add(change.perk(), today);
+                    case DELETED -> remove(change.perkId());
+                    case VOTED -> {
+                        // Votes do not change any facet
+                    }
+                }
+            }
+            appliedVersion = delta.version();
+        }
+        // Perks stay in the table until the nightly archive, but stop counting once expired
+        NavigableMap<LocalDate, Set<Long>> expired = byExpiry.headMap(today, false);
+        for (Set<Long> ids : List.copyOf(expired.values())) {
+            List.copyOf(ids).forEach(this::remove);
+        }
+        expired.clear();
+    }
+
+    private void rebuild(LocalDate today) {
+        // Changes made while the query runs are applied again on the next read, which is harmless
+        long version = changeLog.getVersion();
+        entries.clear();
+        trigrams.clear();
+        byExpiry.clear();
+        productCounts.clear();
+        membershipCounts.clear();
+        locationCounts.clear();
+        // The log is only complete relative to the primary, so do not read a lagging replica
+        boolean pinned = ReplicaRoutingContext.isPinnedToPrimary();
+        ReplicaRoutingContext.pinToPrimary();
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<Perk> perks = perkRepository.streamAll(PerkSpecifications.active(today), Sort.unsorted())) {
+                    perks.forEach(perk -> add(perk, today));
+                }
+            });
+        } finally {
+            if (!pinned) {
+                ReplicaRoutingContext.clear();
+            }
+        }
+        appliedVersion = version;
+        rebuilds.increment();
+    }
+
+    private void add(Perk perk, LocalDate today) {
+        if (perk == null || perk.getId() == null || perk.isExpiredOn(today)) {
+            return;
+        }
+        remove(perk.getId());
+        Membership membership = perk.getMembership();
+        Long membershipId = membership == null ? null : membership.getId();
+        if (membership != null && membership.getName() != null) {
+            membershipNames.put(membershipId, membership.getName());
+        }
+        Entry entry = new Entry(perk.getId(),
+                lower(perk.getTitle()),
+                lower(perk.getProduct()),
+                perk.getProduct(),
+                membershipId,
+                perk.getLocation(),
+                perk.getExpiryDate());
+        entries.put(entry.id(), entry);
+        for (String gram : grams(entry)) {
+            trigrams.computeIfAbsent(gram, key -> new HashSet<>()).add(entry.id());
+        }
+        if (entry.expiryDate() != null) {
+            byExpiry.computeIfAbsent(entry.expiryDate(), key -> new HashSet<>()).add(entry.id());
+        }
+        increment(productCounts, entry.productLabel());
+        increment(membershipCounts, entry.membershipId());
+        increment(locationCounts, entry.location());
+    }
+
+    private void remove(Long perkId) {
+        Entry entry = entries.remove(perkId);
+        if (entry == null) {
+            return;
+        }
+        for (String gram : grams(entry)) {
+            Set<Long> ids = trigrams.get(gram);
+            ids.remove(perkId);
+            if (ids.isEmpty()) {
+                trigrams.remove(gram);
+            }
+        }
+        if (entry.expiryDate() != null) {
+            Set<Long> ids = byExpiry.get(entry.expiryDate());
+            if (ids != null && ids.remove(perkId) && ids.isEmpty()) {
+                byExpiry.remove(entry.expiryDate());
+            }
+        }
+        decrement(productCounts, entry.productLabel());
+        decrement(membershipCounts, entry.membershipId());
+        decrement(locationCounts, entry.location());
+    }
+
+    /**
+     * Finds the entries whose title or product contains the keyword.
+     * Keywords shorter than a trigram check every entry.
+     */
+    private List<Entry> matching(String keyword) {
+        Collection<Long> candidates = entries.keySet();
+        if (keyword.length() >= GRAM) {
+            // Start from the rarest trigram; every match must contain all of them
+            Set<Long> smallest = null;
+            for (String gram : grams(keyword)) {
+                Set<Long> ids = trigrams.get(gram);
+                if (ids == null) {
+                    return List.of();
+                }
+                if (smallest == null || ids.size() < smallest.size()) {
+                    smallest = ids;
+                }
+            }
+            candidates = smallest;
+        }
+
+        List<Entry> matches = new ArrayList<>();
+        for (Long id : candidates) {
+            Entry entry = entries.get(id);
+            if (entry.title().contains(keyword) || entry.product().contains(keyword)) {
+                matches.add(entry);
+            }
+        }
+        return matches;
+    }
+
+    private static Set<String> grams(Entry entry) {
+        Set<String> grams = grams(entry.title());
+        grams.addAll(grams(entry.product()));
+        return grams;
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private List<MembershipBucket> membershipBuckets(Map<Long, Long> counts) {
+        List<MembershipBucket> buckets = new ArrayList<>(counts.size());
+        for (Map.Entry<Long, Long> count : counts.entrySet()) {
+            buckets.add(new MembershipBucket(count.getKey(), membershipName(count.getKey()), count.getValue()));
+        }
+        buckets.sort(Comparator.comparingLong(MembershipBucket::count).reversed()
+                .thenComparing(MembershipBucket::id));
+        return buckets;
+    }
+
+    /**
+     * Perks created through the API may only carry the membership ID.
+     */
+    private String membershipName(Long id) {
+        String name = membershipNames.get(id);
+        if (name == null) {
+            name = membershipRepository.findById(id).map(Membership::getName).orElse(null);
+            if (name != null) {
+                membershipNames.put(id, name);
+            }
+        }
+        return name;
+    }
+
+    private static List<Bucket> buckets(Map<String, Long> counts) {
+        List<Bucket> buckets = new ArrayList<>(counts.size());
+        for (Map.Entry<String, Long> count : counts.entrySet()) {
+            buckets.add(new Bucket(count.getKey(), count.getValue()));
+        }
+        buckets.sort(Comparator.comparingLong(Bucket::count).reversed()
+                .thenComparing(Bucket::value));
+        return buckets;
+    }
+
+    private static <K> void increment(Map<K, Long> counts, K key) {
+        if (key != null) {
+            counts.merge(key, 1L, Long::sum);
+        }
+    }
+
+    private static <K> void decrement(Map<K, Long> counts, K key) {
+        if (key != null) {
+            counts.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    private static String lower(String text) {
+        return text == null ? "" : text.toLowerCase();
+    }
+}
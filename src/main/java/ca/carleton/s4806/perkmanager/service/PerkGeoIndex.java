@@ -0,0 +1,215 @@
+package ca.carleton.s4806.perkmanager.service;
+
+import ca.carleton.s4806.perkmanager.config.ReplicaRoutingContext;
+import ca.carleton.s4806.perkmanager.model.Perk;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory spatial index of the live perks that have coordinates, for
+ * {@code near=} lookups on the perk listing.
+ * <p>
+ * Kept current from {@link CatalogChangeLog} like {@link PerkFacetIndex}:
+ * a lookup first applies the creates and deletes logged since the last one.
+ * A bulk change rebuilds it with one query. Expiry is left to the listing
+ * query, which only returns active perks anyway.
+ * <p>
+ * Lookups share a read lock, so they run in parallel; catching up takes
+ * the write lock. Lookup times are published as {@code perk_geo_lookup_seconds}.
+ * <p>
+ * The matches are combined with the other listing criteria in the database,
+ * {@code perkmanager.geo.id-batch-size} IDs per query, so a wide search or a
+ * perk covering a whole region never turns into one unbounded IN-list.
+ */
+@Service
+public class PerkGeoIndex {
+
+    /**
+     * A search circle.
+     *
+     * @param latitude the latitude in degrees
+     * @param longitude the longitude in degrees
+     * @param radiusKm the radius in kilometres
+     */
+    public record Near(double latitude, double longitude, double radiusKm) {
+
+        /**
+         * Largest search radius accepted, in kilometres.
+         */
+        public static final double MAX_RADIUS_KM = 500;
+
+        /**
+         * Parses a {@code near=lat,lon} parameter.
+         *
+         * @param near the coordinates, e.g. {@code "45.42,-75.69"}
+         * @param radiusKm the search radius in kilometres
+         * @return the search circle
+         * @throws IllegalArgumentException if the coordinates or radius are invalid
+         */
+        public static Near parse(String near, double radiusKm) {
+            String[] parts = near.split(",");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("near must be latitude,longitude");
+            }
+            double latitude;
+            double longitude;
+            try {
+                latitude = Double.parseDouble(parts[0].trim());
+                longitude = Double.parseDouble(parts[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("near must be latitude,longitude");
+            }
+            if (!(latitude >= -90 && latitude <= 90) || !(longitude >= -180 && longitude <= 180)) {
+                throw new IllegalArgumentException("near is outside the valid latitude/longitude range");
+            }
+            if (!(radiusKm >= 0 && radiusKm <= MAX_RADIUS_KM)) {
+                throw new IllegalArgumentException("radiusKm must be between 0 and " + (int) MAX_RADIUS_KM);
+            }
+            return new Near(latitude, longitude, radiusKm);
+        }
+    }
+
+    private final EntityManager entityManager;
+    private final CatalogChangeLog changeLog;
+    private final TransactionTemplate readOnlyTransaction;
+    private final GeoGrid grid = new GeoGrid();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Counter rebuilds;
+    private final Timer lookups;
+    private final int idBatchSize;
+    /** Catalog version applied so far; -1 until the first build. */
+    private volatile long appliedVersion = -1;
+
+    public PerkGeoIndex(EntityManager entityManager, CatalogChangeLog changeLog,
+                        PlatformTransactionManager transactionManager, MeterRegistry registry,
+                        @Value("${perkmanager.geo.id-batch-size:500}") int idBatchSize) {
+        this.entityManager = entityManager;
+        this.changeLog = changeLog;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.idBatchSize = idBatchSize;
+        this.rebuilds = Counter.builder("perk_geo_index_rebuilds_total")
+                .description("Times the spatial index was rebuilt from the database")
+                .register(registry);
+        this.lookups = Timer.builder("perk_geo_lookup_seconds")
+                .description("Time to find the perks near a location in the spatial index")
+                .register(registry);
+        Gauge.builder("perk_geo_index_perks", this, PerkGeoIndex::size)
+                .description("Live perks with coordinates held by the spatial index")
+                .register(registry);
+    }
+
+    /**
+     * Finds the live perks whose coverage reaches the search circle.
+     *
+     * @param near the search circle
+     * @return the perk IDs
+     */
+    public Set<Long> within(Near near) {
+        catchUp();
+        long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            return grid.within(near.latitude(), near.longitude(), near.radiusKm());
+        } finally {
+            lock.readLock().unlock();
+            lookups.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Gets the most matched IDs to put in one listing query.
+     *
+     * @return the batch size
+     */
+    public int getIdBatchSize() {
+        return idBatchSize;
+    }
+
+    private int size() {
+        lock.readLock().lock();
+        try {
+            return grid.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void catchUp() {
+        if (appliedVersion == changeLog.getVersion()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            CatalogChangeLog.Delta delta = appliedVersion < 0 ? null : changeLog.changesSince(appliedVersion);
+            if (delta == null || delta.fullResync()) {
+                rebuild();
+                return;
+            }
+            for (CatalogChangeLog.Change change : delta.changes()) {
+                switch (change.type()) {
+                    case CREATED -> add(change.perk());
+                    case DELETED -> grid.remove(change.perkId());
+                    case VOTED -> {
+                        // Votes do not move perks
+                    }
+                }
+            }
+            appliedVersion = delta.version();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void rebuild() {
+        // Changes made while the query runs are applied again on the next lookup, which is harmless
+        long version = changeLog.getVersion();
+        grid.clear();
+        // The log is only complete relative to the primary, so do not read a lagging replica
+        boolean pinned = ReplicaRoutingContext.isPinnedToPrimary();
+        ReplicaRoutingContext.pinToPrimary();
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<Tuple> rows = entityManager.createQuery("""
+                                select p.id, p.latitude, p.longitude, p.coverageKm from Perk p
+                                where p.latitude is not null and p.longitude is not null""", Tuple.class)
+                        .setHint(HibernateHints.HINT_FETCH_SIZE, 1000)
+                        .getResultStream()) {
+                    rows.forEach(row -> grid.put(row.get(0, Long.class), row.get(1, Double.class),
+                            row.get(2, Double.class), coverage(row.get(3, Double.class))));
+                }
+            });
+        } finally {
+            if (!pinned) {
+                ReplicaRoutingContext.clear();
+            }
+        }
+        appliedVersion = version;
+        rebuilds.increment();
+    }
+
+    private void add(Perk perk) {
+        if (perk != null && perk.getId() != null && perk.hasCoordinates()) {
+            grid.put(perk.getId(), perk.getLatitude(), perk.getLongitude(), coverage(perk.getCoverageKm()));
+        }
+    }
+
+    private static double coverage(Double coverageKm) {
+        return coverageKm == null ? 0 : coverageKm;
+    }
+}
@@ -0,0 +1,213 @@
+package ca.carleton.s4806.perkmanager.service;
+
+import ca.carleton.s4806.perkmanager.config.ReadReplicaProperties;
+import ca.carleton.s4806.perkmanager.model.Perk;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+
+/**
+ * Caches the ordered perk IDs of {@code GET /api/perks} results, keyed by the
+ * normalized search keyword, sort and day.
+ * <p>
+ * Only IDs are kept. A hit loads the perks through the second-level cache,
+ * so vote counts are always current and a vote only invalidates entries
+ * whose order depends on votes (score, upvote or downvote sorts) and that
+ * contain the voted perk. A new perk invalidates only entries whose search
+ * it matches; a deleted one only entries that contain it. Bulk changes
+ * ({@link CatalogChangeLog#markReset()}) invalidate everything.
+ * <p>
+ * Caffeine bounds the cache by total weight (about 8 bytes per cached ID)
+ * and evicts with W-TinyLFU, so popular searches stay while one-off ones
+ * are dropped. Hits, misses and evictions are published as
+ * {@code cache_*{cache="perk_listing"}} metrics.
+ */
+@Service
+public class PerkListingCache {
+
+    /**
+     * Normalized listing parameters.
+     *
+     * @param search the lower-case search keyword, or null for no search
+     * @param sort the resolved sort, e.g. {@code "title: ASC"} or {@code "score:true"}
+     * @param day the day the list was computed for; expiry depends on it
+     */
+    public record Key(String search, String sort, LocalDate day) {
+    }
+
+    private record Entry(long[] ids, boolean voteOrdered, long resetVersion) {
+    }
+
+    private final Cache<Key, Entry> cache;
+    private final EntityManager entityManager;
+    private final CatalogChangeLog changeLog;
+    private final Duration settleTime;
+    private final MeterRegistry registry;
+    /** Bumped by every invalidation, so a result computed across one is not stored. */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public PerkListingCache(EntityManager entityManager,
+                            CatalogChangeLog changeLog,
+                            ObjectProvider<ReadReplicaProperties> readReplicaProperties,
+                            MeterRegistry registry,
+                            @Value("${perkmanager.listing-cache.max-size:32MB}") DataSize maxSize,
+                            @Value("${perkmanager.listing-cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.entityManager = entityManager;
+        this.changeLog = changeLog;
+        this.registry = registry;
+        this.settleTime = readReplicaProperties.stream()
+                .map(ReadReplicaProperties::getReplicaLagTolerance)
+                .findFirst()
+                .orElse(Duration.ZERO);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((Key key, Entry entry) -> 64 + entry.ids().length * Long.BYTES)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "perk_listing");
+    }
+
+    /**
+     * Marks the start of a load, before the query runs.
+     *
+     * @return a token to pass to {@link #put}
+     */
+    public long beginLoad() {
+        return invalidations.get();
+    }
+
+    /**
+     * Gets a cached listing, loading the perks by ID. Must be called inside a transaction.
+     *
+     * @param key the listing parameters
+     * @return the perks in listing order, or null if not cached
+     */
+    public List<Perk> get(Key key) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.resetVersion() != changeLog.getResetVersion()) {
+            cache.invalidate(key);
+            return null;
+        }
+        List<Long> ids = Arrays.stream(entry.ids()).boxed().toList();
+        // multiLoad reads through the second-level cache and keeps the order of the IDs
+        List<Perk> loaded = entityManager.unwrap(Session.class)
+                .byMultipleIds(Perk.class)
+                .multiLoad(ids);
+        List<Perk> perks = new ArrayList<>(loaded.size());
+        for (Perk perk : loaded) {
+            // Perks deleted or archived since keep their place empty
+            if (perk != null) {
+                perks.add(perk);
+            }
+        }
+        return perks;
+    }
+
+    /**
+     * Stores a listing unless it may already be out of date.
+     *
+     * @param key the listing parameters
+     * @param perks the perks in listing order
+     * @param voteOrdered whether the order depends on vote counts
+     * @param token the value {@link #beginLoad()} returned before the query
+     */
+    public void put(Key key, List<Perk> perks, boolean voteOrdered, long token) {
+        if (invalidations.get() != token) {
+            return;
+        }
+        // With read replicas the result may not include the latest writes yet
+        if (!settleTime.isZero() && System.currentTimeMillis() - changeLog.getLastChangeMillis() < settleTime.toMillis()) {
+            return;
+        }
+        long[] ids = perks.stream().mapToLong(Perk::getId).toArray();
+        cache.put(key, new Entry(ids, voteOrdered, changeLog.getResetVersion()));
+    }
+
+    /**
+     * Drops the listings a new perk belongs in: those without a search and
+     * those whose keyword its title or product contains.
+     *
+     * @param perk the created perk
+     */
+    public void onCreated(Perk perk) {
+        String title = perk.getTitle() == null ? "" : perk.getTitle().toLowerCase();
+        String product = perk.getProduct() == null ? "" : perk.getProduct().toLowerCase();
+        invalidateIf("created", (key, entry) -> key.search() == null
+                || title.contains(key.search())
+                || product.contains(key.search()));
+    }
+
+    /**
+     * Drops the vote-ordered listings that contain the voted perk.
+     *
+     * @param perkId the voted perk
+     */
+    public void onVoted(Long perkId) {
+        invalidateIf("voted", (key, entry) -> entry.voteOrdered() && contains(entry, perkId));
+    }
+
+    /**
+     * Drops the listings that contain the deleted perk.
+     *
+     * @param perkId the deleted perk
+     */
+    public void onDeleted(Long perkId) {
+        invalidateIf("deleted", (key, entry) -> contains(entry, perkId));
+    }
+
+    /**
+     * Drops every cached listing, for writes that bypass the hooks above.
+     */
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    private void invalidateIf(String cause, BiPredicate<Key, Entry> affected) {
+        invalidations.incrementAndGet();
+        int[] removed = new int[1];
+        cache.asMap().entrySet().removeIf(mapping -> {
+            boolean remove = affected.test(mapping.getKey(), mapping.getValue());
+            if (remove) {
+                removed[0]++;
+            }
+            return remove;
+        });
+        Counter.builder("perk_listing_cache_invalidations_total")
+                .description("Cached perk listings dropped because a write affected them")
+                .tag("cause", cause)
+                .register(registry)
+                .increment(removed[0]);
+    }
+
+    private static boolean contains(Entry entry, Long perkId) {
+        long id = Objects.requireNonNull(perkId);
+        for (long cached : entry.ids()) {
+            if (cached == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
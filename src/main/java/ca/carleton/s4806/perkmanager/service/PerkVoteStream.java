@@ -0,0 +1,263 @@
+package ca.carleton.s4806.perkmanager.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes live vote counts to browsers over Server-Sent Events.
+ * <p>
+ * Votes are not sent one by one. The latest counts per perk are collected and
+ * flushed every {@code perkmanager.stream.coalesce-window}, so a burst of votes
+ * on one perk becomes a single update. Each flush is serialized once and
+ * queued for every subscriber; the connections are held as async requests,
+ * not by a thread each.
+ * <p>
+ * Writes to a connection block while the client is not reading, so each
+ * subscriber has its own bounded queue, drained by a small pool of sender
+ * threads, and one slow client cannot hold up the others. A subscriber with
+ * {@code perkmanager.stream.max-queued} events still unsent has fallen
+ * behind: it is completed and dropped, and its EventSource reconnects.
+ */
+@Service
+public class PerkVoteStream implements DisposableBean {
+
+    /**
+     * Counts pushed to clients for one perk.
+     *
+     * @param perkId the perk ID
+     * @param upvotes the current upvote count
+     * @param downvotes the current downvote count
+     */
+    public record VoteCounts(Long perkId, Integer upvotes, Integer downvotes) {
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(PerkVoteStream.class);
+
+    private static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(20);
+
+    /**
+     * An open stream and the events not yet written to it.
+     */
+    private final class Subscriber {
+
+        final SseEmitter emitter;
+        final BlockingQueue<Set<DataWithMediaType>> queue;
+        final AtomicBoolean sending = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter, int maxQueued) {
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(maxQueued);
+        }
+
+        /**
+         * Writes the queued events in order, on a sender thread.
+         */
+        void drain() {
+            try {
+                Set<DataWithMediaType> event;
+                while ((event = queue.poll()) != null) {
+                    emitter.send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client went away
+                drop(this, e);
+            } finally {
+                sending.set(false);
+            }
+            // An event queued after the last poll but before the flag was cleared
+            if (!queue.isEmpty() && subscribers.contains(this)) {
+                schedule(this);
+            }
+        }
+    }
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Map<Long, VoteCounts> pending = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper;
+    private final Duration timeout;
+    private final int maxQueued;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService senders;
+    private final Counter votesReceived;
+    private final Counter updatesSent;
+    private final Counter slowSubscribers;
+    private long lastSendNanos = System.nanoTime();
+
+    public PerkVoteStream(ObjectMapper objectMapper,
+                          MeterRegistry registry,
+                          @Value("${perkmanager.stream.coalesce-window:250ms}") Duration window,
+                          @Value("${perkmanager.stream.timeout:30m}") Duration timeout,
+                          @Value("${perkmanager.stream.max-queued:16}") int maxQueued,
+                          @Value("${perkmanager.stream.send-threads:4}") int sendThreads) {
+        this.objectMapper = objectMapper;
+        this.timeout = timeout;
+        this.maxQueued = Math.max(1, maxQueued);
+        this.votesReceived = Counter.builder("perk_stream_votes_total")
+                .description("Votes received by the live vote stream, before coalescing")
+                .register(registry);
+        this.updatesSent = Counter.builder("perk_stream_updates_total")
+                .description("Per-perk vote updates flushed to subscribers after coalescing")
+                .register(registry);
+        this.slowSubscribers = Counter.builder("perk_stream_slow_subscribers_total")
+                .description("Live vote streams dropped because the client fell behind")
+                .register(registry);
+        Gauge.builder("perk_stream_subscribers", subscribers, List::size)
+                .description("Open live vote stream connections")
+                .register(registry);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "perk-vote-stream");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger senderCount = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(Math.max(1, sendThreads), runnable -> {
+            Thread thread = new Thread(runnable, "perk-vote-stream-send-" + senderCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, window.toMillis());
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                // An exception would cancel the schedule, so log it and keep going
+                log.warn("Could not flush vote updates", e);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens a new stream. The browser's EventSource reconnects by itself once it times out.
+     *
+     * @return the emitter to return from the controller
+     */
+    public SseEmitter subscribe() {
+        return subscribe(new SseEmitter(timeout.toMillis()));
+    }
+
+    SseEmitter subscribe(SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter, maxQueued);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    /**
+     * Records the new counts of a voted perk; they are sent with the next flush.
+     *
+     * @param event the vote that was saved
+     */
+    @EventListener
+    public void onVote(PerkVotedEvent event) {
+        votesReceived.increment();
+        pending.put(event.perkId(), new VoteCounts(event.perkId(), event.upvotes(), event.downvotes()));
+    }
+
+    /**
+     * Queues the collected counts for every subscriber, or a heartbeat comment
+     * if nothing has been sent for a while, so idle connections are not dropped
+     * by proxies and dead ones are noticed.
+     */
+    void flush() {
+        List<VoteCounts> updates = new ArrayList<>(pending.size());
+        for (Long perkId : pending.keySet()) {
+            VoteCounts counts = pending.remove(perkId);
+            if (counts != null) {
+                updates.add(counts);
+            }
+        }
+        SseEmitter.SseEventBuilder event;
+        if (!updates.isEmpty()) {
+            try {
+                event = SseEmitter.event()
+                        .name("votes")
+                        .data(objectMapper.writeValueAsString(updates), MediaType.APPLICATION_JSON);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+            updatesSent.increment(updates.size());
+        } else if (System.nanoTime() - lastSendNanos >= HEARTBEAT_INTERVAL.toNanos()) {
+            event = SseEmitter.event().comment("heartbeat");
+        } else {
+            return;
+        }
+        lastSendNanos = System.nanoTime();
+        // Built once: building appends to the builder, so it cannot be shared between senders
+        Set<DataWithMediaType> data = event.build();
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.queue.offer(data)) {
+                schedule(subscriber);
+            } else {
+                slowSubscribers.increment();
+                subscribers.remove(subscriber);
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.sending.compareAndSet(false, true)) {
+            try {
+                senders.execute(subscriber::drain);
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+                subscriber.sending.set(false);
+            }
+        }
+    }
+
+    private void drop(Subscriber subscriber, Exception cause) {
+        subscribers.remove(subscriber);
+        subscriber.queue.clear();
+        subscriber.emitter.completeWithError(cause);
+    }
+
+    /**
+     * Gets the number of open streams.
+     *
+     * @return the subscriber count
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+    }
+}
@@ -0,0 +1,11 @@
+package ca.carleton.s4806.perkmanager.service;
+
+/**
+ * Published after a vote on a perk has been saved.
+ *
+ * @param perkId the perk that was voted on
+ * @param upvotes the perk's upvote count after the vote
+ * @param downvotes the perk's downvote count after the vote
+ */
+public record PerkVotedEvent(Long perkId, Integer upvotes, Integer downvotes) {
+}
@@ -0,0 +1,46 @@
+package ca.carleton.s4806.perkmanager.service;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Per-thread flag recording whether the current request has sent SQL to the
+ * database, so {@link AdaptiveConcurrencyLimit} can tell requests served from
+ * the caches from ones that ran a query.
+ * <p>
+ * Registered as Hibernate's statement inspector in application.properties.
+ * Followers of a {@link RequestCoalescer} flight take the leader's answer,
+ * since they waited for its query.
+ */
+public class QueryTracker implements StatementInspector {
+
+    private static final ThreadLocal<Boolean> QUERIED = new ThreadLocal<>();
+
+    /**
+     * Starts tracking a new request on this thread.
+     */
+    public static void reset() {
+        QUERIED.remove();
+    }
+
+    /**
+     * Records that this thread's request depends on a database query.
+     */
+    public static void markQueried() {
+        QUERIED.set(Boolean.TRUE);
+    }
+
+    /**
+     * Checks whether this thread has queried the database since {@link #reset()}.
+     *
+     * @return true if SQL was sent
+     */
+    public static boolean hasQueried() {
+        return Boolean.TRUE.equals(QUERIED.get());
+    }
+
+    @Override
+    public String inspect(String sql) {
+        markQueried();
+        return sql;
+    }
+}
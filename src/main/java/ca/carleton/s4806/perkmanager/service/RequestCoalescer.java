@@ -0,0 +1,99 @@
+package ca.carleton.s4806.perkmanager.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Lets identical concurrent reads share one computation ("single flight").
+ * <p>
+ * The first caller for a key runs the work on its own thread; callers that
+ * arrive with the same key while it is running wait for it and get the same
+ * serialized bytes. Nothing is kept once the work finishes, so this is not a
+ * cache, but a caller that joins a running flight gets a result whose
+ * computation started before it arrived. Callers that must not miss a write
+ * they have already seen put a version of the data in the key, e.g.
+ * {@link CatalogChangeLog#getVersion()}: a write then moves later callers to
+ * a new flight.
+ * <p>
+ * The coalescing ratio is {@code perk_coalesced_requests_total{role="follower"}}
+ * over all {@code perk_coalesced_requests_total} for an endpoint.
+ */
+@Service
+public class RequestCoalescer {
+
+    /**
+     * @param queried set before the result when the work ran a database query, see {@link QueryTracker}
+     */
+    private record Flight(CompletableFuture<byte[]> result, AtomicInteger followers, AtomicBoolean queried) {
+    }
+
+    private final ConcurrentMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private final MeterRegistry registry;
+
+    public RequestCoalescer(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Runs the work, or waits for an identical one already running.
+     *
+     * @param endpoint the endpoint name, used to tag the metrics
+     * @param key the normalized request parameters; equal keys must produce equal responses
+     * @param work computes the response body
+     * @return the response body, possibly shared with other callers
+     */
+    public byte[] execute(String endpoint, String key, Supplier<byte[]> work) {
+        Flight flight = new Flight(new CompletableFuture<>(), new AtomicInteger(), new AtomicBoolean());
+        Flight running = inFlight.putIfAbsent(endpoint + '\n' + key, flight);
+        if (running != null) {
+            running.followers().incrementAndGet();
+            requests(endpoint, "follower").increment();
+            try {
+                byte[] body = running.result().join();
+                // The wait was for the leader's query
+                if (running.queried().get()) {
+                    QueryTracker.markQueried();
+                }
+                return body;
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        requests(endpoint, "leader").increment();
+        try {
+            byte[] body = work.get();
+            flight.queried().set(QueryTracker.hasQueried());
+            flight.result().complete(body);
+            return body;
+        } catch (RuntimeException | Error e) {
+            flight.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(endpoint + '\n' + key, flight);
+            DistributionSummary.builder("perk_coalesced_group_size")
+                    .description("Requests served by one computation, including the one that ran it")
+                    .tag("endpoint", endpoint)
+                    .register(registry)
+                    .record(flight.followers().get() + 1);
+        }
+    }
+
+    private Counter requests(String endpoint, String role) {
+        return Counter.builder("perk_coalesced_requests_total")
+                .description("Coalesced reads by whether they ran the query (leader) or shared its result (follower)")
+                .tag("endpoint", endpoint)
+                .tag("role", role)
+                .register(registry);
+    }
+}
@@ -0,0 +1,227 @@
+package ca.carleton.s4806.perkmanager.service;
+
+import ca.carleton.s4806.perkmanager.config.SyntheticDataProperties;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates a large, realistic-looking catalog as a snapshot file, which
+ * {@link CatalogSnapshotService#load(Path)} then bulk inserts.
+ * <p>
+ * Popularity is skewed the way real catalogs are: a few memberships carry
+ * most perks and most perks have only a handful of votes, both drawn from
+ * Zipf distributions. Users hold between zero and a configurable number of
+ * memberships, and expiry dates are spread over time with a share already
+ * expired. Perks in a city get coordinates scattered around its centre, and
+ * some of them a coverage radius; "Global" and "Canada" perks have none.
+ * Output depends only on the settings and the seed.
+ */
+public class SyntheticCatalogGenerator {
+
+    /**
+     * Password of every generated user, so load tests can log in as any of them.
+     */
+    public static final String PASSWORD = "password";
+
+    private static final List<String> PRODUCTS = List.of(
+            "Groceries", "Travel", "Electronics", "Gas", "Entertainment", "Shopping", "Auto",
+            "Dining", "Transit", "Education", "Software", "Health", "Fitness", "Books", "Movies");
+
+    private static final List<String> OFFERS = List.of(
+            "%d%% off %s", "%d%% cash back on %s", "Double points on %2$s", "Free %2$s upgrade",
+            "%d%% rebate on %s", "Members-only %2$s presale", "Extended warranty on %2$s");
+
+    private static final List<Location> LOCATIONS = List.of(
+            new Location("Global"), new Location("Canada"),
+            new Location("Ottawa, ON", 45.4215, -75.6972),
+            new Location("Toronto, ON", 43.6532, -79.3832),
+            new Location("Montreal, QC", 45.5019, -73.5674),
+            new Location("Vancouver, BC", 49.2827, -123.1207),
+            new Location("Calgary, AB", 51.0447, -114.0719),
+            new Location("Halifax, NS", 44.6488, -63.5752),
+            new Location("Winnipeg, MB", 49.8951, -97.1384),
+            new Location("New York, NY", 40.7128, -74.0060),
+            new Location("London, UK", 51.5072, -0.1276));
+
+    /** Degrees of latitude perks are scattered around a city centre, about 20 km. */
+    private static final double CITY_SPREAD_DEGREES = 0.18;
+
+    private static final List<String> BRANDS = List.of(
+            "Visa", "Mastercard", "Amex", "CAA", "Costco", "StudentID", "Aeroplan", "Scene",
+            "AirMiles", "PC Optimum", "Triangle", "Petro Points", "Marriott", "Hilton", "Via");
+
+    private static final List<String> TIERS = List.of(
+            "Classic", "Gold", "Platinum", "Infinite", "Student", "Family", "Business", "Premier");
+
+    private final SyntheticDataProperties settings;
+    private final LocalDate today;
+
+    /**
+     * Constructs a generator.
+     *
+     * @param settings sizes, distributions and seed
+     * @param today the day expiry dates are spread around
+     */
+    public SyntheticCatalogGenerator(SyntheticDataProperties settings, LocalDate today) {
+        this.settings = settings;
+        this.today = today;
+    }
+
+    /**
+     * Writes the catalog to a snapshot file.
+     *
+     * @param target the file to write
+     * @return number of rows written
+     * @throws IOException if the file cannot be written
+     */
+    public long generate(Path target) throws IOException {
+        SplittableRandom random = new SplittableRandom(settings.getSeed());
+        int membershipCount = Math.max(1, settings.getMemberships());
+        Zipf membershipPopularity = new Zipf(membershipCount, settings.getZipfExponent());
+        Zipf votes = new Zipf(settings.getMaxVotes() + 1, settings.getZipfExponent());
+
+        try (CatalogSnapshotWriter writer = new CatalogSnapshotWriter(
+                new BufferedOutputStream(Files.newOutputStream(target), 64 * 1024))) {
+            writer.beginTable("membership", CatalogSnapshotService.columns("membership"));
+            for (int i = 0; i < membershipCount; i++) {
+                writer.writeRow((long) i + 1, membershipName(i));
+            }
+            writer.endTable();
+
+            writer.beginTable("users", CatalogSnapshotService.columns("users"));
+            for (int i = 1; i <= settings.getUsers(); i++) {
+                String username = String.format("user%07d", i);
+                writer.writeRow((long) i, username, PasswordHashes.hash(PASSWORD, salt(random)), username + "@example.com");
+            }
+            writer.endTable();
+
+            writer.beginTable("user_memberships", CatalogSnapshotService.columns("user_memberships"));
+            int maxHeld = Math.min(membershipCount, Math.max(0, settings.getMaxMembershipsPerUser()));
+            BitSet held = new BitSet(membershipCount);
+            for (int user = 1; user <= settings.getUsers(); user++) {
+                held.clear();
+                // 5% of users hold none; each further membership is 60% as likely as the last
+                int count = 0;
+                while (count < maxHeld && (count == 0 ? random.nextDouble() < 0.95 : random.nextDouble() < 0.6)) {
+                    count++;
+                }
+                while (held.cardinality() < count) {
+                    held.set(membershipPopularity.sample(random));
+                }
+                for (int m = held.nextSetBit(0); m >= 0; m = held.nextSetBit(m + 1)) {
+                    writer.writeRow((long) user, (long) m + 1);
+                }
+            }
+            writer.endTable();
+
+            writer.beginTable("perk", CatalogSnapshotService.columns("perk"));
+            for (int i = 1; i <= settings.getPerks(); i++) {
+                String product = PRODUCTS.get(random.nextInt(PRODUCTS.size()));
+                String title = String.format(OFFERS.get(random.nextInt(OFFERS.size())), 5 + random.nextInt(10) * 5, product);
+                int up = votes.sample(random);
+                int down = votes.sample(random) / 4;
+                Location location = LOCATIONS.get(random.nextInt(LOCATIONS.size()));
+                Double latitude = null;
+                Double longitude = null;
+                Double coverageKm = null;
+                if (location.hasCoordinates()) {
+                    latitude = round(location.latitude() + (random.nextDouble() * 2 - 1) * CITY_SPREAD_DEGREES);
+                    longitude = round(location.longitude() + (random.nextDouble() * 2 - 1) * CITY_SPREAD_DEGREES
+                            / Math.cos(Math.toRadians(location.latitude())));
+                    // Most are a single shop; the rest cover part or all of the city
+                    coverageKm = random.nextDouble() < 0.7 ? null : (double) (1 + random.nextInt(30));
+                }
+                writer.writeRow((long) i, title,
+                        title + " for members. Offer #" + i + ".",
+                        product,
+                        (long) membershipPopularity.sample(random) + 1,
+                        up, down,
+                        location.name(),
+                        latitude, longitude, coverageKm,
+                        expiryDate(random));
+            }
+            writer.endTable();
+            return writer.getRowsWritten();
+        }
+    }
+
+    /**
+     * Rounds to four decimals, about 10 m.
+     */
+    private static double round(double degrees) {
+        return Math.round(degrees * 10_000) / 10_000.0;
+    }
+
+    private static byte[] salt(SplittableRandom random) {
+        byte[] salt = new byte[16];
+        random.nextBytes(salt);
+        return salt;
+    }
+
+    private LocalDate expiryDate(SplittableRandom random) {
+        if (random.nextDouble() < settings.getExpiredFraction()) {
+            return today.minusDays(1 + random.nextInt(365));
+        }
+        int spread = Math.max(1, settings.getExpirySpreadDays());
+        return today.plusDays(random.nextInt(spread));
+    }
+
+    private static String membershipName(int index) {
+        String name = BRANDS.get(index % BRANDS.size());
+        int tier = index / BRANDS.size();
+        if (tier == 0) {
+            return name;
+        }
+        name += " " + TIERS.get((tier - 1) % TIERS.size());
+        int round = (tier - 1) / TIERS.size();
+        return round == 0 ? name : name + " " + (round + 1);
+    }
+
+    /**
+     * A perk location, with the coordinates of its centre if it is a city.
+     */
+    private record Location(String name, Double latitude, Double longitude) {
+
+        Location(String name) {
+            this(name, null, null);
+        }
+
+        boolean hasCoordinates() {
+            return latitude != null;
+        }
+    }
+
+    /**
+     * Samples ranks 0..n-1 with probability proportional to 1/(rank+1)^exponent,
+     * by binary search over the cumulative distribution.
+     */
+    static final class Zipf {
+        private final double[] cumulative;
+
+        Zipf(int n, double exponent) {
+            cumulative = new double[n];
+            double total = 0;
+            for (int rank = 0; rank < n; rank++) {
+                total += 1.0 / Math.pow(rank + 1, exponent);
+                cumulative[rank] = total;
+            }
+            for (int rank = 0; rank < n; rank++) {
+                cumulative[rank] /= total;
+            }
+        }
+
+        int sample(SplittableRandom random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            int rank = index >= 0 ? index : -index - 1;
+            return Math.min(rank, cumulative.length - 1);
+        }
+    }
+}
@@ -191,6 +191,9 @@ const SORT_OPTION_CONFIG = Object.freeze({
     expiryLatest: {sortBy: 'expirydate', direction: 'desc'}
 });
 
+// Only the properties the perk cards show, so the server can skip the rest
+const CARD_FIELDS = 'id,title,description,product,membership,location,expiryDate,score';
+
 let activeSortSnapshot = null;
 let sortWarningElement = null;
 let suppressSortWarning = false;
@@ -287,7 +290,7 @@ async function fetchAndRenderPerks(options = {}) {
 
         // 1. FETCH DATA
         if (currentViewMode === 'recommended') {
-            const url = '/api/perks/recommended';
+            const url = `/api/perks/recommended?fields=${CARD_FIELDS}`;
             const response = await fetch(url);
 
             if (response.status === 401 || response.status === 403) {
@@ -310,12 +313,13 @@ async function fetchAndRenderPerks(options = {}) {
             // "ALL PERKS"
             const params = new URLSearchParams();
             if (search) params.append('search', search);
+            params.append('fields', CARD_FIELDS);
             if (sortBy && sortBy !== 'expirydate') {
                 params.append('sortBy', sortBy);
                 params.append('direction', direction);
             }
 
-            const url = '/api/perks' + (params.toString() ? `?${params.toString()}` : '');
+            const url = `/api/perks?${params.toString()}`;
             const response = await fetch(url);
             if (!response.ok) throw new Error('Network response was not ok');
             perks = await response.json();
@@ -374,16 +378,11 @@ async function handleVote(perkId, voteType) {
         if (redirectIfUnauthorized(response, 'Please log in to vote on perks.')) return;
         if (!response.ok) throw new Error(`Failed to ${voteType}`);
 
-        await response.json();
+        const updated = await response.json();
 
-        const shouldSkipFetch = Boolean(activeSortSnapshot);
-        if (shouldSkipFetch) {
-            updatePerkScoreDisplay(perkId, voteType);
-            showSortWarning();
-        } else {
-            // Re-fetch using current mode
-            await fetchAndRenderPerks({preserveScrollPosition: true});
-        }
+        // Patch the score in place; other browsers get it from the live vote stream
+        setPerkScore(perkId, updated.upvotes, updated.downvotes);
+        if (activeSortSnapshot) showSortWarning();
 
     } catch (error) {
         console.error(`Error ${voteType}ing:`, error);
@@ -393,12 +392,20 @@ async function handleVote(perkId, voteType) {
     }
 }
 
-function updatePerkScoreDisplay(perkId, voteType) {
+function setPerkScore(perkId, upvotes, downvotes) {
     const scoreElement = document.getElementById(`score-${perkId}`);
     if (!scoreElement) return;
-    const currentScore = Number(scoreElement.textContent) || 0;
-    const delta = voteType === 'upvote' ? 1 : -1;
-    scoreElement.textContent = String(currentScore + delta);
+    scoreElement.textContent = String((upvotes ?? 0) - (downvotes ?? 0));
+}
+
+function subscribeToVoteStream() {
+    if (!window.EventSource) return;
+    // EventSource reconnects on its own if the connection drops or times out
+    const source = new EventSource('/api/perks/stream');
+    source.addEventListener('votes', (event) => {
+        const updates = JSON.parse(event.data);
+        updates.forEach(update => setPerkScore(update.perkId, update.upvotes, update.downvotes));
+    });
 }
 
 async function handleDelete(perkId) {
@@ -481,6 +488,7 @@ async function addPerk(e) {
 document.addEventListener("DOMContentLoaded", () => {
     fetchAndPopulateMemberships();
     fetchAndRenderPerks();
+    subscribeToVoteStream();
 
     // Check auth for tab visibility
     const user = localStorage.getItem('perk_user');
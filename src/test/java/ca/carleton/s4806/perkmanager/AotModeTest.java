@@ -0,0 +1,168 @@
+package ca.carleton.s4806.perkmanager;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.ClassUtils;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs the application from its ahead-of-time generated context
+ * (-Dspring.aot.enabled=true) and exercises every controller, and through
+ * them every repository including the custom streaming fragments.
+ * <p>
+ * Needs the classes generated by the "aot" Maven profile, so it is skipped
+ * unless the build ran with -Paot.
+ */
+class AotModeTest {
+
+    private static final String INITIALIZER =
+            PerkManagerApplication.class.getName() + "__ApplicationContextInitializer";
+
+    private static final Logger log = LoggerFactory.getLogger(AotModeTest.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static ApplicationProcess app;
+
+    @BeforeAll
+    static void startInAotMode() throws Exception {
+        assumeTrue(ClassUtils.isPresent(INITIALIZER, AotModeTest.class.getClassLoader()),
+                "No AOT-generated context, build with -Paot");
+
+        app = ApplicationProcess.start(List.of("-Dspring.aot.enabled=true"),
+                "--spring.datasource.url=jdbc:h2:mem:aot-mode",
+                "--perkmanager.snapshot.path=target/aot-mode.snapshot");
+        if (app.awaitPort(Duration.ofSeconds(90)) < 0) {
+            fail("Server did not start:\n" + String.join("\n", app.lastLines()));
+        }
+        assertTrue(app.lastLines().stream().anyMatch(line -> line.contains("Starting AOT-processed")),
+                "Context was not started from the generated initializer");
+
+        assertEquals(201, post("/api/register", "{\"username\":\"aot\",\"password\":\"pw\",\"email\":\"aot@example.com\"}").statusCode());
+        assertEquals(200, post("/api/login", "{\"username\":\"aot\",\"password\":\"pw\"}").statusCode());
+        logFootprint();
+    }
+
+    @AfterAll
+    static void stop() throws Exception {
+        if (app != null) {
+            app.close();
+        }
+    }
+
+    @Test
+    void authController() throws Exception {
+        JsonNode user = json(app.get("/api/current-user"));
+        assertEquals("aot", user.get("username").asText());
+
+        assertEquals(409, post("/api/register", "{\"username\":\"aot\",\"password\":\"x\",\"email\":\"other@example.com\"}").statusCode());
+        assertEquals(401, post("/api/login", "{\"username\":\"aot\",\"password\":\"wrong\"}").statusCode());
+    }
+
+    @Test
+    void membershipControllers() throws Exception {
+        long id = json(post("/api/memberships", "{\"name\":\"AOT Rewards\"}")).get("id").asLong();
+        assertTrue(names(json(app.get("/api/memberships"))).contains("AOT Rewards"));
+
+        HttpResponse<String> updated = app.send("/api/user/memberships", HttpRequest.newBuilder()
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString("{\"membershipIds\":[" + id + "]}")));
+        assertEquals(200, updated.statusCode());
+        assertEquals(List.of("AOT Rewards"), names(json(app.get("/api/user/memberships"))));
+    }
+
+    @Test
+    void perkControllerReadsAndWrites() throws Exception {
+        long membershipId = json(post("/api/memberships", "{\"name\":\"AOT Perks\"}")).get("id").asLong();
+        String perk = """
+                {"title":"AOT Popcorn","description":"Free popcorn","product":"Movies",
+                 "membership":{"id":%d},"location":"Ottawa, ON","expiryDate":"%s"}
+                """.formatted(membershipId, LocalDate.now().plusDays(10));
+        HttpResponse<String> created = post("/api/perks", perk);
+        assertEquals(201, created.statusCode(), created.body());
+        long id = json(created).get("id").asLong();
+
+        JsonNode found = json(app.get("/api/perks?search=aot%20popcorn&sortBy=upvotes&direction=desc"));
+        assertEquals(1, found.size());
+        assertEquals(id, found.get(0).get("id").asLong());
+        assertTrue(app.get("/api/perks?stream=true&search=aot%20popcorn").body().contains("AOT Popcorn"));
+        assertEquals("AOT Popcorn", json(app.get("/api/perks?search=aot%20popcorn&fields=title")).get(0).get("title").asText());
+
+        assertEquals(1, json(post("/api/perks/" + id + "/upvote", "")).get("upvotes").asInt());
+        assertEquals(1, json(post("/api/perks/" + id + "/downvote", "")).get("downvotes").asInt());
+
+        assertTrue(json(app.get("/api/perks/facets")).get("total").asLong() > 0);
+        assertTrue(json(app.get("/api/perks/changes?since=0")).has("version"));
+
+        assertEquals(204, app.send("/api/perks/" + id, HttpRequest.newBuilder().DELETE()).statusCode());
+        assertEquals(0, json(app.get("/api/perks?search=aot%20popcorn")).size());
+    }
+
+    @Test
+    void recommendedPerksForSessionUser() throws Exception {
+        JsonNode recommended = json(app.get("/api/perks/recommended"));
+        assertTrue(recommended.isArray());
+    }
+
+    @Test
+    void catalogExportImportsBack() throws Exception {
+        String ndjson = app.get("/api/perks/export?format=ndjson").body();
+        assertFalse(ndjson.isBlank());
+        String firstLine = ndjson.lines().findFirst().orElseThrow();
+
+        HttpResponse<String> imported = app.send("/api/perks/import", HttpRequest.newBuilder()
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(firstLine + "\n")));
+        assertEquals(200, imported.statusCode(), imported.body());
+        assertEquals(1, json(imported).get("imported").asInt());
+    }
+
+    private static HttpResponse<String> post(String path, String body) throws Exception {
+        return app.send(path, HttpRequest.newBuilder()
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)));
+    }
+
+    private static JsonNode json(HttpResponse<String> response) throws Exception {
+        assertTrue(response.statusCode() < 300, response.statusCode() + " " + response.body());
+        return MAPPER.readTree(response.body());
+    }
+
+    private static List<String> names(JsonNode memberships) {
+        List<String> names = new ArrayList<>();
+        memberships.forEach(membership -> names.add(membership.get("name").asText()));
+        return names;
+    }
+
+    /**
+     * Logs the resident set size, where /proc is available, for comparing
+     * against a run without -Dspring.aot.enabled.
+     */
+    private static void logFootprint() throws Exception {
+        Path status = Path.of("/proc", String.valueOf(app.pid()), "status");
+        if (Files.exists(status)) {
+            Files.readAllLines(status).stream()
+                    .filter(line -> line.startsWith("VmRSS"))
+                    .forEach(line -> log.info("AOT mode {}", line.replaceAll("\\s+", " ")));
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package ca.carleton.s4806.perkmanager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The application running in a JVM of its own, for tests that need a fresh
+ * startup or JVM flags the test JVM does not have. It runs from the test
+ * classpath on a random port; requests share one cookie jar, so a login
+ * carries over to later requests.
+ */
+final class ApplicationProcess implements AutoCloseable {
+
+    private static final Pattern PORT = Pattern.compile("Tomcat started on port (\\d+)");
+    private static final int KEPT_LINES = 40;
+
+    private final Process process;
+    private final Deque<String> lastLines = new ArrayDeque<>();
+    private final CompletableFuture<Integer> port = new CompletableFuture<>();
+    private final HttpClient client = HttpClient.newBuilder().cookieHandler(new CookieManager()).build();
+
+    private ApplicationProcess(Process process) {
+        this.process = process;
+        Thread reader = new Thread(this::readOutput);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Starts the application.
+     *
+     * @param jvmOptions options for the new JVM, e.g. -D system properties
+     * @param args application arguments; --server.port=0 is added
+     * @return the running application
+     */
+    static ApplicationProcess start(List<String> jvmOptions, String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(PerkManagerApplication.class.getName());
+        command.add("--server.port=0");
+        command.addAll(List.of(args));
+        return new ApplicationProcess(new ProcessBuilder(command).redirectErrorStream(true).start());
+    }
+
+    /**
+     * Waits until Tomcat is listening.
+     *
+     * @param timeout how long to wait
+     * @return the port, or -1 if the server did not start in time
+     */
+    int awaitPort(Duration timeout) {
+        try {
+            return port.get(Math.max(1, timeout.toMillis()), TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Sends a request to the application, resolving {@code path} against its port.
+     *
+     * @param path the path and query, e.g. "/api/perks"
+     * @param request the method, headers and body
+     * @return the response
+     */
+    HttpResponse<String> send(String path, HttpRequest.Builder request) throws IOException, InterruptedException {
+        int serverPort = port.getNow(-1);
+        if (serverPort < 0) {
+            throw new IllegalStateException("Server is not listening");
+        }
+        return client.send(request.uri(URI.create("http://localhost:" + serverPort + path))
+                .timeout(Duration.ofSeconds(30))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return send(path, HttpRequest.newBuilder());
+    }
+
+    long pid() {
+        return process.pid();
+    }
+
+    /**
+     * Gets the last lines the application logged, for failure messages.
+     *
+     * @return up to the last 40 lines of output
+     */
+    List<String> lastLines() {
+        synchronized (lastLines) {
+            return List.copyOf(lastLines);
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(10, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+    }
+
+    private void readOutput() {
+        try (BufferedReader output = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = output.readLine()) != null) {
+                synchronized (lastLines) {
+                    lastLines.addLast(line);
+                    if (lastLines.size() > KEPT_LINES) {
+                        lastLines.removeFirst();
+                    }
+                }
+                Matcher matcher = PORT.matcher(line);
+                if (matcher.find()) {
+                    port.complete(Integer.parseInt(matcher.group(1)));
+                }
+            }
+        } catch (IOException e) {
+            port.completeExceptionally(e);
+        }
+        port.completeExceptionally(new IllegalStateException("Process exited"));
+    }
+}
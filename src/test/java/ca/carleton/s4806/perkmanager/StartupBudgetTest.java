@@ -0,0 +1,67 @@
+package ca.carleton.s4806.perkmanager;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Fails when a fresh JVM running the application with the "fast-startup"
+ * profile takes longer than its budget to become ready or to answer its first
+ * request, as reported by {@code perk_startup_ready_seconds} and
+ * {@code perk_startup_first_request_seconds}.
+ * <p>
+ * The default budget of 45 seconds fits a single slow core; tighten it with
+ * -Dstartup.budget-seconds on faster machines.
+ */
+class StartupBudgetTest {
+
+    private static final double BUDGET_SECONDS = Double.parseDouble(System.getProperty("startup.budget-seconds", "45"));
+    private static final Pattern GAUGE = Pattern.compile("(?m)^(perk_startup_\\w+) (\\S+)$");
+
+    @Test
+    void startsAndAnswersFirstRequestWithinBudget() throws Exception {
+        try (ApplicationProcess app = ApplicationProcess.start(List.of(),
+                "--spring.profiles.active=fast-startup",
+                "--spring.datasource.url=jdbc:h2:mem:startup-budget",
+                "--perkmanager.snapshot.path=target/startup-budget.snapshot")) {
+            long deadline = System.nanoTime() + (long) (BUDGET_SECONDS * 1e9);
+            if (app.awaitPort(Duration.ofNanos(deadline - System.nanoTime())) < 0) {
+                fail("Server did not start within " + BUDGET_SECONDS + "s:\n" + String.join("\n", app.lastLines()));
+            }
+
+            // The first request, sent as soon as the server is listening
+            assertEquals(200, app.get("/api/perks").statusCode());
+
+            double ready = Double.NaN;
+            double firstRequest = Double.NaN;
+            while (Double.isNaN(ready) && System.nanoTime() < deadline) {
+                Matcher gauges = GAUGE.matcher(app.get("/actuator/prometheus").body());
+                while (gauges.find()) {
+                    double value = Double.parseDouble(gauges.group(2));
+                    switch (gauges.group(1)) {
+                        case "perk_startup_ready_seconds" -> ready = value;
+                        case "perk_startup_first_request_seconds" -> firstRequest = value;
+                        default -> {
+                        }
+                    }
+                }
+                if (Double.isNaN(ready)) {
+                    Thread.sleep(100);
+                }
+            }
+
+            System.out.printf("Startup with fast-startup: ready after %.2fs, first request answered after %.2fs%n",
+                    ready, firstRequest);
+            assertTrue(ready <= BUDGET_SECONDS, "Ready after " + ready + "s, budget " + BUDGET_SECONDS + "s");
+            assertTrue(firstRequest <= BUDGET_SECONDS,
+                    "First request answered after " + firstRequest + "s, budget " + BUDGET_SECONDS + "s");
+        }
+    }
+}
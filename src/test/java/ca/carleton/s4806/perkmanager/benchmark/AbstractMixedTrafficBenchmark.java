@@ -0,0 +1,335 @@
+package ca.carleton.s4806.perkmanager.benchmark;
+
+import ca.carleton.s4806.perkmanager.model.Membership;
+import ca.carleton.s4806.perkmanager.model.Perk;
+import ca.carleton.s4806.perkmanager.repository.MembershipRepository;
+import ca.carleton.s4806.perkmanager.repository.PerkArchiveRepository;
+import ca.carleton.s4806.perkmanager.repository.PerkRepository;
+import ca.carleton.s4806.perkmanager.repository.UserRepository;
+import ca.carleton.s4806.perkmanager.service.CatalogChangeLog;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Load test of the running server with mixed browse and vote traffic, run once
+ * per request execution mode by its subclasses.
+ * <p>
+ * Many concurrent clients each send one request after another: cached and
+ * in-memory reads (search listing, facets), database reads (sparse and
+ * filtered listings) and upvotes. The in-memory H2 database answers in
+ * microseconds, which a networked database never does, so every JDBC
+ * statement is delayed by {@code benchmark.statement-latency-ms} to stand in
+ * for the round trip. Throughput and latency percentiles are printed per
+ * request type.
+ * <p>
+ * Tune with -Dbenchmark.clients (default 400), -Dbenchmark.seconds (default 20),
+ * -Dbenchmark.warm-up-seconds (default 15)
+ * and -Dbenchmark.statement-latency-ms (default 2).
+ * <p>
+ * The adaptive concurrency limits are off, so every request is served and the
+ * numbers compare the execution modes alone.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "perkmanager.concurrency-limit.enabled=false")
+abstract class AbstractMixedTrafficBenchmark {
+
+    private static final int CLIENTS = Integer.getInteger("benchmark.clients", 400);
+    private static final int SECONDS = Integer.getInteger("benchmark.seconds", 20);
+    private static final long STATEMENT_LATENCY_MS = Long.getLong("benchmark.statement-latency-ms", 2);
+    private static final int WARM_UP_SECONDS = Integer.getInteger("benchmark.warm-up-seconds", 15);
+    private static final int PERKS = 2_000;
+    private static final int MEMBERSHIPS = 20;
+    private static final int PRODUCTS = 40;
+
+    private enum RequestType {
+        SEARCH_LISTING(20), FACETS(15), SPARSE_LISTING(35), FILTERED_LISTING(20), UPVOTE(10);
+
+        private final int share;
+
+        RequestType(int share) {
+            this.share = share;
+        }
+
+        static RequestType pick(int roll) {
+            for (RequestType type : values()) {
+                roll -= type.share;
+                if (roll < 0) {
+                    return type;
+                }
+            }
+            return UPVOTE;
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PerkRepository perkRepository;
+
+    @Autowired
+    private PerkArchiveRepository perkArchiveRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MembershipRepository membershipRepository;
+
+    @Autowired
+    private CatalogChangeLog changeLog;
+
+    private List<Long> perkIds;
+    private List<Long> membershipIds;
+
+    /**
+     * Delays every JDBC statement, standing in for the network round trip to a database server.
+     */
+    @TestConfiguration
+    static class StatementLatency {
+
+        @Bean
+        static BeanPostProcessor statementLatencyDataSource() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource dataSource && STATEMENT_LATENCY_MS > 0) {
+                        return new DelegatingDataSource(dataSource) {
+                            @Override
+                            public Connection getConnection() throws SQLException {
+                                return delayed(Connection.class, super.getConnection());
+                            }
+                        };
+                    }
+                    return bean;
+                }
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T delayed(Class<T> type, T target) {
+            InvocationHandler handler = (proxy, method, args) -> {
+                if (method.getName().startsWith("execute")) {
+                    Thread.sleep(STATEMENT_LATENCY_MS);
+                }
+                try {
+                    Object result = method.invoke(target, args);
+                    if (result instanceof Statement statement && type == Connection.class) {
+                        Class<? extends Statement> statementType = (Class<? extends Statement>) method.getReturnType();
+                        return delayed((Class<Statement>) statementType, statement);
+                    }
+                    return result;
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            };
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+        }
+    }
+
+    /**
+     * The name of the execution mode, for the report.
+     */
+    protected abstract String mode();
+
+    @AfterEach
+    public void tearDown() {
+        perkArchiveRepository.deleteAllInBatch();
+        perkRepository.deleteAllInBatch();
+        userRepository.deleteAll();
+        membershipRepository.deleteAll();
+        changeLog.markReset();
+    }
+
+    @Test
+    public void mixedBrowseAndVoteTraffic() throws Exception {
+        seed();
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .cookieHandler(new CookieManager())
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newFixedThreadPool(2))
+                .build();
+        login(client);
+
+        run(client, WARM_UP_SECONDS);
+        long[][] latencies = run(client, SECONDS);
+
+        long total = Arrays.stream(latencies).mapToLong(samples -> samples.length).sum();
+        System.out.printf("Mixed traffic, %s (%d clients, %ds, %dms per statement):%n",
+                mode(), CLIENTS, SECONDS, STATEMENT_LATENCY_MS);
+        System.out.printf("  %-17s %9s %9s %9s %9s%n", "request", "req/s", "p50", "p99", "max");
+        for (RequestType type : RequestType.values()) {
+            long[] samples = latencies[type.ordinal()];
+            Arrays.sort(samples);
+            System.out.printf("  %-17s %9.0f %7.1fms %7.1fms %7.1fms%n", type.name().toLowerCase(),
+                    samples.length / (double) SECONDS, percentile(samples, 50), percentile(samples, 99),
+                    percentile(samples, 100));
+        }
+        System.out.printf("  %-17s %9.0f%n", "total", total / (double) SECONDS);
+    }
+
+    /**
+     * Runs every client for the given time and returns the latencies in nanoseconds per request type.
+     * <p>
+     * Clients are chains of asynchronous requests, each sent when the previous one completes,
+     * so a few client threads drive them all and leave the CPU to the server.
+     */
+    private long[][] run(HttpClient client, int seconds) throws Exception {
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch done = new CountDownLatch(CLIENTS);
+        List<List<long[]>> perClient = new ArrayList<>();
+        Set<String> failures = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < CLIENTS; i++) {
+            List<long[]> samples = new ArrayList<>();
+            perClient.add(samples);
+            next(client, samples, running, failures, done);
+        }
+        Thread.sleep(TimeUnit.SECONDS.toMillis(seconds));
+        running.set(false);
+        done.await();
+        assertEquals(Set.of(), failures.stream().limit(5).collect(Collectors.toSet()), "Failed requests");
+
+        List<List<Long>> byType = new ArrayList<>();
+        for (RequestType ignored : RequestType.values()) {
+            byType.add(new ArrayList<>());
+        }
+        for (List<long[]> samples : perClient) {
+            for (long[] sample : samples) {
+                byType.get((int) sample[0]).add(sample[1]);
+            }
+        }
+        long[][] latencies = new long[byType.size()][];
+        for (int i = 0; i < byType.size(); i++) {
+            latencies[i] = byType.get(i).stream().mapToLong(Long::longValue).toArray();
+        }
+        return latencies;
+    }
+
+    /**
+     * Sends one client's next request, and the one after that when it completes.
+     */
+    private void next(HttpClient client, List<long[]> samples, AtomicBoolean running,
+                      Set<String> failures, CountDownLatch done) {
+        if (!running.get()) {
+            done.countDown();
+            return;
+        }
+        RequestType type = RequestType.pick(ThreadLocalRandom.current().nextInt(100));
+        long start = System.nanoTime();
+        client.sendAsync(request(type), HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            if (error != null) {
+                failures.add(type + ": " + error);
+            } else if (response.statusCode() >= 300) {
+                failures.add(type + ": " + response.statusCode());
+            }
+            samples.add(new long[]{type.ordinal(), System.nanoTime() - start});
+            next(client, samples, running, failures, done);
+        });
+    }
+
+    private HttpRequest request(RequestType type) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String path = switch (type) {
+            case SEARCH_LISTING -> "/api/perks?search=product+" + random.nextInt(PRODUCTS) + "&sortBy=score";
+            case FACETS -> "/api/perks/facets";
+            case SPARSE_LISTING -> "/api/perks?fields=id,title,score&product=Product+" + random.nextInt(PRODUCTS);
+            case FILTERED_LISTING -> "/api/perks?membershipIds="
+                    + membershipIds.get(random.nextInt(membershipIds.size())) + "&sortBy=score";
+            case UPVOTE -> "/api/perks/" + perkIds.get(random.nextInt(perkIds.size())) + "/upvote";
+        };
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .timeout(Duration.ofSeconds(30));
+        return type == RequestType.UPVOTE
+                ? builder.POST(HttpRequest.BodyPublishers.noBody()).build()
+                : builder.GET().build();
+    }
+
+    private void login(HttpClient client) throws Exception {
+        String credentials = "{\"username\":\"loadtest\",\"password\":\"loadtest\",\"email\":\"loadtest@example.com\"}";
+        for (String path : List.of("/api/register", "/api/login")) {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(credentials))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode() / 100 * 100, path + ": " + response.body());
+        }
+    }
+
+    private void seed() {
+        tearDown();
+        List<Membership> memberships = new ArrayList<>();
+        for (int i = 0; i < MEMBERSHIPS; i++) {
+            memberships.add(new Membership("Membership " + i));
+        }
+        memberships = membershipRepository.saveAll(memberships);
+        membershipIds = memberships.stream().map(Membership::getId).toList();
+
+        Random random = new Random(42);
+        List<Membership> saved = memberships;
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < PERKS; i++) {
+                Perk perk = new Perk("Perk " + i, "Load test perk " + i, "Product " + random.nextInt(PRODUCTS),
+                        saved.get(random.nextInt(MEMBERSHIPS)), LocalDate.now().plusDays(1 + random.nextInt(365)),
+                        "City " + random.nextInt(10));
+                perk.setUpvotes(random.nextInt(100));
+                entityManager.persist(perk);
+            }
+        });
+        perkIds = perkRepository.findAll().stream().map(Perk::getId).toList();
+        // Seeded through the repository, so record it as a bulk change
+        changeLog.markReset();
+    }
+
+    private static double percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = Math.min(sorted.length - 1, (int) Math.ceil(sorted.length * percentile / 100.0) - 1);
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,74 @@
+package ca.carleton.s4806.perkmanager.benchmark;
+
+import ca.carleton.s4806.perkmanager.service.GeoGrid;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures spatial index lookups over two million points.
+ * <p>
+ * Points are clustered around cities, as perks are, with most covering a
+ * single spot, some a city and a few a whole province. Lookups search the
+ * default 25 km around random cities and report the median and 99th
+ * percentile.
+ * <p>
+ * Run with: mvn -B test -Pbenchmark
+ */
+@Tag("benchmark")
+public class GeoGridBenchmark {
+
+    private static final int POINTS = 2_000_000;
+    private static final int CITIES = 500;
+    private static final int LOOKUPS = 20_000;
+    private static final double RADIUS_KM = 25;
+
+    @Test
+    public void lookupsOverTwoMillionPoints() {
+        Random random = new Random(42);
+        double[][] cities = new double[CITIES][];
+        for (int i = 0; i < CITIES; i++) {
+            // Inhabited latitudes, every longitude
+            cities[i] = new double[]{random.nextDouble() * 110 - 50, random.nextDouble() * 360 - 180};
+        }
+
+        GeoGrid grid = new GeoGrid();
+        long start = System.nanoTime();
+        for (int id = 0; id < POINTS; id++) {
+            double[] city = cities[random.nextInt(CITIES)];
+            double roll = random.nextDouble();
+            double coverage = roll < 0.80 ? 0 : roll < 0.9999 ? random.nextDouble() * 30 : 300 + random.nextDouble() * 500;
+            grid.put(id, city[0] + random.nextGaussian() * 0.2, city[1] + random.nextGaussian() * 0.2, coverage);
+        }
+        double buildSeconds = (System.nanoTime() - start) / 1e9;
+
+        // Warm up the JIT
+        for (int i = 0; i < LOOKUPS; i++) {
+            double[] city = cities[random.nextInt(CITIES)];
+            grid.within(city[0], city[1], RADIUS_KM);
+        }
+
+        long[] nanos = new long[LOOKUPS];
+        long matches = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            double[] city = cities[random.nextInt(CITIES)];
+            double latitude = city[0] + random.nextGaussian() * 0.1;
+            double longitude = city[1] + random.nextGaussian() * 0.1;
+            long begin = System.nanoTime();
+            matches += grid.within(latitude, longitude, RADIUS_KM).size();
+            nanos[i] = System.nanoTime() - begin;
+        }
+        Arrays.sort(nanos);
+        double medianMillis = nanos[LOOKUPS / 2] / 1e6;
+        double p99Millis = nanos[LOOKUPS * 99 / 100] / 1e6;
+
+        System.out.printf("Spatial index (%d points, built in %.1fs):%n", grid.size(), buildSeconds);
+        System.out.printf("  %d lookups of %.0f km, %d matches on average%n", LOOKUPS, RADIUS_KM, matches / LOOKUPS);
+        System.out.printf("  median %.3fms, p99 %.3fms%n", medianMillis, p99Millis);
+        assertTrue(medianMillis < 1, "Median lookup took " + medianMillis + "ms");
+    }
+}
@@ -0,0 +1,103 @@
+package ca.carleton.s4806.perkmanager.benchmark;
+
+import ca.carleton.s4806.perkmanager.model.Membership;
+import ca.carleton.s4806.perkmanager.model.Perk;
+import ca.carleton.s4806.perkmanager.repository.MembershipRepository;
+import ca.carleton.s4806.perkmanager.repository.PerkRepository;
+import ca.carleton.s4806.perkmanager.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures insert throughput for 100k perks.
+ * <p>
+ * "Before" forces a JDBC batch size of 1, which is what the identity columns
+ * used to give us (one INSERT round trip per perk). "After" uses the configured
+ * batch size together with the pooled sequence generators.
+ * <p>
+ * Run with: mvn -B test -Pbenchmark
+ */
+@Tag("benchmark")
+@SpringBootTest
+public class PerkBulkInsertBenchmark {
+
+    private static final int PERK_COUNT = 100_000;
+    private static final int CHUNK_SIZE = 1_000;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PerkRepository perkRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MembershipRepository membershipRepository;
+
+    @AfterEach
+    public void tearDown() {
+        perkRepository.deleteAllInBatch();
+        userRepository.deleteAll();
+        membershipRepository.deleteAll();
+    }
+
+    @Test
+    public void insertThroughputBeforeAndAfterBatching() {
+        Membership membership = membershipRepository.save(new Membership("Benchmark"));
+
+        // Warm up the JIT and the connection pool so the first run is not penalised
+        insertPerks(membership, 5_000, 1);
+        perkRepository.deleteAllInBatch();
+
+        double before = insertPerks(membership, PERK_COUNT, 1);
+        perkRepository.deleteAllInBatch();
+        double after = insertPerks(membership, PERK_COUNT, null);
+
+        System.out.printf("Perk inserts (%d rows): row-by-row %.0f rows/s, batched %.0f rows/s (%.1fx)%n",
+                PERK_COUNT, before, after, after / before);
+        assertEquals(PERK_COUNT, perkRepository.count());
+    }
+
+    /**
+     * Inserts perks in chunks, flushing and clearing the persistence context after each chunk.
+     *
+     * @param membership the membership every perk belongs to
+     * @param count number of perks to insert
+     * @param jdbcBatchSize batch size override, or null to use the configured one
+     * @return throughput in rows per second
+     */
+    private double insertPerks(Membership membership, int count, Integer jdbcBatchSize) {
+        long start = System.nanoTime();
+        for (int offset = 0; offset < count; offset += CHUNK_SIZE) {
+            int from = offset;
+            int to = Math.min(count, offset + CHUNK_SIZE);
+            transactionTemplate.executeWithoutResult(status -> {
+                entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+                Membership reference = entityManager.getReference(Membership.class, membership.getId());
+                for (int i = from; i < to; i++) {
+                    entityManager.persist(new Perk("Perk " + i, "Benchmark perk " + i, "Product " + (i % 100),
+                            reference, LocalDate.now().plusDays(i % 365), "Ottawa, ON"));
+                }
+                entityManager.flush();
+                entityManager.clear();
+            });
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        return count / seconds;
+    }
+}
@@ -0,0 +1,181 @@
+package ca.carleton.s4806.perkmanager.benchmark;
+
+import ca.carleton.s4806.perkmanager.model.Membership;
+import ca.carleton.s4806.perkmanager.model.Perk;
+import ca.carleton.s4806.perkmanager.model.PerkField;
+import ca.carleton.s4806.perkmanager.repository.MembershipRepository;
+import ca.carleton.s4806.perkmanager.repository.PerkFilter;
+import ca.carleton.s4806.perkmanager.repository.PerkRepository;
+import ca.carleton.s4806.perkmanager.repository.PerkSpecifications;
+import ca.carleton.s4806.perkmanager.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Measures listing filter queries over 200k perks, with and without the
+ * composite (filter column, active_until) indexes.
+ * <p>
+ * Each combination of criteria is run as the single query the listing
+ * endpoint builds, selecting the columns of a sparse listing so the time is
+ * spent in the database rather than in loading entities.
+ * <p>
+ * Run with: mvn -B test -Pbenchmark
+ */
+@Tag("benchmark")
+@SpringBootTest
+public class PerkFilterBenchmark {
+
+    private static final int PERK_COUNT = 200_000;
+    private static final int CHUNK_SIZE = 1_000;
+    private static final int MEMBERSHIPS = 50;
+    private static final int PRODUCTS = 100;
+    private static final int LOCATIONS = 20;
+    private static final int RUNS = 20;
+
+    /** The composite indexes declared on {@link Perk}. */
+    private static final Map<String, String> COMPOSITE_INDEXES = Map.of(
+            "idx_perk_membership_active", "membership_id, active_until",
+            "idx_perk_product_active", "product, active_until",
+            "idx_perk_location_active", "location, active_until");
+
+    private static final Set<PerkField> FIELDS = EnumSet.of(PerkField.ID, PerkField.TITLE, PerkField.SCORE);
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PerkRepository perkRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MembershipRepository membershipRepository;
+
+    @AfterEach
+    public void tearDown() {
+        COMPOSITE_INDEXES.forEach((name, columns) ->
+                jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + name + " ON perk (" + columns + ")"));
+        perkRepository.deleteAllInBatch();
+        userRepository.deleteAll();
+        membershipRepository.deleteAll();
+    }
+
+    @Test
+    public void filterQueriesWithAndWithoutCompositeIndexes() {
+        List<Membership> memberships = new ArrayList<>();
+        for (int i = 0; i < MEMBERSHIPS; i++) {
+            memberships.add(new Membership("Membership " + i));
+        }
+        memberships = membershipRepository.saveAll(memberships);
+        insertPerks(memberships);
+
+        LocalDate today = LocalDate.now();
+        Long membership = memberships.get(3).getId();
+        Map<String, PerkFilter> combinations = new LinkedHashMap<>();
+        combinations.put("membership", new PerkFilter(List.of(membership), null, null, null, null, null));
+        combinations.put("product", new PerkFilter(null, "Product 7", null, null, null, null));
+        combinations.put("location", new PerkFilter(null, null, "City 2", null, null, null));
+        combinations.put("membership+product", new PerkFilter(List.of(membership), "Product 7", null, null, null, null));
+        combinations.put("membership+expiry window", new PerkFilter(List.of(membership), null, null,
+                today.plusDays(90), today.plusDays(30), null));
+        combinations.put("location+minScore", new PerkFilter(null, null, "City 2", null, null, 50));
+        combinations.put("all", new PerkFilter(List.of(membership), "Product 7", "City 2",
+                today.plusDays(365), today, 0));
+
+        // Discarded pass, so neither variant pays for JIT warm-up or the garbage left by the inserts
+        measure(combinations, today);
+        COMPOSITE_INDEXES.keySet().forEach(name -> jdbcTemplate.execute("DROP INDEX IF EXISTS " + name));
+        Map<String, double[]> withoutIndexes = measure(combinations, today);
+        COMPOSITE_INDEXES.forEach((name, columns) ->
+                jdbcTemplate.execute("CREATE INDEX " + name + " ON perk (" + columns + ")"));
+        Map<String, double[]> withIndexes = measure(combinations, today);
+
+        System.out.printf("Perk filter queries (%d rows, mean of %d runs):%n", PERK_COUNT, RUNS);
+        System.out.printf("  %-26s %8s %12s %12s %8s%n", "criteria", "matches", "no index", "composite", "speedup");
+        for (String name : combinations.keySet()) {
+            double[] before = withoutIndexes.get(name);
+            double[] after = withIndexes.get(name);
+            assertEquals(before[0], after[0], "Indexes must not change the result of " + name);
+            System.out.printf("  %-26s %8.0f %10.2fms %10.2fms %7.1fx%n",
+                    name, after[0], before[1], after[1], before[1] / after[1]);
+        }
+    }
+
+    /**
+     * Runs each combination as the listing query and records its match count and mean time.
+     */
+    private Map<String, double[]> measure(Map<String, PerkFilter> combinations, LocalDate today) {
+        Map<String, double[]> results = new LinkedHashMap<>();
+        for (Map.Entry<String, PerkFilter> combination : combinations.entrySet()) {
+            Specification<Perk> spec = Specification.allOf(
+                    PerkSpecifications.active(today), combination.getValue().forPerks());
+            // Warm up the JIT and the query plan cache
+            int matches = query(spec);
+            long start = System.nanoTime();
+            for (int i = 0; i < RUNS; i++) {
+                query(spec);
+            }
+            double millis = (System.nanoTime() - start) / 1_000_000.0 / RUNS;
+            results.put(combination.getKey(), new double[]{matches, millis});
+        }
+        return results;
+    }
+
+    private int query(Specification<Perk> spec) {
+        Integer size = transactionTemplate.execute(status ->
+                perkRepository.findFields(spec, Sort.unsorted(), FIELDS).size());
+        return size == null ? 0 : size;
+    }
+
+    /**
+     * Inserts perks spread over memberships, products, locations, expiry dates and scores.
+     */
+    private void insertPerks(List<Membership> memberships) {
+        Random random = new Random(42);
+        for (int offset = 0; offset < PERK_COUNT; offset += CHUNK_SIZE) {
+            int from = offset;
+            int to = Math.min(PERK_COUNT, offset + CHUNK_SIZE);
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int i = from; i < to; i++) {
+                    Membership membership = entityManager.getReference(Membership.class,
+                            memberships.get(random.nextInt(MEMBERSHIPS)).getId());
+                    // About 10% expired, the rest spread over the next two years
+                    LocalDate expiry = LocalDate.now().plusDays(random.nextInt(800) - 70);
+                    Perk perk = new Perk("Perk " + i, "Benchmark perk " + i, "Product " + random.nextInt(PRODUCTS),
+                            membership, expiry, "City " + random.nextInt(LOCATIONS));
+                    perk.setUpvotes(random.nextInt(200));
+                    perk.setDownvotes(random.nextInt(100));
+                    entityManager.persist(perk);
+                }
+                entityManager.flush();
+                entityManager.clear();
+            });
+        }
+    }
+}
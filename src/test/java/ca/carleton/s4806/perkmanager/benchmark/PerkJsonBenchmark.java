@@ -0,0 +1,167 @@
+package ca.carleton.s4806.perkmanager.benchmark;
+
+import ca.carleton.s4806.perkmanager.model.Membership;
+import ca.carleton.s4806.perkmanager.model.Perk;
+import ca.carleton.s4806.perkmanager.service.CatalogChangeLog;
+import ca.carleton.s4806.perkmanager.service.CompactPerkEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.util.unit.DataSize;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares ways of writing a listing of 2,000 perks across 20 memberships
+ * to JSON (JMH):
+ * <ul>
+ *     <li>reflection: Jackson as configured before, calling getters reflectively</li>
+ *     <li>blackbird: the same output with the Blackbird module</li>
+ *     <li>compact: {@code compact=true}, memberships listed once and the
+ *     unchanging part of each perk copied from pre-encoded bytes</li>
+ * </ul>
+ * Run with: mvn -B test -Pbenchmark -Dtest=PerkJsonBenchmark
+ */
+@Tag("benchmark")
+public class PerkJsonBenchmark {
+
+    private static final int PERKS = 2_000;
+    private static final int MEMBERSHIPS = 20;
+
+    /**
+     * The perk list and the three encoders.
+     */
+    @State(Scope.Benchmark)
+    public static class Listing {
+
+        List<Perk> perks;
+        ObjectMapper reflection;
+        ObjectMapper blackbird;
+        CompactPerkEncoder compact;
+
+        @Setup
+        public void setUp() {
+            perks = perks();
+            reflection = mapper().build();
+            blackbird = mapper().addModule(new BlackbirdModule()).build();
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            compact = new CompactPerkEncoder(reflection, new CatalogChangeLog(registry, 100), registry,
+                    DataSize.ofMegabytes(16));
+        }
+
+        private static JsonMapper.Builder mapper() {
+            // As Spring Boot configures it
+            return JsonMapper.builder()
+                    .addModule(new JavaTimeModule())
+                    .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 10, time = 1)
+    @Fork(1)
+    public byte[] reflection(Listing listing) throws Exception {
+        return listing.reflection.writeValueAsBytes(listing.perks);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 10, time = 1)
+    @Fork(1)
+    public byte[] blackbird(Listing listing) throws Exception {
+        return listing.blackbird.writeValueAsBytes(listing.perks);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 10, time = 1)
+    @Fork(1)
+    public byte[] compact(Listing listing) {
+        return listing.compact.encode(listing.perks);
+    }
+
+    @Test
+    public void compareEncoders() throws Exception {
+        Listing listing = new Listing();
+        listing.setUp();
+        System.out.printf("Response size: full %,d bytes, compact %,d bytes%n",
+                reflection(listing).length, compact(listing).length);
+
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .include(PerkJsonBenchmark.class.getName() + "\\.")
+                .shouldFailOnError(true)
+                .build()).run();
+
+        Map<String, Double> micros = new TreeMap<>();
+        for (RunResult result : results) {
+            String name = result.getParams().getBenchmark();
+            micros.put(name.substring(name.lastIndexOf('.') + 1), result.getPrimaryResult().getScore());
+        }
+        micros.forEach((name, score) -> System.out.printf("%-10s %,10.1f us per listing%n", name, score));
+        assertTrue(micros.get("compact") < micros.get("reflection"), "Compact encoding was not faster: " + micros);
+    }
+
+    private static List<Perk> perks() {
+        Random random = new Random(42);
+        List<Membership> memberships = new ArrayList<>();
+        for (int i = 0; i < MEMBERSHIPS; i++) {
+            Membership membership = new Membership("Membership " + i);
+            membership.setId((long) i + 1);
+            memberships.add(membership);
+        }
+        String[] products = {"Movies", "Travel", "Dining", "Groceries", "Fuel"};
+        List<Perk> perks = new ArrayList<>(PERKS);
+        for (int i = 0; i < PERKS; i++) {
+            String product = products[random.nextInt(products.length)];
+            Perk perk = new Perk(product + " deal " + i,
+                    "Save on " + product.toLowerCase() + " with your card, up to " + random.nextInt(50) + "% off",
+                    product,
+                    memberships.get(random.nextInt(MEMBERSHIPS)),
+                    random.nextBoolean() ? null : LocalDate.of(2030, 1, 1).plusDays(random.nextInt(365)),
+                    "Ottawa, ON");
+            perk.setId((long) i + 1);
+            perk.setUpvotes(random.nextInt(100));
+            perk.setDownvotes(random.nextInt(20));
+            if (random.nextInt(4) == 0) {
+                perk.setLatitude(45 + random.nextDouble());
+                perk.setLongitude(-76 + random.nextDouble());
+            }
+            perks.add(perk);
+        }
+        return perks;
+    }
+}
@@ -0,0 +1,20 @@
+package ca.carleton.s4806.perkmanager.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Mixed traffic against the default configuration: Tomcat's pool of 200
+ * platform threads in front of the default connection pool.
+ * <p>
+ * Run with: mvn -B test -Pbenchmark -Dtest=*TrafficBenchmark
+ */
+@Tag("benchmark")
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:traffic-platform")
+public class PlatformThreadsTrafficBenchmark extends AbstractMixedTrafficBenchmark {
+
+    @Override
+    protected String mode() {
+        return "platform threads";
+    }
+}
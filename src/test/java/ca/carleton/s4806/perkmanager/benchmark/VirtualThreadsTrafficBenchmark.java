@@ -0,0 +1,25 @@
+package ca.carleton.s4806.perkmanager.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Mixed traffic with the "virtual-threads" profile: a virtual thread per
+ * request, with the connection pool sized in that profile.
+ * <p>
+ * Needs a JDK 21: JAVA_HOME=/path/to/jdk-21 mvn -B test -Pbenchmark,java21 -Dtest=*TrafficBenchmark
+ */
+@Tag("benchmark")
+@EnabledForJreRange(min = JRE.JAVA_21)
+@ActiveProfiles("virtual-threads")
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:traffic-virtual")
+public class VirtualThreadsTrafficBenchmark extends AbstractMixedTrafficBenchmark {
+
+    @Override
+    protected String mode() {
+        return "virtual threads";
+    }
+}
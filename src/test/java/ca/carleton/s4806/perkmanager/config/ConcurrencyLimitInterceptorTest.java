@@ -0,0 +1,95 @@
+package ca.carleton.s4806.perkmanager.config;
+
+import ca.carleton.s4806.perkmanager.service.AdaptiveConcurrencyLimit;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ConcurrencyLimitInterceptorTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private AdaptiveConcurrencyLimit limit;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        limit = new AdaptiveConcurrencyLimit(1, 1, 10, 2.0, Duration.ofMillis(10).toNanos());
+        mockMvc = MockMvcBuilders.standaloneSetup(new LimitedController())
+                .addMappedInterceptors(new String[]{"/limited/**"}, new ConcurrencyLimitInterceptor(
+                        ConcurrencyLimitInterceptor.Group.VOTES, limit, Duration.ofMillis(1500), registry))
+                .build();
+    }
+
+    @Test
+    void requestOverTheLimitGetsServiceUnavailableWithRetryAfter() throws Exception {
+        assertTrue(limit.tryAcquire()); // Another request holds the only permit
+
+        mockMvc.perform(post("/limited/vote"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "2"));
+        assertEquals(1, registry.get("perk_concurrency_rejected_total").tag("group", "votes").functionCounter().count());
+
+        limit.releaseWithoutSample();
+        mockMvc.perform(post("/limited/vote"))
+                .andExpect(status().isOk());
+        assertEquals(0, limit.getInFlight());
+        // A fast request while the only permit was in use grows the limit
+        assertEquals(2, registry.get("perk_concurrency_limit").tag("group", "votes").gauge().value());
+    }
+
+    @Test
+    void otherMethodsAreNotLimited() throws Exception {
+        assertTrue(limit.tryAcquire());
+
+        mockMvc.perform(get("/limited/vote"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void asyncRequestReturnsItsPermitWhenHandedOff() throws Exception {
+        MvcResult result = mockMvc.perform(post("/limited/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertEquals(0, limit.getInFlight());
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+        assertEquals(0, limit.getInFlight());
+    }
+
+    @RestController
+    static class LimitedController {
+        @PostMapping("/limited/vote")
+        public String vote() {
+            return "ok";
+        }
+
+        @GetMapping("/limited/vote")
+        public String read() {
+            return "ok";
+        }
+
+        @PostMapping("/limited/stream")
+        public Callable<String> stream() {
+            return () -> "ok";
+        }
+    }
+}
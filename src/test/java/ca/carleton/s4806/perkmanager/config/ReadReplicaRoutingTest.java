@@ -0,0 +1,133 @@
+package ca.carleton.s4806.perkmanager.config;
+
+import ca.carleton.s4806.perkmanager.model.Membership;
+import ca.carleton.s4806.perkmanager.model.Perk;
+import ca.carleton.s4806.perkmanager.repository.MembershipRepository;
+import ca.carleton.s4806.perkmanager.repository.PerkRepository;
+import ca.carleton.s4806.perkmanager.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Integration tests for read/write routing with two in-memory H2 databases.
+ * Periodic replication is turned off so each test decides when the replica catches up.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary",
+        "perkmanager.datasource.replicas[0].url=jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1",
+        "perkmanager.datasource.replication.enabled=false"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("replica")
+public class ReadReplicaRoutingTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PerkRepository perkRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MembershipRepository membershipRepository;
+
+    @Autowired
+    private LocalReplicationStandIn replication;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    public void setUp() {
+        perkRepository.deleteAll();
+        userRepository.deleteAll();
+        membershipRepository.deleteAll();
+        replication.replicate();
+        // Reads must reach the database to observe routing
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ReplicaRoutingContext.clear();
+    }
+
+    private long countPerks(boolean readOnly) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(readOnly);
+        Long count = template.execute(status -> perkRepository.count());
+        return count == null ? 0 : count;
+    }
+
+    @Test
+    public void readOnlyTransactionsReadFromReplicaUntilReplicated() {
+        Membership visa = membershipRepository.save(new Membership("Visa"));
+        perkRepository.save(new Perk("Lagging Perk", "desc", "Movies", visa, LocalDate.now().plusDays(10), "Ottawa, ON"));
+
+        assertEquals(1, countPerks(false), "read-write transactions use the primary");
+        assertEquals(0, countPerks(true), "replica has not caught up yet");
+
+        replication.replicate();
+
+        assertEquals(1, countPerks(true));
+    }
+
+    @Test
+    public void pinnedThreadReadsFromPrimary() {
+        Membership visa = membershipRepository.save(new Membership("Visa"));
+        perkRepository.save(new Perk("Fresh Perk", "desc", "Movies", visa, LocalDate.now().plusDays(10), "Ottawa, ON"));
+
+        ReplicaRoutingContext.pinToPrimary();
+
+        assertEquals(1, countPerks(true));
+    }
+
+    @Test
+    public void sessionSeesItsOwnVoteBeforeReplication() throws Exception {
+        Membership visa = membershipRepository.save(new Membership("Visa"));
+        Perk perk = perkRepository.save(new Perk("Vote Me", "desc", "Movies", visa, LocalDate.now().plusDays(10), "Ottawa, ON"));
+        replication.replicate();
+
+        MockHttpSession voter = new MockHttpSession();
+        voter.setAttribute("user", new Object());
+
+        mockMvc.perform(post("/api/perks/" + perk.getId() + "/upvote").session(voter))
+                .andExpect(status().isOk());
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+
+        mockMvc.perform(get("/api/perks").session(voter))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].upvotes", is(1)));
+
+        mockMvc.perform(get("/api/perks"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].upvotes", is(0)));
+    }
+}
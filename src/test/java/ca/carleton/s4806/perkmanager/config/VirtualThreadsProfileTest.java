@@ -0,0 +1,88 @@
+package ca.carleton.s4806.perkmanager.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the "virtual-threads" profile runs requests, async tasks and
+ * scheduled tasks on virtual threads. Only runs on Java 21 or later.
+ */
+@EnabledForJreRange(min = JRE.JAVA_21)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.datasource.url=jdbc:h2:mem:virtual-threads")
+@ActiveProfiles("virtual-threads")
+@Import(VirtualThreadsProfileTest.ThreadController.class)
+public class VirtualThreadsProfileTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private AsyncTaskExecutor applicationTaskExecutor;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Autowired
+    private HikariDataSource dataSource;
+
+    /**
+     * Reports whether the request was handled on a virtual thread.
+     */
+    @RestController
+    static class ThreadController {
+
+        @GetMapping("/test/virtual-thread")
+        public boolean virtualThread() {
+            return isVirtual(Thread.currentThread());
+        }
+    }
+
+    @Test
+    public void testRequestsRunOnVirtualThreads() {
+        assertEquals(Boolean.TRUE, restTemplate.getForObject("/test/virtual-thread", Boolean.class));
+    }
+
+    @Test
+    public void testTaskExecutorAndSchedulerUseVirtualThreads() throws Exception {
+        assertTrue(applicationTaskExecutor.submit(() -> isVirtual(Thread.currentThread())).get(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Boolean> scheduled = new CompletableFuture<>();
+        taskScheduler.schedule(() -> scheduled.complete(isVirtual(Thread.currentThread())), Instant.now());
+        assertTrue(scheduled.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testConnectionPoolIsSizedForTheProfile() {
+        assertEquals(40, dataSource.getMaximumPoolSize());
+    }
+
+    /**
+     * Thread.isVirtual() is Java 21 API; the project still compiles for Java 17.
+     */
+    private static boolean isVirtual(Thread thread) {
+        try {
+            return (boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+}
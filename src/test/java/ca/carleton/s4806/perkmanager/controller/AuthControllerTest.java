@@ -3,6 +3,7 @@ package ca.carleton.s4806.perkmanager.controller;
 import ca.carleton.s4806.perkmanager.model.LoginRequest;
 import ca.carleton.s4806.perkmanager.model.User;
 import ca.carleton.s4806.perkmanager.repository.UserRepository;
+import ca.carleton.s4806.perkmanager.service.PasswordHashes;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -70,6 +71,35 @@ class AuthControllerTest {
                 .andExpect(status().isUnauthorized());
     }
 
+    @Test
+    void loginAcceptsHashedPassword() throws Exception {
+        // As restored from a catalog snapshot
+        User user = new User("dave", PasswordHashes.hash("secret"), "dave@example.com", java.util.List.of());
+        when(userRepository.findByUsername("dave")).thenReturn(user);
+
+        mockMvc.perform(post("/api/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new LoginRequest("dave", "secret"))))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new LoginRequest("dave", "wrong"))))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void loginReturnsUnauthorizedWhenUserHasNoPassword() throws Exception {
+        User user = new User("carol", null, "carol@example.com", java.util.List.of());
+        LoginRequest request = new LoginRequest("carol", "anything");
+
+        when(userRepository.findByUsername("carol")).thenReturn(user);
+
+        mockMvc.perform(post("/api/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isUnauthorized());
+    }
+
     @Test
     void logoutInvalidatesSession() throws Exception {
         MockHttpSession session = new MockHttpSession();
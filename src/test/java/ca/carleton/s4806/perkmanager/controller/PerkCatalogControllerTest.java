@@ -0,0 +1,185 @@
+package ca.carleton.s4806.perkmanager.controller;
+
+import ca.carleton.s4806.perkmanager.model.Membership;
+import ca.carleton.s4806.perkmanager.model.Perk;
+import ca.carleton.s4806.perkmanager.repository.MembershipRepository;
+import ca.carleton.s4806.perkmanager.repository.PerkRepository;
+import ca.carleton.s4806.perkmanager.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Integration tests for the bulk export and import endpoints.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class PerkCatalogControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PerkRepository perkRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MembershipRepository membershipRepository;
+
+    private Membership visa;
+    private MockHttpSession authSession;
+
+    @BeforeEach
+    public void setUp() {
+        perkRepository.deleteAll();
+        visa = membershipRepository.save(new Membership("Visa"));
+        authSession = new MockHttpSession();
+        authSession.setAttribute("user", new Object());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        perkRepository.deleteAll();
+        userRepository.deleteAll();
+        membershipRepository.deleteAll();
+    }
+
+    private String export(String format) throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/perks/export").param("format", format).session(authSession))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    @Test
+    public void exportedCsvImportsBackUnchanged() throws Exception {
+        Perk perk = new Perk("Cinema, \"Tuesday\"", "Two lines\nof text", "Movies", visa,
+                LocalDate.now().plusDays(30), "Ottawa, ON");
+        perk.setUpvotes(4);
+        perk.setLatitude(45.4215);
+        perk.setLongitude(-75.6972);
+        perk.setCoverageKm(25.0);
+        perkRepository.save(perk);
+
+        String csv = export("csv");
+        assertTrue(csv.startsWith("id,title,description,product,membershipId,membershipName,"));
+
+        perkRepository.deleteAll();
+        mockMvc.perform(post("/api/perks/import").session(authSession)
+                        .contentType("text/csv")
+                        .content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported", is(1)))
+                .andExpect(jsonPath("$.rejected", is(0)));
+
+        List<Perk> perks = perkRepository.findAll();
+        assertEquals(1, perks.size());
+        assertEquals("Cinema, \"Tuesday\"", perks.get(0).getTitle());
+        assertEquals("Two lines\nof text", perks.get(0).getDescription());
+        assertEquals(4, perks.get(0).getUpvotes());
+        assertEquals(visa.getId(), perks.get(0).getMembership().getId());
+        assertEquals(45.4215, perks.get(0).getLatitude());
+        assertEquals(-75.6972, perks.get(0).getLongitude());
+        assertEquals(25.0, perks.get(0).getCoverageKm());
+    }
+
+    @Test
+    public void exportsNdjsonOneObjectPerLine() throws Exception {
+        perkRepository.save(new Perk("A", "desc", "Movies", visa, LocalDate.now().plusDays(1), "Ottawa, ON"));
+        perkRepository.save(new Perk("B", "desc", "Movies", visa, LocalDate.now().plusDays(2), "Ottawa, ON"));
+
+        String ndjson = export("ndjson");
+
+        String[] lines = ndjson.strip().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"title\":\"A\""));
+        assertTrue(lines[1].contains("\"membershipName\":\"Visa\""));
+        assertTrue(lines[0].contains("\"latitude\":null"));
+    }
+
+    @Test
+    public void importRejectsInvalidCoordinates() throws Exception {
+        String csv = """
+                title,product,latitude,longitude,coverageKm
+                Valid,Movies,45.42,-75.69,10
+                No coordinates,Movies,,,
+                Half,Movies,45.42,,
+                Out of range,Movies,95,0,
+                Negative,Movies,45.42,-75.69,-1
+                Malformed,Movies,north,-75.69,
+                """;
+
+        mockMvc.perform(post("/api/perks/import").session(authSession)
+                        .contentType("text/csv")
+                        .content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported", is(2)))
+                .andExpect(jsonPath("$.rejected", is(4)))
+                .andExpect(jsonPath("$.errors[0]", is("Line 4: Latitude and longitude must be given together.")))
+                .andExpect(jsonPath("$.errors[1]",
+                        is("Line 5: Coordinates are outside the valid latitude/longitude range.")))
+                .andExpect(jsonPath("$.errors[2]", is("Line 6: Coverage cannot be negative.")))
+                .andExpect(jsonPath("$.errors[3]", is("Line 7: Invalid latitude: north")));
+
+        // Imported perks can be found by location
+        mockMvc.perform(get("/api/perks").param("near", "45.42,-75.69"))
+                .andExpect(jsonPath("$[*].title", contains("Valid")));
+    }
+
+    @Test
+    public void importRejectsPastExpiryAndUnknownMembership() throws Exception {
+        String ndjson = """
+                {"title":"Valid","product":"Movies","membershipName":"visa","expiryDate":"%s"}
+                {"title":"Expired","product":"Movies","membershipId":%d,"expiryDate":"%s"}
+
+                {"title":"Orphan","product":"Movies","membershipName":"Nope"}
+                not json
+                """.formatted(LocalDate.now().plusDays(5), visa.getId(), LocalDate.now().minusDays(1));
+
+        mockMvc.perform(post("/api/perks/import").session(authSession)
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported", is(1)))
+                .andExpect(jsonPath("$.rejected", is(3)))
+                .andExpect(jsonPath("$.errors", hasSize(3)))
+                .andExpect(jsonPath("$.errors[0]", is("Line 2: Expiry date cannot be in the past.")));
+
+        List<Perk> perks = perkRepository.findAll();
+        assertEquals(1, perks.size());
+        assertEquals("Valid", perks.get(0).getTitle());
+        assertEquals(0, perks.get(0).getDownvotes());
+    }
+
+    @Test
+    public void importRequiresLogin() throws Exception {
+        mockMvc.perform(post("/api/perks/import").contentType("text/csv").content("title\nX\n"))
+                .andExpect(status().isUnauthorized());
+    }
+}
@@ -3,10 +3,18 @@ package ca.carleton.s4806.perkmanager.controller;
 
 import ca.carleton.s4806.perkmanager.model.Membership;
 import ca.carleton.s4806.perkmanager.model.Perk;
+import ca.carleton.s4806.perkmanager.model.User;
 import ca.carleton.s4806.perkmanager.repository.MembershipRepository;
+import ca.carleton.s4806.perkmanager.repository.PerkArchiveRepository;
 import ca.carleton.s4806.perkmanager.repository.PerkRepository;
 import ca.carleton.s4806.perkmanager.repository.UserRepository;
+import ca.carleton.s4806.perkmanager.service.CatalogChangeLog;
+import ca.carleton.s4806.perkmanager.service.PerkArchiveService;
+import ca.carleton.s4806.perkmanager.service.PerkGeoIndex;
+import ca.carleton.s4806.perkmanager.service.PerkListingCache;
+import ca.carleton.s4806.perkmanager.service.QueryTracker;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,17 +23,24 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.time.LocalDate;
 import java.util.List;
 
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -61,6 +76,24 @@ public class PerkControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private PerkArchiveRepository perkArchiveRepository;
+
+    @Autowired
+    private PerkArchiveService perkArchiveService;
+
+    @Autowired
+    private PerkListingCache perkListingCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CatalogChangeLog changeLog;
+
+    @Autowired
+    private PerkGeoIndex geoIndex;
+
     private Membership testMembership;
     private MockHttpSession authSession;
 
@@ -70,10 +103,13 @@ public class PerkControllerTest {
         testMembership = membershipRepository.save(new Membership("Visa"));
         authSession = new MockHttpSession();
         authSession.setAttribute("user", new Object());
+        // Tests write through the repository, which does not invalidate cached listings
+        perkListingCache.invalidateAll();
     }
 
     @AfterEach
     public void tearDown() {
+        perkArchiveRepository.deleteAll();
         perkRepository.deleteAll();
         userRepository.deleteAll();
         membershipRepository.deleteAll();
@@ -302,6 +338,37 @@ public class PerkControllerTest {
                 .andExpect(jsonPath("$[1].title", is("Low Votes")));
     }
 
+    /**
+     * Expired perks, whether still live or already archived, are hidden by default
+     * and merged back in sort order with includeExpired=true.
+     */
+    @Test
+    public void testGetPerksHidesExpiredUnlessIncludeExpired() throws Exception {
+        perkRepository.save(new Perk("B Archived", "desc", "Movies", testMembership, LocalDate.now().minusDays(10), "Ottawa, ON"));
+        perkArchiveService.archiveExpired(LocalDate.now());
+        perkRepository.saveAll(List.of(
+                new Perk("C Active", "desc", "Movies", testMembership, LocalDate.now(), "Ottawa, ON"),
+                new Perk("A Expired", "desc", "Movies", testMembership, LocalDate.now().minusDays(1), "Ottawa, ON"),
+                new Perk("D No Expiry", "desc", "Movies", testMembership, null, "Ottawa, ON")));
+
+        mockMvc.perform(get("/api/perks").param("sortBy", "title"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].title", contains("C Active", "D No Expiry")));
+
+        mockMvc.perform(get("/api/perks")
+                        .param("sortBy", "title")
+                        .param("direction", "desc")
+                        .param("includeExpired", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].title", contains("D No Expiry", "C Active", "B Archived", "A Expired")));
+
+        mockMvc.perform(get("/api/perks")
+                        .param("search", "archived")
+                        .param("includeExpired", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].title", contains("B Archived")));
+    }
+
     @Test
     public void testGetPerksSortsByScoreUsingComputedBalance() throws Exception {
         Perk positiveScore = new Perk("Positive Score", "desc", "Movies", testMembership, LocalDate.now().plusMonths(1), "Ottawa, ON");
@@ -485,4 +552,410 @@ public class PerkControllerTest {
                 .andDo(print())
                 .andExpect(status().isNotFound()); // 404
     }
+
+    /**
+     * Tests GET /api/perks/changes.
+     * An unknown version gets a full resync; a current one gets only the
+     * creates, votes and deletes made since, in order.
+     */
+    @Test
+    public void testGetChangesReturnsDeltasSinceVersion() throws Exception {
+        perkRepository.deleteAll();
+        perkRepository.save(new Perk("Existing", "Desc", "Prod", testMembership, null, "Ottawa, ON"));
+
+        String resync = mockMvc.perform(get("/api/perks/changes").param("since", "0"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fullResync", is(true)))
+                .andExpect(jsonPath("$.perks", hasSize(1)))
+                .andExpect(jsonPath("$.perks[0].title", is("Existing")))
+                .andReturn().getResponse().getContentAsString();
+        long version = objectMapper.readTree(resync).get("version").asLong();
+
+        Perk newPerk = new Perk("Added", "Desc", "Prod", testMembership, null, "Ottawa, ON");
+        String created = mockMvc.perform(post("/api/perks")
+                        .session(authSession)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(newPerk)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long newId = objectMapper.readTree(created).get("id").asLong();
+        mockMvc.perform(post("/api/perks/" + newId + "/upvote").session(authSession))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/perks/" + newId).session(authSession))
+                .andExpect(status().isNoContent());
+
+        String delta = mockMvc.perform(get("/api/perks/changes").param("since", String.valueOf(version)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fullResync", is(false)))
+                .andExpect(jsonPath("$.perks").doesNotExist())
+                .andExpect(jsonPath("$.changes[*].type", contains("CREATED", "VOTED", "DELETED")))
+                .andExpect(jsonPath("$.changes[0].perk.title", is("Added")))
+                .andExpect(jsonPath("$.changes[1].upvotes", is(1)))
+                .andExpect(jsonPath("$.changes[2].perkId", is((int) newId)))
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(version + 3, objectMapper.readTree(delta).get("version").asLong());
+    }
+
+    /**
+     * Tests conditional GETs of /api/perks and /api/memberships.
+     * A matching If-None-Match gets 304 with no body until a write changes the ETag.
+     */
+    @Test
+    public void testListingsHonorIfNoneMatch() throws Exception {
+        perkRepository.save(new Perk("Existing", "Desc", "Prod", testMembership, null, "Ottawa, ON"));
+
+        String perksEtag = mockMvc.perform(get("/api/perks"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/api/perks").header("If-None-Match", perksEtag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        String membershipsEtag = mockMvc.perform(get("/api/memberships"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(get("/api/memberships").header("If-None-Match", membershipsEtag))
+                .andExpect(status().isNotModified());
+
+        Perk newPerk = new Perk("Added", "Desc", "Prod", testMembership, null, "Ottawa, ON");
+        mockMvc.perform(post("/api/perks")
+                        .session(authSession)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(newPerk)))
+                .andExpect(status().isCreated());
+        mockMvc.perform(get("/api/perks").header("If-None-Match", perksEtag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", not(perksEtag)))
+                .andExpect(jsonPath("$[*].title", hasItem("Added")));
+        // Perk writes leave the membership list alone
+        mockMvc.perform(get("/api/memberships").header("If-None-Match", membershipsEtag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(post("/api/memberships")
+                        .session(authSession)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Amex\"}"))
+                .andExpect(status().isCreated());
+        mockMvc.perform(get("/api/memberships").header("If-None-Match", membershipsEtag))
+                .andExpect(status().isOk());
+    }
+
+    /**
+     * Tests the listing cache behind GET /api/perks.
+     * A vote drops only score-ordered listings; a new perk drops the listings it belongs in.
+     */
+    @Test
+    public void testListingCacheInvalidatesOnlyAffectedEntries() throws Exception {
+        Perk first = new Perk("A First", "Desc", "Prod", testMembership, null, "Ottawa, ON");
+        Perk second = new Perk("B Second", "Desc", "Prod", testMembership, null, "Ottawa, ON");
+        first.setUpvotes(1);
+        perkRepository.saveAll(List.of(first, second));
+
+        mockMvc.perform(get("/api/perks").param("sortBy", "score").param("direction", "desc"))
+                .andExpect(jsonPath("$[*].title", contains("A First", "B Second")));
+        mockMvc.perform(get("/api/perks").param("sortBy", "title"))
+                .andExpect(jsonPath("$[*].title", contains("A First", "B Second")));
+
+        mockMvc.perform(post("/api/perks/" + second.getId() + "/upvote").session(authSession))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/perks/" + second.getId() + "/upvote").session(authSession))
+                .andExpect(status().isOk());
+
+        double hits = listingCacheHits();
+        // Still cached, with the new vote count loaded from the entity
+        mockMvc.perform(get("/api/perks").param("sortBy", "title"))
+                .andExpect(jsonPath("$[*].title", contains("A First", "B Second")))
+                .andExpect(jsonPath("$[1].upvotes", is(2)));
+        assertEquals(hits + 1, listingCacheHits());
+        // Reordered by the vote
+        mockMvc.perform(get("/api/perks").param("sortBy", "score").param("direction", "desc"))
+                .andExpect(jsonPath("$[*].title", contains("B Second", "A First")));
+        assertEquals(hits + 1, listingCacheHits());
+
+        Perk added = new Perk("C Third", "Desc", "Prod", testMembership, null, "Ottawa, ON");
+        mockMvc.perform(post("/api/perks")
+                        .session(authSession)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(added)))
+                .andExpect(status().isCreated());
+        mockMvc.perform(get("/api/perks").param("sortBy", "title"))
+                .andExpect(jsonPath("$[*].title", contains("A First", "B Second", "C Third")));
+    }
+
+    /**
+     * Tests GET /api/perks with fields=.
+     * Only the requested properties are returned, in the requested order, and unknown fields are rejected.
+     */
+    @Test
+    public void testGetPerksReturnsOnlyRequestedFields() throws Exception {
+        Perk low = new Perk("Low", "Long description", "Prod", testMembership, null, "Ottawa, ON");
+        Perk high = new Perk("High", "Long description", "Prod", testMembership, LocalDate.now().plusDays(5), "Ottawa, ON");
+        high.setUpvotes(3);
+        perkRepository.saveAll(List.of(low, high));
+
+        mockMvc.perform(get("/api/perks")
+                        .param("fields", "id,title,membership,expiryDate,score")
+                        .param("sortBy", "score")
+                        .param("direction", "desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].title", contains("High", "Low")))
+                .andExpect(jsonPath("$[0].score", is(3)))
+                .andExpect(jsonPath("$[0].membership.name", is("Visa")))
+                .andExpect(jsonPath("$[0].expiryDate", is(LocalDate.now().plusDays(5).toString())))
+                .andExpect(jsonPath("$[0].description").doesNotExist())
+                .andExpect(jsonPath("$[0].upvotes").doesNotExist());
+
+        // The frontend always asks for fields=, so unfiltered sparse listings go through the listing cache
+        double hits = listingCacheHits();
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(get("/api/perks").param("fields", "title,score").param("sortBy", "title"))
+                    .andExpect(jsonPath("$[*].title", contains("High", "Low")))
+                    .andExpect(jsonPath("$[0].score", is(3)))
+                    .andExpect(jsonPath("$[0].id").doesNotExist());
+        }
+        assertEquals(hits + 1, listingCacheHits());
+
+        // Archived perks are projected after loading
+        mockMvc.perform(get("/api/perks")
+                        .param("fields", "title")
+                        .param("sortBy", "title")
+                        .param("includeExpired", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].title", contains("High", "Low")))
+                .andExpect(jsonPath("$[0].id").doesNotExist());
+
+        mockMvc.perform(get("/api/perks").param("fields", "title,password"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Tests GET /api/perks and /api/perks/recommended with compact=true.
+     * Each membership is listed once and perks refer to it by ID, in listing order.
+     */
+    @Test
+    public void testCompactPerksListMembershipsOnce() throws Exception {
+        Membership caa = membershipRepository.save(new Membership("CAA"));
+        Perk movies = new Perk("Movies", "desc", "Prod", testMembership, LocalDate.now().plusDays(5), "Ottawa, ON");
+        movies.setUpvotes(4);
+        Perk popcorn = new Perk("Popcorn", "desc", "Prod", testMembership, null, "Ottawa, ON");
+        popcorn.setDownvotes(1);
+        perkRepository.saveAll(List.of(movies, new Perk("Flights", "desc", "Prod", caa, null, "Ottawa, ON"), popcorn));
+
+        mockMvc.perform(get("/api/perks")
+                        .param("compact", "true")
+                        .param("sortBy", "score")
+                        .param("direction", "desc"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.memberships[*].name", contains("Visa", "CAA")))
+                .andExpect(jsonPath("$.perks[*].title", contains("Movies", "Flights", "Popcorn")))
+                .andExpect(jsonPath("$.perks[0].membershipId", is(testMembership.getId().intValue())))
+                .andExpect(jsonPath("$.perks[0].score", is(4)))
+                .andExpect(jsonPath("$.perks[0].expiryDate", is(LocalDate.now().plusDays(5).toString())))
+                .andExpect(jsonPath("$.perks[0].membership").doesNotExist());
+
+        // Votes are current even though the rest of each perk was encoded before
+        mockMvc.perform(post("/api/perks/" + movies.getId() + "/downvote").session(authSession))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/perks").param("compact", "true").param("search", "movies"))
+                .andExpect(jsonPath("$.perks[0].downvotes", is(1)))
+                .andExpect(jsonPath("$.perks[0].score", is(3)));
+
+        User user = userRepository.save(new User("compact", "password", "compact@example.com", List.of(caa)));
+        MockHttpSession session = new MockHttpSession();
+        session.setAttribute("user", user);
+        mockMvc.perform(get("/api/perks/recommended").param("compact", "true").session(session))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.memberships[*].name", contains("CAA")))
+                .andExpect(jsonPath("$.perks[*].title", contains("Flights")));
+        mockMvc.perform(get("/api/perks/recommended").param("compact", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.perks", hasSize(0)));
+    }
+
+    /**
+     * Tests that {@code stream=true} writes the same JSON array as a regular
+     * listing, merging live and archived perks in order.
+     */
+    @Test
+    public void testStreamPerksWritesSortedJsonArray() throws Exception {
+        perkRepository.save(new Perk("B Archived", "desc", "Movies", testMembership, LocalDate.now().minusDays(10), "Ottawa, ON"));
+        perkArchiveService.archiveExpired(LocalDate.now());
+        perkRepository.saveAll(List.of(
+                new Perk("C Active", "desc", "Movies", testMembership, LocalDate.now().plusDays(10), "Ottawa, ON"),
+                new Perk("A Active", "desc", "Movies", testMembership, LocalDate.now().plusDays(10), "Ottawa, ON")));
+
+        MvcResult streamed = mockMvc.perform(get("/api/perks")
+                        .param("stream", "true")
+                        .param("sortBy", "title")
+                        .param("includeExpired", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(streamed))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$[*].title", contains("A Active", "B Archived", "C Active")))
+                .andExpect(jsonPath("$[0].membership.name", is("Visa")));
+
+        MvcResult sparse = mockMvc.perform(get("/api/perks")
+                        .param("stream", "true")
+                        .param("fields", "title")
+                        .param("sortBy", "title")
+                        .param("direction", "desc"))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(sparse))
+                .andExpect(jsonPath("$[*].title", contains("C Active", "A Active")))
+                .andExpect(jsonPath("$[0].id").doesNotExist());
+    }
+
+    /**
+     * Tests that listing filters are combined, and also apply to archived perks.
+     */
+    @Test
+    public void testGetPerksWithCombinedFilters() throws Exception {
+        Membership costco = membershipRepository.save(new Membership("Costco"));
+        LocalDate inTenDays = LocalDate.now().plusDays(10);
+        Perk match = new Perk("Match", "desc", "Movies", testMembership, inTenDays, "Ottawa, ON");
+        match.setUpvotes(5);
+        Perk lowScore = new Perk("Low score", "desc", "Movies", testMembership, inTenDays, "Ottawa, ON");
+        lowScore.setDownvotes(2);
+        Perk otherMembership = new Perk("Other membership", "desc", "Movies", costco, inTenDays, "Ottawa, ON");
+        otherMembership.setUpvotes(5);
+        Perk otherLocation = new Perk("Other location", "desc", "Movies", testMembership, inTenDays, "Toronto, ON");
+        otherLocation.setUpvotes(5);
+        Perk lateExpiry = new Perk("Late expiry", "desc", "Movies", testMembership, LocalDate.now().plusDays(60), "Ottawa, ON");
+        lateExpiry.setUpvotes(5);
+        Perk archived = new Perk("Archived", "desc", "Movies", testMembership, LocalDate.now().minusDays(3), "Ottawa, ON");
+        archived.setUpvotes(5);
+        perkRepository.saveAll(List.of(match, lowScore, otherMembership, otherLocation, lateExpiry, archived));
+        perkArchiveService.archiveExpired(LocalDate.now());
+
+        mockMvc.perform(get("/api/perks")
+                        .param("membershipIds", testMembership.getId().toString())
+                        .param("product", "Movies")
+                        .param("location", "Ottawa, ON")
+                        .param("expiresBefore", LocalDate.now().plusDays(30).toString())
+                        .param("minScore", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].title", contains("Match")));
+
+        mockMvc.perform(get("/api/perks")
+                        .param("membershipIds", testMembership.getId() + "," + costco.getId())
+                        .param("expiresAfter", LocalDate.now().plusDays(30).toString()))
+                .andExpect(jsonPath("$[*].title", contains("Late expiry")));
+
+        mockMvc.perform(get("/api/perks")
+                        .param("location", "Ottawa, ON")
+                        .param("minScore", "5")
+                        .param("expiresBefore", LocalDate.now().plusDays(30).toString())
+                        .param("includeExpired", "true")
+                        .param("sortBy", "title"))
+                .andExpect(jsonPath("$[*].title", contains("Archived", "Match", "Other membership")));
+
+        mockMvc.perform(get("/api/perks").param("expiresBefore", "soon"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Tests that near= keeps the perks whose coordinates and coverage reach the search circle,
+     * including ones created through the API after the spatial index was built.
+     */
+    @Test
+    public void testGetPerksNearLocation() throws Exception {
+        LocalDate nextMonth = LocalDate.now().plusDays(30);
+        Perk ottawa = new Perk("Ottawa cafe", "desc", "Food", testMembership, nextMonth, "Ottawa, ON");
+        ottawa.setLatitude(45.4215);
+        ottawa.setLongitude(-75.6972);
+        Perk gatineau = new Perk("Gatineau spa", "desc", "Wellness", testMembership, nextMonth, "Gatineau, QC");
+        gatineau.setLatitude(45.4765);
+        gatineau.setLongitude(-75.7013);
+        Perk ontario = new Perk("Ontario parks", "desc", "Travel", testMembership, nextMonth, "Toronto, ON");
+        ontario.setLatitude(43.6532);
+        ontario.setLongitude(-79.3832);
+        ontario.setCoverageKm(400.0);
+        Perk montreal = new Perk("Montreal bakery", "desc", "Food", testMembership, nextMonth, "Montreal, QC");
+        montreal.setLatitude(45.5019);
+        montreal.setLongitude(-73.5674);
+        Perk online = new Perk("Online store", "desc", "Shopping", testMembership, nextMonth, "Online");
+        perkRepository.saveAll(List.of(ottawa, gatineau, ontario, montreal, online));
+        // Seeded through the repository, so record it as a bulk change
+        changeLog.markReset();
+
+        mockMvc.perform(get("/api/perks").param("near", "45.42,-75.69").param("sortBy", "title"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].title", contains("Gatineau spa", "Ontario parks", "Ottawa cafe")));
+
+        mockMvc.perform(get("/api/perks").param("near", "45.42,-75.69").param("radiusKm", "200")
+                        .param("product", "Food").param("sortBy", "title"))
+                .andExpect(jsonPath("$[*].title", contains("Montreal bakery", "Ottawa cafe")));
+
+        Membership ref = new Membership();
+        ref.setId(testMembership.getId());
+        Perk kanata = new Perk("Kanata gym", "desc", "Fitness", ref, nextMonth, "Kanata, ON");
+        kanata.setLatitude(45.3088);
+        kanata.setLongitude(-75.8987);
+        mockMvc.perform(post("/api/perks")
+                        .session(authSession)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(kanata)))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/perks").param("near", "45.42,-75.69").param("sortBy", "title"))
+                .andExpect(jsonPath("$[*].title",
+                        contains("Gatineau spa", "Kanata gym", "Ontario parks", "Ottawa cafe")));
+
+        mockMvc.perform(get("/api/perks").param("near", "45.42"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/perks").param("near", "95,0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/perks").param("near", "45.42,-75.69").param("radiusKm", "20000"))
+                .andExpect(status().isBadRequest());
+
+        // Many matches are queried in batches, then filtered, sorted and projected as one listing
+        ReflectionTestUtils.setField(geoIndex, "idBatchSize", 2);
+        try {
+            mockMvc.perform(get("/api/perks").param("near", "45.42,-75.69").param("radiusKm", "200")
+                            .param("sortBy", "title").param("direction", "desc"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[*].title", contains("Ottawa cafe", "Ontario parks",
+                            "Montreal bakery", "Kanata gym", "Gatineau spa")));
+            mockMvc.perform(get("/api/perks").param("near", "45.42,-75.69").param("radiusKm", "200")
+                            .param("product", "Food").param("fields", "title").param("sortBy", "title"))
+                    .andExpect(jsonPath("$[*].title", contains("Montreal bakery", "Ottawa cafe")))
+                    .andExpect(jsonPath("$[0].id").doesNotExist());
+            MvcResult streamed = mockMvc.perform(get("/api/perks").param("near", "45.42,-75.69")
+                            .param("stream", "true").param("sortBy", "title"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(streamed))
+                    .andExpect(jsonPath("$[*].title",
+                            contains("Gatineau spa", "Kanata gym", "Ontario parks", "Ottawa cafe")));
+        } finally {
+            ReflectionTestUtils.setField(geoIndex, "idBatchSize", 500);
+        }
+    }
+
+    /**
+     * Tests that requests are told apart by whether they queried the database,
+     * which the concurrency limit uses to pick a latency baseline.
+     */
+    @Test
+    public void testRequestsRecordWhetherTheyQueried() throws Exception {
+        perkRepository.save(new Perk("Queried", "Desc", "Prod", testMembership, null, "Ottawa, ON"));
+        mockMvc.perform(get("/api/perks/facets")).andExpect(status().isOk());
+
+        QueryTracker.reset();
+        mockMvc.perform(get("/api/perks").param("sortBy", "title")).andExpect(status().isOk());
+        assertTrue(QueryTracker.hasQueried());
+
+        // Facets are counted from an in-memory index
+        QueryTracker.reset();
+        mockMvc.perform(get("/api/perks/facets")).andExpect(status().isOk());
+        assertFalse(QueryTracker.hasQueried());
+    }
+
+    private double listingCacheHits() {
+        return meterRegistry.get("cache.gets").tag("cache", "perk_listing").tag("result", "hit")
+                .functionCounter().count();
+    }
 }
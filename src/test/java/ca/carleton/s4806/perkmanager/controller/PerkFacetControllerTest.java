@@ -0,0 +1,169 @@
+package ca.carleton.s4806.perkmanager.controller;
+
+import ca.carleton.s4806.perkmanager.model.Membership;
+import ca.carleton.s4806.perkmanager.model.Perk;
+import ca.carleton.s4806.perkmanager.repository.MembershipRepository;
+import ca.carleton.s4806.perkmanager.repository.PerkArchiveRepository;
+import ca.carleton.s4806.perkmanager.repository.PerkRepository;
+import ca.carleton.s4806.perkmanager.repository.UserRepository;
+import ca.carleton.s4806.perkmanager.service.CatalogChangeLog;
+import ca.carleton.s4806.perkmanager.service.PerkFacetIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Integration tests for the facet counts endpoint.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class PerkFacetControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PerkRepository perkRepository;
+
+    @Autowired
+    private PerkArchiveRepository perkArchiveRepository;
+
+    @Autowired
+    private MembershipRepository membershipRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CatalogChangeLog changeLog;
+
+    @Autowired
+    private PerkFacetIndex facetIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Membership visa;
+    private Membership costco;
+    private MockHttpSession authSession;
+
+    @BeforeEach
+    public void setUp() {
+        // Start from an empty catalog, without the seed data
+        tearDown();
+        visa = membershipRepository.save(new Membership("Visa"));
+        costco = membershipRepository.save(new Membership("Costco"));
+        LocalDate nextMonth = LocalDate.now().plusDays(30);
+        perkRepository.saveAll(List.of(
+                new Perk("Movie night", "desc", "Movies", visa, nextMonth, "Ottawa"),
+                new Perk("Matinee deal", "desc", "Movies", costco, nextMonth, "Toronto"),
+                new Perk("Hotel points", "desc", "Travel", visa, LocalDate.now().plusDays(2), "Ottawa"),
+                new Perk("Old offer", "desc", "Travel", visa, LocalDate.now().minusDays(1), "Ottawa")));
+        // Seeded through the repository, so record it as a bulk change
+        changeLog.markReset();
+        authSession = new MockHttpSession();
+        authSession.setAttribute("user", new Object());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        perkArchiveRepository.deleteAll();
+        perkRepository.deleteAll();
+        userRepository.deleteAll();
+        membershipRepository.deleteAll();
+        changeLog.markReset();
+    }
+
+    /**
+     * Tests that facets count only active perks, most common value first.
+     */
+    @Test
+    public void testGetFacetsCountsActivePerks() throws Exception {
+        mockMvc.perform(get("/api/perks/facets"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total", is(3)))
+                .andExpect(jsonPath("$.products[*].value", contains("Movies", "Travel")))
+                .andExpect(jsonPath("$.products[*].count", contains(2, 1)))
+                .andExpect(jsonPath("$.memberships[0].name", is("Visa")))
+                .andExpect(jsonPath("$.memberships[0].count", is(2)))
+                .andExpect(jsonPath("$.locations[*].value", contains("Ottawa", "Toronto")));
+    }
+
+    /**
+     * Tests that search-restricted counts match the listing's search.
+     */
+    @Test
+    public void testGetFacetsRestrictedToSearch() throws Exception {
+        mockMvc.perform(get("/api/perks/facets").param("search", "NIGHT"))
+                .andExpect(jsonPath("$.total", is(1)))
+                .andExpect(jsonPath("$.products[*].value", contains("Movies")))
+                .andExpect(jsonPath("$.memberships[*].name", contains("Visa")));
+
+        // Shorter than a trigram, and matching the product rather than the title
+        mockMvc.perform(get("/api/perks/facets").param("search", "ie"))
+                .andExpect(jsonPath("$.total", is(2)));
+
+        mockMvc.perform(get("/api/perks/facets").param("search", "spa"))
+                .andExpect(jsonPath("$.total", is(0)))
+                .andExpect(jsonPath("$.products", hasSize(0)));
+    }
+
+    /**
+     * Tests that creates, deletes and expiry update the counts without a rebuild.
+     */
+    @Test
+    public void testFacetsFollowChangesIncrementally() throws Exception {
+        mockMvc.perform(get("/api/perks/facets")).andExpect(jsonPath("$.total", is(3)));
+        double rebuilds = meterRegistry.get("perk_facet_index_rebuilds_total").counter().count();
+
+        Membership ref = new Membership();
+        ref.setId(costco.getId());
+        Perk payload = new Perk("Spa day", "desc", "Wellness", ref, LocalDate.now().plusDays(30), "Kanata");
+        String created = mockMvc.perform(post("/api/perks")
+                        .session(authSession)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        Long createdId = objectMapper.readValue(created, Perk.class).getId();
+
+        mockMvc.perform(get("/api/perks/facets").param("search", "spa"))
+                .andExpect(jsonPath("$.total", is(1)))
+                .andExpect(jsonPath("$.products[*].value", contains("Wellness")))
+                .andExpect(jsonPath("$.memberships[0].name", is("Costco")));
+
+        mockMvc.perform(delete("/api/perks/" + createdId).session(authSession))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/perks/facets"))
+                .andExpect(jsonPath("$.total", is(3)))
+                .andExpect(jsonPath("$.locations[*].value", contains("Ottawa", "Toronto")));
+
+        // "Hotel points" expires in two days
+        assertEquals(2, facetIndex.facets(null, LocalDate.now().plusDays(3)).total());
+        assertEquals(rebuilds, meterRegistry.get("perk_facet_index_rebuilds_total").counter().count());
+    }
+}
@@ -0,0 +1,167 @@
+package ca.carleton.s4806.perkmanager.controller;
+
+import ca.carleton.s4806.perkmanager.model.Membership;
+import ca.carleton.s4806.perkmanager.model.Perk;
+import ca.carleton.s4806.perkmanager.model.User;
+import ca.carleton.s4806.perkmanager.repository.MembershipRepository;
+import ca.carleton.s4806.perkmanager.repository.PerkArchiveRepository;
+import ca.carleton.s4806.perkmanager.repository.PerkRepository;
+import ca.carleton.s4806.perkmanager.repository.UserRepository;
+import ca.carleton.s4806.perkmanager.service.PerkArchiveService;
+import ca.carleton.s4806.perkmanager.service.PerkListingCache;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that the perk listings run a fixed number of SQL statements,
+ * however many perks and memberships they return.
+ * <p>
+ * Each perk gets its own membership, the worst case for N+1 loading, and
+ * each catalog has as many archived perks, also with their own memberships,
+ * for the listings that include them. The second-level cache and the listing
+ * cache are cleared before each request, and statements are counted with
+ * Hibernate statistics.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class PerkQueryCountTest {
+
+    private static final int SMALL = 2;
+    private static final int LARGE = 25;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PerkRepository perkRepository;
+
+    @Autowired
+    private PerkArchiveRepository perkArchiveRepository;
+
+    @Autowired
+    private MembershipRepository membershipRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PerkListingCache perkListingCache;
+
+    @Autowired
+    private PerkArchiveService perkArchiveService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private SessionFactory sessionFactory;
+
+    @BeforeEach
+    public void setUp() {
+        sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        perkArchiveRepository.deleteAll();
+        perkRepository.deleteAll();
+        userRepository.deleteAll();
+        membershipRepository.deleteAll();
+        perkListingCache.invalidateAll();
+    }
+
+    @Test
+    public void testGetAllPerksRunsConstantStatements() throws Exception {
+        assertConstant(count -> get("/api/perks"), false);
+    }
+
+    @Test
+    public void testSortedAndSearchedPerksRunConstantStatements() throws Exception {
+        assertConstant(count -> get("/api/perks").param("sortBy", "membership.name"), false);
+        assertConstant(count -> get("/api/perks").param("sortBy", "score"), false);
+        assertConstant(count -> get("/api/perks").param("search", "perk"), false);
+    }
+
+    @Test
+    public void testPerksIncludingArchivedRunConstantStatements() throws Exception {
+        assertConstant(count -> get("/api/perks").param("includeExpired", "true"), true);
+        assertConstant(count -> get("/api/perks").param("includeExpired", "true")
+                .param("sortBy", "membership.name"), true);
+        assertConstant(count -> get("/api/perks").param("includeExpired", "true")
+                .param("search", "perk"), true);
+    }
+
+    @Test
+    public void testGetRecommendedPerksRunsConstantStatements() throws Exception {
+        assertConstant(count -> {
+            User user = userRepository.save(
+                    new User("user" + count, "password", "user" + count + "@example.com",
+                            membershipRepository.findAll()));
+            MockHttpSession session = new MockHttpSession();
+            session.setAttribute("user", user);
+            return get("/api/perks/recommended").session(session);
+        }, false);
+    }
+
+    /**
+     * Runs the request against a small and a large catalog and compares
+     * the number of statements each needed.
+     */
+    private void assertConstant(RequestFactory request, boolean includesArchived) throws Exception {
+        long small = statementsFor(SMALL, request, includesArchived);
+        long large = statementsFor(LARGE, request, includesArchived);
+        assertEquals(small, large, "SQL statements grew with the number of perks");
+    }
+
+    private long statementsFor(int count, RequestFactory request, boolean includesArchived) throws Exception {
+        tearDown();
+        List<Membership> memberships = new ArrayList<>();
+        for (int i = 0; i < count * 2; i++) {
+            memberships.add(new Membership("Membership " + i));
+        }
+        memberships = membershipRepository.saveAll(memberships);
+        List<Perk> perks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            perks.add(new Perk("Perk " + i, "Description", "Product " + i, memberships.get(i),
+                    LocalDate.now().plusDays(30), "Ottawa"));
+            perks.add(new Perk("Expired perk " + i, "Description", "Product " + i, memberships.get(count + i),
+                    LocalDate.now().minusDays(1), "Ottawa"));
+        }
+        perkRepository.saveAll(perks);
+        assertEquals(count, perkArchiveService.archiveExpired(LocalDate.now()));
+        MockHttpServletRequestBuilder builder = request.create(count);
+
+        sessionFactory.getCache().evictAllRegions();
+        perkListingCache.invalidateAll();
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+        mockMvc.perform(builder)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(includesArchived ? count * 2 : count)));
+        return statistics.getPrepareStatementCount();
+    }
+
+    @FunctionalInterface
+    private interface RequestFactory {
+        MockHttpServletRequestBuilder create(int count) throws Exception;
+    }
+}
@@ -3,6 +3,8 @@ package ca.carleton.s4806.perkmanager.model;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.time.LocalDate;
 
@@ -82,4 +84,21 @@ class PerkTest {
         assertEquals(-2, perk.getScore());
     }
 
+    /**
+     * Confirms only expiry dates before the given day count as expired.
+     */
+    @Test
+    void isExpiredOnComparesAgainstGivenDay() {
+        LocalDate today = LocalDate.of(2026, 5, 1);
+        Perk perk = new Perk();
+
+        assertFalse(perk.isExpiredOn(today));
+
+        perk.setExpiryDate(today);
+        assertFalse(perk.isExpiredOn(today));
+
+        perk.setExpiryDate(today.minusDays(1));
+        assertTrue(perk.isExpiredOn(today));
+    }
+
 }
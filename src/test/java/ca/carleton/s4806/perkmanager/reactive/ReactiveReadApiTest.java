@@ -0,0 +1,191 @@
+package ca.carleton.s4806.perkmanager.reactive;
+
+import ca.carleton.s4806.perkmanager.model.Membership;
+import ca.carleton.s4806.perkmanager.model.Perk;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the reactive read API against its own in-memory database.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        classes = ReactiveReadApplication.class,
+        properties = {
+                "spring.main.web-application-type=reactive",
+                "spring.r2dbc.url=r2dbc:h2:mem:///reactive-read?options=DB_CLOSE_DELAY=-1"})
+@ActiveProfiles("reactive")
+public class ReactiveReadApiTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @LocalServerPort
+    private int port;
+
+    @BeforeEach
+    public void setUp() {
+        LocalDate today = LocalDate.now();
+        Flux.concat(
+                        // The tables as the main application's JPA mapping creates them
+                        sql("create table if not exists membership (id bigint primary key, name varchar(255))"),
+                        sql("create table if not exists perk (id bigint primary key, title varchar(255),"
+                                + " description varchar(1000), product varchar(255), membership_id bigint,"
+                                + " upvotes integer, downvotes integer, location varchar(255),"
+                                + " latitude double precision, longitude double precision, coverage_km double precision,"
+                                + " expiry_date date,"
+                                + " active_until date generated always as (coalesce(expiry_date, date '9999-12-31')))"),
+                        sql("delete from perk"),
+                        sql("delete from membership"),
+                        sql("insert into membership (id, name) values (1, 'Visa'), (2, 'CAA'), (3, 'Air Miles')"),
+                        insertPerk(1, "Movie Night", "Movies", 1, 5, 1, today.plusDays(30)),
+                        insertPerk(2, "Flight Deal", "Travel", 2, 1, 0, null),
+                        insertPerk(3, "Old Coupon", "Movies", 1, 9, 0, today.minusDays(1)),
+                        insertPerk(4, "100% Off_Snacks", "Snacks", 3, 0, 3, today),
+                        insertPerk(5, "Hotel Upgrade", "Travel", 2, 2, 0, null))
+                .blockLast();
+    }
+
+    @Test
+    public void testListsActivePerksWithSearchAndSort() {
+        assertEquals(List.of(1L, 2L, 4L, 5L), perkIds("/api/perks"));
+        assertEquals(List.of(1L, 5L, 2L, 4L), perkIds("/api/perks?sortBy=score&direction=desc"));
+        assertEquals(List.of(4L, 2L, 5L, 1L), perkIds("/api/perks?sortBy=membership"));
+        assertEquals(List.of(1L, 5L, 2L, 4L), perkIds("/api/perks?sortBy=upvotes&direction=DESC"));
+        assertEquals(List.of(1L), perkIds("/api/perks?search=MOVIE"));
+        assertEquals(List.of(2L, 5L), perkIds("/api/perks?search=travel"));
+        // Wildcards match literally
+        assertEquals(List.of(4L), perkIds("/api/perks?search={search}", "%"));
+        assertEquals(List.of(4L), perkIds("/api/perks?search=f_s"));
+
+        // Same JSON shape as the main application
+        webTestClient.get().uri("/api/perks?search=movie").exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$[0].title").isEqualTo("Movie Night")
+                .jsonPath("$[0].membership.name").isEqualTo("Visa")
+                .jsonPath("$[0].score").isEqualTo(4)
+                .jsonPath("$[0].expiryDate").isEqualTo(LocalDate.now().plusDays(30).toString());
+    }
+
+    @Test
+    public void testStreamsPerksAsNdjson() {
+        List<Perk> perks = webTestClient.get().uri("/api/perks?sortBy=title")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Perk.class)
+                .getResponseBody()
+                .collectList()
+                .block(Duration.ofSeconds(10));
+        assertEquals(List.of("100% Off_Snacks", "Flight Deal", "Hotel Upgrade", "Movie Night"),
+                perks.stream().map(Perk::getTitle).toList());
+    }
+
+    @Test
+    public void testRecommendedPerksAreNotServed() {
+        // Needs the logged-in user, and this node does not share sessions with the main application
+        webTestClient.get().uri("/api/perks/recommended")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void testMembershipsSortedByName() {
+        List<Membership> memberships = webTestClient.get().uri("/api/memberships")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Membership.class)
+                .returnResult()
+                .getResponseBody();
+        assertEquals(List.of("Air Miles", "CAA", "Visa"), memberships.stream().map(Membership::getName).toList());
+    }
+
+    @Test
+    public void testManyConcurrentConnectionsOnFewThreads() {
+        int connections = 1000;
+        ConnectionProvider provider = ConnectionProvider.builder("reactive-read-test")
+                .maxConnections(connections)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        try {
+            WebClient client = WebClient.builder()
+                    .baseUrl("http://localhost:" + port)
+                    .clientConnector(new ReactorClientHttpConnector(HttpClient.create(provider)))
+                    .build();
+
+            Long ok = Flux.range(0, connections)
+                    .flatMap(i -> client.get().uri("/api/perks?sortBy=score")
+                            .retrieve()
+                            .bodyToFlux(Perk.class)
+                            .count(), connections)
+                    .filter(count -> count == 4)
+                    .count()
+                    .block(Duration.ofSeconds(60));
+            assertEquals(connections, ok);
+        } finally {
+            provider.disposeLater().block(Duration.ofSeconds(10));
+        }
+
+        // Every request was served by the event loop, not a thread per connection
+        long eventLoopThreads = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith("reactor-http-"))
+                .count();
+        int limit = Math.max(4, Runtime.getRuntime().availableProcessors());
+        assertTrue(eventLoopThreads <= limit, eventLoopThreads + " event loop threads");
+    }
+
+    private List<Long> perkIds(String uri, Object... uriVariables) {
+        return webTestClient.get().uri(uri, uriVariables)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Perk.class)
+                .returnResult()
+                .getResponseBody()
+                .stream()
+                .map(Perk::getId)
+                .toList();
+    }
+
+    private Flux<Long> sql(String statement) {
+        return databaseClient.sql(statement).fetch().rowsUpdated().flux();
+    }
+
+    private Flux<Long> insertPerk(long id, String title, String product, long membershipId,
+                                  int upvotes, int downvotes, LocalDate expiryDate) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(
+                        "insert into perk (id, title, description, product, membership_id, upvotes, downvotes, location, expiry_date)"
+                                + " values (:id, :title, 'Test perk', :product, :membershipId, :upvotes, :downvotes, 'Ottawa, ON', :expiryDate)")
+                .bind("id", id)
+                .bind("title", title)
+                .bind("product", product)
+                .bind("membershipId", membershipId)
+                .bind("upvotes", upvotes)
+                .bind("downvotes", downvotes);
+        spec = expiryDate == null ? spec.bindNull("expiryDate", LocalDate.class) : spec.bind("expiryDate", expiryDate);
+        return spec.fetch().rowsUpdated().flux();
+    }
+}
@@ -3,6 +3,9 @@ package ca.carleton.s4806.perkmanager.repository;
 import ca.carleton.s4806.perkmanager.model.Membership;
 import ca.carleton.s4806.perkmanager.model.Perk;
 import ca.carleton.s4806.perkmanager.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -34,6 +37,9 @@ public class PerkRepositoryTest {
     @Autowired
     private MembershipRepository membershipRepository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @AfterEach
     public void tearDown() {
         perkRepository.deleteAll();
@@ -163,4 +169,25 @@ public class PerkRepositoryTest {
         assertEquals("Cinema Deal", results.get(0).getTitle());
         assertEquals("Movie Discount", results.get(1).getTitle());
     }
+
+    /**
+     * Tests that repeated lookups by id are served from the second-level cache
+     * instead of going back to the database.
+     */
+    @Test
+    public void testFindByIdUsesSecondLevelCache() {
+        Membership visa = membershipRepository.save(new Membership("Visa"));
+        Perk saved = perkRepository.save(new Perk("Cached Perk", "desc", "Movies", visa, LocalDate.now().plusDays(30), "Ottawa, ON"));
+
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+
+        perkRepository.findById(saved.getId());
+        perkRepository.findById(saved.getId());
+
+        assertEquals(1, statistics.getDomainDataRegionStatistics("perk").getMissCount(), "first lookup should miss");
+        assertEquals(1, statistics.getDomainDataRegionStatistics("perk").getHitCount(), "second lookup should hit the cache");
+    }
 }
@@ -0,0 +1,126 @@
+package ca.carleton.s4806.perkmanager.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for the latency-driven AIMD concurrency limit.
+ */
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long MS = 1_000_000;
+
+    @Test
+    void rejectsRequestsOverTheLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, 2.0, MS);
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        assertEquals(2, limit.getInFlight());
+        assertEquals(1, limit.getRejected());
+
+        limit.releaseWithoutSample();
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    void growsWhileBusyAndLatencyStaysLow() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 1, 6, 2.0, MS);
+        long time = 0;
+        for (int i = 0; i < 200; i++) {
+            // Keep every permit in use so the limit is the bottleneck
+            while (limit.tryAcquire()) {
+            }
+            limit.release(time, time + 20 * MS);
+            time += 20 * MS;
+        }
+        assertEquals(6, limit.getLimit());
+    }
+
+    @Test
+    void doesNotGrowWhenMostPermitsAreIdle() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 100, 2.0, MS);
+        for (int i = 0; i < 200; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(i * 20 * MS, (i + 1) * 20 * MS);
+        }
+        assertEquals(10, limit.getLimit());
+    }
+
+    @Test
+    void cutsOncePerGenerationWhenLatencyRises() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 2, 100, 2.0, MS);
+        assertTrue(limit.tryAcquire());
+        limit.release(0, 20 * MS); // Baseline 20ms
+
+        // Five slow requests that all started before the first one finished
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limit.tryAcquire());
+        }
+        for (int i = 0; i < 5; i++) {
+            limit.release(100 * MS, 200 * MS + i);
+        }
+        assertEquals(18, limit.getLimit());
+
+        // A slow request admitted under the new limit cuts again
+        assertTrue(limit.tryAcquire());
+        limit.release(300 * MS, 400 * MS);
+        assertEquals(16, limit.getLimit());
+    }
+
+    @Test
+    void neverCutsBelowTheMinimumOrForLatencyUnderTheFloor() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(3, 2, 10, 2.0, 10 * MS);
+        assertTrue(limit.tryAcquire());
+        limit.release(0, MS / 10);
+
+        // Thirty times the baseline, but still only 3ms
+        assertTrue(limit.tryAcquire());
+        limit.release(MS, 4 * MS);
+        assertEquals(3, limit.getLimit());
+
+        long time = 10 * MS;
+        for (int i = 0; i < 20; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.release(time, time + 50 * MS);
+            time += 100 * MS;
+        }
+        assertEquals(2, limit.getLimit());
+    }
+
+    @Test
+    void cacheHitsDoNotMakeQueriesLookCongested() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 2, 100, 2.0, 10 * MS);
+        long time = 0;
+        for (int i = 0; i < 200; i++) {
+            // Every other search is a 0.1ms cache hit; the rest are 40ms queries
+            boolean queried = i % 2 == 0;
+            assertTrue(limit.tryAcquire());
+            limit.release(time, time + (queried ? 40 * MS : MS / 10), queried);
+            time += 50 * MS;
+        }
+        assertEquals(20, limit.getLimit());
+
+        // A query taking more than twice as long as other queries still cuts
+        assertTrue(limit.tryAcquire());
+        limit.release(time, time + 100 * MS, true);
+        assertEquals(18, limit.getLimit());
+
+        // So does a cache hit slow enough to pass the floor
+        time += 200 * MS;
+        assertTrue(limit.tryAcquire());
+        limit.release(time, time + 20 * MS, false);
+        assertEquals(16, limit.getLimit());
+    }
+
+    @Test
+    void rejectsInconsistentSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimit(1, 2, 10, 2.0, MS));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimit(5, 2, 4, 2.0, MS));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimit(5, 2, 10, 1.0, MS));
+    }
+}
@@ -0,0 +1,202 @@
+package ca.carleton.s4806.perkmanager.service;
+
+import ca.carleton.s4806.perkmanager.model.Membership;
+import ca.carleton.s4806.perkmanager.model.Perk;
+import ca.carleton.s4806.perkmanager.model.User;
+import ca.carleton.s4806.perkmanager.repository.MembershipRepository;
+import ca.carleton.s4806.perkmanager.repository.PerkRepository;
+import ca.carleton.s4806.perkmanager.repository.UserRepository;
+import ca.carleton.s4806.perkmanager.service.CatalogSnapshotWriter.Column;
+import ca.carleton.s4806.perkmanager.service.CatalogSnapshotWriter.ColumnType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests for writing and restoring catalog snapshots.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class CatalogSnapshotServiceTest {
+
+    @Autowired
+    private CatalogSnapshotService snapshotService;
+
+    @Autowired
+    private PerkRepository perkRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MembershipRepository membershipRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setUp() {
+        perkRepository.deleteAll();
+        userRepository.deleteAll();
+        membershipRepository.deleteAll();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        perkRepository.deleteAll();
+        userRepository.deleteAll();
+        membershipRepository.deleteAll();
+    }
+
+    @Test
+    public void snapshotRestoresCatalogAndKeepsIdsUnique() throws Exception {
+        Membership visa = membershipRepository.save(new Membership("Visa"));
+        Membership caa = membershipRepository.save(new Membership("CAA"));
+        userRepository.save(new User("alice", "secret", "alice@example.com", List.of(visa, caa)));
+        Perk perk = new Perk("Lounge", null, "Travel", visa, LocalDate.now().plusDays(3), "Global");
+        perk.setUpvotes(7);
+        perkRepository.save(perk);
+        perkRepository.save(new Perk("No membership", "desc", "Misc", null, null, null));
+
+        Path file = tempDir.resolve("catalog.snapshot");
+        assertEquals(2 + 1 + 2 + 2, snapshotService.write(file));
+
+        perkRepository.deleteAll();
+        userRepository.deleteAll();
+        membershipRepository.deleteAll();
+
+        assertEquals(7, snapshotService.load(file));
+
+        Perk restored = perkRepository.findById(perk.getId()).orElseThrow();
+        assertEquals("Lounge", restored.getTitle());
+        assertNull(restored.getDescription());
+        assertEquals(7, restored.getUpvotes());
+        assertEquals(LocalDate.now().plusDays(3), restored.getExpiryDate());
+        assertEquals(visa.getId(), restored.getMembership().getId());
+        assertEquals(2, userRepository.findByUsername("alice").getMemberships().size());
+        String password = userRepository.findByUsername("alice").getPassword();
+        assertTrue(PasswordHashes.isHashed(password));
+        assertTrue(PasswordHashes.matches("secret", password));
+        assertFalse(PasswordHashes.matches("wrong", password));
+        assertFalse(Files.readString(file, StandardCharsets.ISO_8859_1).contains("secret"));
+
+        Perk added = perkRepository.save(new Perk("After restore", "desc", "Misc", null, null, null));
+        assertTrue(perkRepository.findAll().stream()
+                .filter(p -> !p.getId().equals(added.getId()))
+                .allMatch(p -> p.getId() < added.getId()));
+    }
+
+    @Test
+    public void snapshotKeepsPerkCoordinates() throws Exception {
+        Perk perk = new Perk("City pass", "desc", "Travel", null, null, "Ottawa, ON");
+        perk.setLatitude(45.4215);
+        perk.setLongitude(-75.6972);
+        perk.setCoverageKm(25.0);
+        perkRepository.save(perk);
+        Perk anywhere = perkRepository.save(new Perk("Anywhere", "desc", "Misc", null, null, null));
+
+        Path file = tempDir.resolve("coordinates.snapshot");
+        snapshotService.write(file);
+        perkRepository.deleteAll();
+        snapshotService.load(file);
+
+        Perk restored = perkRepository.findById(perk.getId()).orElseThrow();
+        assertEquals(45.4215, restored.getLatitude());
+        assertEquals(-75.6972, restored.getLongitude());
+        assertEquals(25.0, restored.getCoverageKm());
+        Perk restoredAnywhere = perkRepository.findById(anywhere.getId()).orElseThrow();
+        assertNull(restoredAnywhere.getLatitude());
+        assertNull(restoredAnywhere.getCoverageKm());
+    }
+
+    @Test
+    public void snapshotEndpointIsNotExposedOverHttp() throws Exception {
+        // Logged in, so the request gets past the login check and reaches handler lookup
+        MockHttpSession session = new MockHttpSession();
+        session.setAttribute("user", new User("alice", "secret", "alice@example.com", List.of()));
+        mockMvc.perform(get("/actuator/snapshot")).andExpect(status().isNotFound());
+        mockMvc.perform(post("/actuator/snapshot").session(session)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void loadRefusesNonEmptyTables() throws Exception {
+        Path file = tempDir.resolve("empty.snapshot");
+        snapshotService.write(file);
+        membershipRepository.save(new Membership("Visa"));
+
+        assertThrows(IllegalStateException.class, () -> snapshotService.load(file));
+    }
+
+    @Test
+    public void mappedAndStreamedReadsMatchAcrossBlocks() throws Exception {
+        List<Column> columns = List.of(
+                new Column("id", ColumnType.LONG),
+                new Column("name", ColumnType.STRING),
+                new Column("votes", ColumnType.INT),
+                new Column("expires", ColumnType.DATE),
+                new Column("rating", ColumnType.DOUBLE));
+        int rows = CatalogSnapshotWriter.BLOCK_ROWS + 5;
+        List<Object[]> expected = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            expected.add(new Object[]{(long) i, i % 3 == 0 ? null : "név " + i, i % 5 == 0 ? null : i,
+                    LocalDate.of(2026, 1, 1).plusDays(i % 400), i % 7 == 0 ? null : i / 8.0});
+        }
+        Path file = tempDir.resolve("blocks.snapshot");
+        try (CatalogSnapshotWriter writer = new CatalogSnapshotWriter(Files.newOutputStream(file))) {
+            writer.beginTable("things", columns);
+            for (Object[] row : expected) {
+                writer.writeRow(row);
+            }
+            writer.endTable();
+            writer.beginTable("empty", columns);
+            writer.endTable();
+        }
+
+        for (boolean mapped : new boolean[]{true, false}) {
+            try (CatalogSnapshotReader reader = new CatalogSnapshotReader(file, mapped)) {
+                assertEquals("things", reader.nextTable());
+                assertEquals(columns, reader.getColumns());
+                List<Object[]> actual = new ArrayList<>();
+                List<Object[]> block;
+                int blocks = 0;
+                while ((block = reader.nextBlock()) != null) {
+                    actual.addAll(block);
+                    blocks++;
+                }
+                assertEquals(2, blocks);
+                assertEquals(rows, actual.size());
+                for (int i = 0; i < rows; i++) {
+                    assertArrayEquals(expected.get(i), actual.get(i));
+                }
+                assertEquals("empty", reader.nextTable());
+                assertNull(reader.nextTable());
+            }
+        }
+    }
+}
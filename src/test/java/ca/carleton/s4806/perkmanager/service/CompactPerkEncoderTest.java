@@ -0,0 +1,99 @@
+package ca.carleton.s4806.perkmanager.service;
+
+import ca.carleton.s4806.perkmanager.model.Membership;
+import ca.carleton.s4806.perkmanager.model.Perk;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Tests for the compact perk list encoding.
+ */
+class CompactPerkEncoderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CatalogChangeLog changeLog = new CatalogChangeLog(registry, 100);
+    private final CompactPerkEncoder encoder =
+            new CompactPerkEncoder(objectMapper, changeLog, registry, DataSize.ofMegabytes(1));
+
+    @Test
+    void listsEachMembershipOnceAndRefersToItById() throws Exception {
+        Membership visa = membership(1, "Visa");
+        Membership caa = membership(2, "CAA \"Plus\"");
+        Perk movies = perk(10, "Movie Night", visa, 5, 1);
+        movies.setExpiryDate(LocalDate.of(2030, 1, 31));
+        movies.setLatitude(45.42);
+        movies.setLongitude(-75.69);
+        Perk flights = perk(11, "Flight Déal", caa, 0, 2);
+        Perk popcorn = perk(12, "Popcorn", visa, 1, 0);
+
+        JsonNode json = objectMapper.readTree(encoder.encode(List.of(movies, flights, popcorn)));
+
+        assertEquals(objectMapper.readTree("""
+                [{"id":1,"name":"Visa"},{"id":2,"name":"CAA \\"Plus\\""}]"""), json.get("memberships"));
+        assertEquals(objectMapper.readTree("""
+                {"upvotes":5,"downvotes":1,"score":4,"id":10,"title":"Movie Night","description":"Test perk",
+                 "product":"Movies","membershipId":1,"location":"Ottawa, ON",
+                 "latitude":45.42,"longitude":-75.69,"expiryDate":"2030-01-31"}"""), json.get("perks").get(0));
+        assertEquals("Flight Déal", json.get("perks").get(1).get("title").asText());
+        assertEquals(-2, json.get("perks").get(1).get("score").asInt());
+        // Null properties are left out
+        assertFalse(json.get("perks").get(1).has("expiryDate"));
+        assertEquals(List.of(10L, 11L, 12L), json.get("perks").findValues("id").stream().map(JsonNode::asLong).toList());
+    }
+
+    @Test
+    void writesCurrentVotesWithCachedFields() throws Exception {
+        Perk perk = perk(10, "Movie Night", membership(1, "Visa"), 0, 0);
+        encoder.encode(List.of(perk));
+
+        perk.setUpvotes(7);
+        JsonNode json = objectMapper.readTree(encoder.encode(List.of(perk))).get("perks").get(0);
+
+        assertEquals(7, json.get("upvotes").asInt());
+        assertEquals(7, json.get("score").asInt());
+        // The perk and its membership came from the cache
+        assertEquals(2.0, registry.get("cache.gets").tag("cache", "perk_json").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void encodesAgainAfterReset() throws Exception {
+        Membership visa = membership(1, "Visa");
+        encoder.encode(List.of(perk(10, "Before", visa, 0, 0)));
+
+        // A snapshot restore can bring back the same ID with different content
+        changeLog.markReset();
+        JsonNode json = objectMapper.readTree(encoder.encode(List.of(perk(10, "After", visa, 0, 0))));
+
+        assertEquals("After", json.get("perks").get(0).get("title").asText());
+    }
+
+    @Test
+    void encodesEmptyList() throws Exception {
+        assertEquals(objectMapper.readTree("{\"memberships\":[],\"perks\":[]}"),
+                objectMapper.readTree(encoder.encode(List.of())));
+    }
+
+    private static Membership membership(long id, String name) {
+        Membership membership = new Membership(name);
+        membership.setId(id);
+        return membership;
+    }
+
+    private static Perk perk(long id, String title, Membership membership, int upvotes, int downvotes) {
+        Perk perk = new Perk(title, "Test perk", "Movies", membership, null, "Ottawa, ON");
+        perk.setId(id);
+        perk.setUpvotes(upvotes);
+        perk.setDownvotes(downvotes);
+        return perk;
+    }
+}
@@ -0,0 +1,68 @@
+package ca.carleton.s4806.perkmanager.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests for the spatial grid behind {@code near=} lookups.
+ */
+class GeoGridTest {
+
+    private static final double OTTAWA_LAT = 45.4215;
+    private static final double OTTAWA_LON = -75.6972;
+
+    private final GeoGrid grid = new GeoGrid();
+
+    @Test
+    void findsPointsWithinRadius() {
+        grid.put(1, 45.4765, -75.7013, 0);   // Gatineau, about 6 km away
+        grid.put(2, 45.3000, -75.9000, 0);   // Kanata area, about 21 km away
+        grid.put(3, 43.6532, -79.3832, 0);   // Toronto, about 350 km away
+
+        assertEquals(Set.of(1L), grid.within(OTTAWA_LAT, OTTAWA_LON, 10));
+        assertEquals(Set.of(1L, 2L), grid.within(OTTAWA_LAT, OTTAWA_LON, 25));
+        assertEquals(Set.of(1L, 2L, 3L), grid.within(OTTAWA_LAT, OTTAWA_LON, 400));
+    }
+
+    @Test
+    void coverageExtendsTheReachOfAPoint() {
+        grid.put(1, 43.6532, -79.3832, 30);    // Toronto, city-wide
+        grid.put(2, 43.6532, -79.3832, 500);   // Toronto, province-wide
+
+        assertEquals(Set.of(2L), grid.within(OTTAWA_LAT, OTTAWA_LON, 5));
+        assertEquals(Set.of(1L, 2L), grid.within(43.9, -79.3, 5));
+        assertEquals(Set.of(), grid.within(44.6488, -63.5752, 5));   // Halifax
+    }
+
+    @Test
+    void wrapsAcrossTheAntimeridianAndPoles() {
+        grid.put(1, 0, 179.95, 0);
+        grid.put(2, 89.99, 10, 0);
+
+        assertEquals(Set.of(1L), grid.within(0, -179.95, 20));
+        assertEquals(Set.of(2L), grid.within(89.95, -170, 20));
+    }
+
+    @Test
+    void removedAndReplacedPointsAreNotFoundAtTheirOldPlace() {
+        grid.put(1, OTTAWA_LAT, OTTAWA_LON, 0);
+        grid.put(2, OTTAWA_LAT, OTTAWA_LON, 300);
+        grid.put(1, 43.6532, -79.3832, 0);
+        grid.remove(2);
+
+        assertEquals(Set.of(), grid.within(OTTAWA_LAT, OTTAWA_LON, 10));
+        assertEquals(Set.of(1L), grid.within(43.6532, -79.3832, 10));
+        assertEquals(1, grid.size());
+    }
+
+    @Test
+    void hugeRadiusFindsEverything() {
+        grid.put(1, OTTAWA_LAT, OTTAWA_LON, 0);
+        grid.put(2, -33.8688, 151.2093, 0);   // Sydney
+
+        assertEquals(Set.of(1L, 2L), grid.within(0, 0, 20_000));
+    }
+}
@@ -0,0 +1,109 @@
+package ca.carleton.s4806.perkmanager.service;
+
+import ca.carleton.s4806.perkmanager.model.Membership;
+import ca.carleton.s4806.perkmanager.model.Perk;
+import ca.carleton.s4806.perkmanager.model.PerkArchive;
+import ca.carleton.s4806.perkmanager.repository.MembershipRepository;
+import ca.carleton.s4806.perkmanager.repository.PerkArchiveRepository;
+import ca.carleton.s4806.perkmanager.repository.PerkRepository;
+import ca.carleton.s4806.perkmanager.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Integration tests for moving expired perks to the archive table.
+ */
+@SpringBootTest
+public class PerkArchiveServiceTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CatalogChangeLog changeLog;
+
+    @Autowired
+    private PerkRepository perkRepository;
+
+    @Autowired
+    private PerkArchiveRepository perkArchiveRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MembershipRepository membershipRepository;
+
+    @BeforeEach
+    public void setUp() {
+        perkArchiveRepository.deleteAll();
+        perkRepository.deleteAll();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        perkArchiveRepository.deleteAll();
+        perkRepository.deleteAll();
+        userRepository.deleteAll();
+        membershipRepository.deleteAll();
+    }
+
+    @Test
+    public void archivesExpiredPerksInBatches() {
+        LocalDate today = LocalDate.of(2026, 6, 1);
+        Membership visa = membershipRepository.save(new Membership("Visa"));
+        for (int i = 1; i <= 5; i++) {
+            Perk expired = new Perk("Expired " + i, "desc", "Movies", visa, today.minusDays(i), "Ottawa, ON");
+            expired.setUpvotes(i);
+            perkRepository.save(expired);
+        }
+        Perk lastDay = perkRepository.save(new Perk("Last Day", "desc", "Movies", visa, today, "Ottawa, ON"));
+        Perk noExpiry = perkRepository.save(new Perk("No Expiry", "desc", "Movies", visa, null, "Ottawa, ON"));
+        // Load into the second-level cache so we can check it is invalidated
+        Long cachedId = perkRepository.findAll().stream()
+                .filter(perk -> perk.getTitle().equals("Expired 3"))
+                .findFirst().orElseThrow().getId();
+        perkRepository.findById(cachedId);
+
+        long version = changeLog.getVersion();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PerkArchiveService service = new PerkArchiveService(entityManager, transactionManager, registry, changeLog, true, 2);
+
+        assertEquals(5, service.archiveExpired(today));
+        assertEquals(5, registry.get("perk_archived_total").counter().count());
+        CatalogChangeLog.Delta delta = changeLog.changesSince(version);
+        assertEquals(5, delta.changes().size());
+        assertTrue(delta.changes().stream().allMatch(change -> change.type() == CatalogChangeLog.ChangeType.DELETED));
+
+        List<Perk> live = perkRepository.findAll();
+        assertEquals(2, live.size());
+        assertTrue(live.stream().anyMatch(perk -> perk.getId().equals(lastDay.getId())));
+        assertTrue(live.stream().anyMatch(perk -> perk.getId().equals(noExpiry.getId())));
+        assertFalse(perkRepository.findById(cachedId).isPresent());
+
+        PerkArchive archived = perkArchiveRepository.findById(cachedId).orElseThrow();
+        assertEquals("Expired 3", archived.getTitle());
+        assertEquals(3, archived.getUpvotes());
+        assertEquals(today.minusDays(3), archived.getExpiryDate());
+        assertEquals(today, archived.getArchivedOn());
+        assertEquals(visa.getId(), archived.getMembership().getId());
+
+        assertEquals(0, service.archiveExpired(today));
+    }
+}
@@ -0,0 +1,149 @@
+package ca.carleton.s4806.perkmanager.service;
+
+import ca.carleton.s4806.perkmanager.model.Membership;
+import ca.carleton.s4806.perkmanager.model.Perk;
+import ca.carleton.s4806.perkmanager.repository.MembershipRepository;
+import ca.carleton.s4806.perkmanager.repository.PerkRepository;
+import ca.carleton.s4806.perkmanager.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests for the live vote stream.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class PerkVoteStreamTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PerkRepository perkRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MembershipRepository membershipRepository;
+
+    @AfterEach
+    public void tearDown() {
+        perkRepository.deleteAll();
+        userRepository.deleteAll();
+        membershipRepository.deleteAll();
+    }
+
+    @Test
+    public void voteIsPushedToOpenStream() throws Exception {
+        Membership visa = membershipRepository.save(new Membership("Visa"));
+        Perk perk = perkRepository.save(new Perk("Movie Discount", "desc", "Movies", visa, null, "Ottawa, ON"));
+        MockHttpSession authSession = new MockHttpSession();
+        authSession.setAttribute("user", new Object());
+
+        MockHttpServletResponse stream = mockMvc.perform(get("/api/perks/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+        mockMvc.perform(post("/api/perks/{id}/upvote", perk.getId()).session(authSession))
+                .andExpect(status().isOk());
+
+        String expected = "{\"perkId\":" + perk.getId() + ",\"upvotes\":1,\"downvotes\":0}";
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!stream.getContentAsString().contains(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        String content = stream.getContentAsString();
+        assertTrue(content.contains("event:votes"), content);
+        assertTrue(content.contains(expected), content);
+    }
+
+    @Test
+    public void burstOfVotesOnOnePerkIsCoalesced() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        // Long window so only the explicit flush below sends anything
+        PerkVoteStream stream = new PerkVoteStream(objectMapper, registry, Duration.ofHours(1), Duration.ofMinutes(1), 16, 1);
+        try {
+            stream.subscribe();
+            for (int i = 1; i <= 50; i++) {
+                stream.onVote(new PerkVotedEvent(7L, i, 0));
+            }
+            stream.onVote(new PerkVotedEvent(8L, 0, 1));
+            stream.flush();
+
+            assertEquals(51, registry.get("perk_stream_votes_total").counter().count());
+            assertEquals(2, registry.get("perk_stream_updates_total").counter().count());
+            assertEquals(1, registry.get("perk_stream_subscribers").gauge().value());
+        } finally {
+            stream.destroy();
+        }
+    }
+
+    @Test
+    public void slowSubscriberIsDroppedWithoutHoldingUpOthers() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PerkVoteStream stream = new PerkVoteStream(objectMapper, registry, Duration.ofHours(1), Duration.ofMinutes(1), 2, 2);
+        CountDownLatch unblock = new CountDownLatch(1);
+        AtomicInteger delivered = new AtomicInteger();
+        try {
+            // A client that stops reading: its first write never returns
+            stream.subscribe(new SseEmitter() {
+                @Override
+                public void send(Set<DataWithMediaType> items) throws IOException {
+                    try {
+                        unblock.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            stream.subscribe(new SseEmitter() {
+                @Override
+                public void send(Set<DataWithMediaType> items) {
+                    delivered.incrementAndGet();
+                }
+            });
+
+            // One event stuck in the slow client's write and two queued fill it up, so it is gone by the fourth
+            for (int i = 1; i <= 4; i++) {
+                stream.onVote(new PerkVotedEvent(7L, i, 0));
+                stream.flush();
+                long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+                while (delivered.get() < i && System.nanoTime() < deadline) {
+                    Thread.sleep(5);
+                }
+                assertEquals(i, delivered.get());
+            }
+
+            assertEquals(1, registry.get("perk_stream_slow_subscribers_total").counter().count());
+            assertEquals(1, stream.getSubscriberCount());
+        } finally {
+            unblock.countDown();
+            stream.destroy();
+        }
+    }
+}
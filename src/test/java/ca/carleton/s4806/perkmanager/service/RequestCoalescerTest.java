@@ -0,0 +1,129 @@
+package ca.carleton.s4806.perkmanager.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for sharing identical concurrent reads.
+ */
+class RequestCoalescerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RequestCoalescer coalescer = new RequestCoalescer(registry);
+
+    @Test
+    void concurrentCallersWithSameKeyShareOneComputation() throws Exception {
+        int callers = 8;
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<byte[]>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> coalescer.execute("perks", "score:true", () -> {
+                    runs.incrementAndGet();
+                    await(release);
+                    return "[]".getBytes(StandardCharsets.UTF_8);
+                })));
+            }
+            // Hold the leader until every other caller has joined its flight
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (followers() < callers - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            byte[] first = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<byte[]> result : results) {
+                assertSame(first, result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, runs.get());
+            assertEquals(callers - 1, followers());
+            assertEquals(1, registry.get("perk_coalesced_requests_total").tag("role", "leader").counter().count());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // The finished flight is gone, so the next call runs again
+        coalescer.execute("perks", "score:true", () -> {
+            runs.incrementAndGet();
+            return new byte[0];
+        });
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void followersOfAQueryCountAsQueried() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> leader = executor.submit(() -> coalescer.execute("perks", "k", () -> {
+                QueryTracker.markQueried();
+                started.countDown();
+                await(release);
+                return new byte[0];
+            }));
+            await(started);
+            Future<Boolean> follower = executor.submit(() -> {
+                QueryTracker.reset();
+                coalescer.execute("perks", "k", () -> new byte[0]);
+                return QueryTracker.hasQueried();
+            });
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (followers() < 1 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+            leader.get(5, TimeUnit.SECONDS);
+            assertTrue(follower.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void differentKeysDoNotShare() {
+        byte[] a = coalescer.execute("perks", "a", () -> new byte[]{1});
+        byte[] b = coalescer.execute("perks", "b", () -> new byte[]{2});
+        assertEquals(1, a[0]);
+        assertEquals(2, b[0]);
+        assertEquals(2, registry.get("perk_coalesced_requests_total").tag("role", "leader").counter().count());
+    }
+
+    @Test
+    void failureIsRethrownAndNotKept() {
+        assertThrows(IllegalStateException.class, () -> coalescer.execute("perks", "k", () -> {
+            throw new IllegalStateException("query failed");
+        }));
+        assertEquals(3, coalescer.execute("perks", "k", () -> new byte[]{3})[0]);
+    }
+
+    private double followers() {
+        var counter = registry.find("perk_coalesced_requests_total").tag("role", "follower").counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package ca.carleton.s4806.perkmanager.service;
+
+import ca.carleton.s4806.perkmanager.config.SyntheticDataProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link SyntheticCatalogGenerator}.
+ */
+class SyntheticCatalogGeneratorTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 6, 1);
+
+    @TempDir
+    Path tempDir;
+
+    private SyntheticDataProperties settings(long seed) {
+        SyntheticDataProperties settings = new SyntheticDataProperties();
+        settings.setSeed(seed);
+        settings.setMemberships(50);
+        settings.setUsers(500);
+        settings.setPerks(20_000);
+        settings.setMaxVotes(1_000);
+        return settings;
+    }
+
+    /**
+     * Confirms the same seed produces byte-identical snapshots and another seed does not.
+     */
+    @Test
+    void sameSeedProducesSameCatalog() throws Exception {
+        Path first = tempDir.resolve("first.snapshot");
+        Path second = tempDir.resolve("second.snapshot");
+        Path other = tempDir.resolve("other.snapshot");
+
+        new SyntheticCatalogGenerator(settings(7), TODAY).generate(first);
+        new SyntheticCatalogGenerator(settings(7), TODAY).generate(second);
+        new SyntheticCatalogGenerator(settings(8), TODAY).generate(other);
+
+        assertArrayEquals(Files.readAllBytes(first), Files.readAllBytes(second));
+        assertFalse(Files.mismatch(first, other) == -1);
+    }
+
+    /**
+     * Checks sizes, the skew of votes and membership popularity, and the expiry spread.
+     */
+    @Test
+    void generatesSkewedRealisticDistributions() throws Exception {
+        SyntheticDataProperties settings = settings(42);
+        Path file = tempDir.resolve("catalog.snapshot");
+        new SyntheticCatalogGenerator(settings, TODAY).generate(file);
+
+        Map<String, List<Object[]>> tables = new HashMap<>();
+        try (CatalogSnapshotReader reader = new CatalogSnapshotReader(file, false)) {
+            String table;
+            while ((table = reader.nextTable()) != null) {
+                List<Object[]> rows = new ArrayList<>();
+                List<Object[]> block;
+                while ((block = reader.nextBlock()) != null) {
+                    rows.addAll(block);
+                }
+                tables.put(table, rows);
+            }
+        }
+
+        assertEquals(50, tables.get("membership").size());
+        assertEquals(50, tables.get("membership").stream().map(row -> row[1]).distinct().count());
+        assertEquals(500, tables.get("users").size());
+        assertTrue(tables.get("users").stream()
+                .allMatch(row -> PasswordHashes.matches(SyntheticCatalogGenerator.PASSWORD, (String) row[2])));
+        List<Object[]> perks = tables.get("perk");
+        assertEquals(20_000, perks.size());
+
+        List<Integer> upvotes = perks.stream().map(row -> (Integer) row[5]).sorted().toList();
+        assertTrue(upvotes.get(upvotes.size() / 2) < 20, "most perks have few votes");
+        assertTrue(upvotes.get(upvotes.size() - 1) > 300, "a few perks have many votes");
+
+        long topMembershipPerks = perks.stream().filter(row -> (Long) row[4] == 1L).count();
+        long lastMembershipPerks = perks.stream().filter(row -> (Long) row[4] == 50L).count();
+        assertTrue(topMembershipPerks > 10 * lastMembershipPerks);
+
+        Map<Long, Integer> heldPerUser = new HashMap<>();
+        Set<List<Long>> pairs = new HashSet<>();
+        for (Object[] row : tables.get("user_memberships")) {
+            heldPerUser.merge((Long) row[0], 1, Integer::sum);
+            assertTrue(pairs.add(List.of((Long) row[0], (Long) row[1])), "no duplicate memberships");
+        }
+        assertTrue(heldPerUser.size() < 500, "some users hold no memberships");
+        assertTrue(heldPerUser.values().stream().anyMatch(count -> count >= 5));
+
+        long expired = perks.stream().filter(row -> ((LocalDate) row[11]).isBefore(TODAY)).count();
+        assertTrue(expired > 1_500 && expired < 2_500, "about 10% expired");
+        assertTrue(perks.stream().anyMatch(row -> ((LocalDate) row[11]).isAfter(TODAY.plusDays(600))));
+
+        // City perks sit around the city centre; 9 of the 11 locations are cities
+        long located = perks.stream().filter(row -> row[8] != null).count();
+        assertTrue(located > 15_500 && located < 17_200, "about 82% have coordinates");
+        assertTrue(perks.stream().filter(row -> "Global".equals(row[7])).allMatch(row -> row[8] == null && row[10] == null));
+        assertTrue(perks.stream().filter(row -> "Ottawa, ON".equals(row[7]))
+                .allMatch(row -> Math.abs((Double) row[8] - 45.4215) < 0.2 && Math.abs((Double) row[9] + 75.6972) < 0.3));
+        long covering = perks.stream().filter(row -> row[10] != null).count();
+        assertTrue(covering > located / 5 && covering < located * 2 / 5, "about 30% of located perks have a coverage");
+    }
+}